@@ -0,0 +1,238 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.ErrorProneJavaCompiler;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.scanner.ScannerSupplier;
+import com.sun.tools.javac.api.JavacTool;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+
+/**
+ * Measures the compile-time overhead of each check in baseline-error-prone. A synthetic corpus is compiled with plain
+ * javac, with error-prone but no checks, with every check enabled on its own and with all checks enabled. The overhead
+ * of a check is the difference between the median compile time with only that check and the median compile time with
+ * no checks, relative to plain javac.
+ *
+ * <p>Options: {@code --classes} (corpus size), {@code --warmup} and {@code --iterations} (compilations per
+ * configuration), {@code --checks} (comma separated check names, defaults to all), {@code --workDir},
+ * {@code --report} and {@code --maxOverheadPercent}, which fails the benchmark if any check adds more than that.
+ */
+public final class CheckOverheadBenchmark {
+
+    private static final String CHECKS_PACKAGE = "com.palantir.baseline.errorprone.";
+
+    private final List<Path> sources;
+    private final Path outputDir;
+    private final int warmup;
+    private final int iterations;
+
+    CheckOverheadBenchmark(List<Path> sources, Path outputDir, int warmup, int iterations) {
+        this.sources = sources;
+        this.outputDir = outputDir;
+        this.warmup = warmup;
+        this.iterations = iterations;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = parseOptions(args);
+        Path workDir = Paths.get(options.getOrDefault("workDir", "build/benchmark"));
+        List<Path> sources = SyntheticCorpus.generate(
+                workDir.resolve("src"), Integer.parseInt(options.getOrDefault("classes", "500")));
+        CheckOverheadBenchmark benchmark = new CheckOverheadBenchmark(sources, workDir.resolve("classes"),
+                Integer.parseInt(options.getOrDefault("warmup", "3")),
+                Integer.parseInt(options.getOrDefault("iterations", "5")));
+
+        List<Class<? extends BugChecker>> checks = checks(options.get("checks"));
+        Results results = benchmark.run(checks);
+        String report = results.report();
+        System.out.println(report);
+        if (options.containsKey("report")) {
+            Path reportFile = Paths.get(options.get("report"));
+            Files.createDirectories(reportFile.toAbsolutePath().getParent());
+            Files.write(reportFile, report.getBytes(StandardCharsets.UTF_8));
+        }
+
+        if (options.containsKey("maxOverheadPercent")) {
+            double limit = Double.parseDouble(options.get("maxOverheadPercent"));
+            List<String> slowChecks = checks.stream()
+                    .map(Class::getSimpleName)
+                    .filter(check -> results.overheadPercent(check) > limit)
+                    .collect(Collectors.toList());
+            if (!slowChecks.isEmpty()) {
+                System.err.printf("Checks adding more than %.1f%% to compile time: %s%n", limit, slowChecks);
+                System.exit(1);
+            }
+        }
+    }
+
+    /**
+     * Compiles the corpus in every configuration, cycling through the configurations on each iteration so that
+     * drift in machine load or JIT state affects all configurations alike.
+     */
+    Results run(List<Class<? extends BugChecker>> checks) {
+        Map<String, JavaCompiler> compilers = new LinkedHashMap<>();
+        compilers.put(Results.JAVAC, JavacTool.create());
+        compilers.put(Results.NO_CHECKS, errorProne(ImmutableList.of()));
+        compilers.put(Results.ALL_CHECKS, errorProne(checks));
+        checks.forEach(check -> compilers.put(check.getSimpleName(), errorProne(ImmutableList.of(check))));
+
+        Results results = new Results(sources.size(), warmup, iterations);
+        for (int iteration = 0; iteration < warmup + iterations; iteration++) {
+            for (Map.Entry<String, JavaCompiler> compiler : compilers.entrySet()) {
+                long millis = compile(compiler.getKey(), compiler.getValue());
+                if (iteration >= warmup) {
+                    results.add(compiler.getKey(), millis);
+                }
+            }
+        }
+        return results;
+    }
+
+    private static JavaCompiler errorProne(List<Class<? extends BugChecker>> checks) {
+        return new ErrorProneJavaCompiler(ScannerSupplier.fromBugCheckerClasses(checks));
+    }
+
+    private long compile(String configuration, JavaCompiler compiler) {
+        Path classes = outputDir.resolve(configuration);
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager =
+                compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            Files.createDirectories(classes);
+            List<String> options = ImmutableList.of(
+                    "-proc:none",
+                    "-classpath", System.getProperty("java.class.path"),
+                    "-d", classes.toString());
+            Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromFiles(
+                    sources.stream().map(Path::toFile).collect(Collectors.toList()));
+            // Collect garbage from the previous compilation so that it isn't charged to this one
+            System.gc();
+            long started = System.nanoTime();
+            boolean success = compiler.getTask(null, fileManager, diagnostics, options, null, units).call();
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            if (!success) {
+                throw new IllegalStateException("Corpus failed to compile with " + configuration + ": "
+                        + diagnostics.getDiagnostics().stream()
+                                .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                                .limit(5)
+                                .map(Object::toString)
+                                .collect(Collectors.joining("\n")));
+            }
+            return millis;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<Class<? extends BugChecker>> checks(String names) {
+        List<String> selected = names == null ? null : Arrays.asList(names.split(","));
+        return StreamSupport.stream(ServiceLoader.load(BugChecker.class).spliterator(), false)
+                .map(check -> (Class<? extends BugChecker>) check.getClass())
+                .filter(check -> check.getName().startsWith(CHECKS_PACKAGE))
+                .filter(check -> selected == null || selected.contains(check.getSimpleName()))
+                .sorted(Comparator.comparing(Class::getSimpleName))
+                .collect(Collectors.toList());
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected '--<option> <value>' but got: " + Arrays.toString(args));
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+
+    /** Compile times of every configuration. */
+    static final class Results {
+        static final String JAVAC = "javac";
+        static final String NO_CHECKS = "error-prone, no checks";
+        static final String ALL_CHECKS = "all checks";
+
+        private final Map<String, List<Long>> millis = new LinkedHashMap<>();
+        private final int classes;
+        private final int warmup;
+        private final int iterations;
+
+        Results(int classes, int warmup, int iterations) {
+            this.classes = classes;
+            this.warmup = warmup;
+            this.iterations = iterations;
+        }
+
+        void add(String configuration, long compileMillis) {
+            millis.computeIfAbsent(configuration, unused -> new ArrayList<>()).add(compileMillis);
+        }
+
+        long median(String configuration) {
+            List<Long> sorted = millis.get(configuration).stream().sorted().collect(Collectors.toList());
+            return sorted.get(sorted.size() / 2);
+        }
+
+        /** Time added by a configuration over error-prone without checks, in percent of plain javac. */
+        double overheadPercent(String configuration) {
+            return 100.0 * (median(configuration) - median(NO_CHECKS)) / Math.max(1, median(JAVAC));
+        }
+
+        String report() {
+            StringBuilder report = new StringBuilder(String.format(
+                    "Compiled %d classes; %d warmup and %d measured compilations per configuration%n%n",
+                    classes, warmup, iterations));
+            report.append(String.format("%-40s %10s %10s %10s%n", "configuration", "median", "overhead", "% javac"));
+            row(report, JAVAC, median(JAVAC), 0);
+            // error-prone's own cost (parsing options, scanning the trees) is measured against plain javac
+            row(report, NO_CHECKS, median(NO_CHECKS), median(NO_CHECKS) - median(JAVAC));
+            row(report, ALL_CHECKS, median(ALL_CHECKS), median(ALL_CHECKS) - median(NO_CHECKS));
+            report.append('\n');
+            millis.keySet().stream()
+                    .filter(configuration -> !configuration.equals(JAVAC)
+                            && !configuration.equals(NO_CHECKS) && !configuration.equals(ALL_CHECKS))
+                    .sorted(Comparator.comparingLong(this::median).reversed())
+                    .forEach(check -> row(report, check, median(check), median(check) - median(NO_CHECKS)));
+            return report.toString();
+        }
+
+        private void row(StringBuilder report, String configuration, long median, long overhead) {
+            report.append(String.format("%-40s %8d ms %+7d ms %+9.1f%%%n", configuration, median, overhead,
+                    100.0 * overhead / Math.max(1, median(JAVAC))));
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates a synthetic corpus of Java sources resembling typical service code: loggers, preconditions, exception
+ * handling, file streams, Jackson annotations, collections, streams and lambdas, with classes referencing each other.
+ * The code complies with all baseline checks, so that every compilation runs through all compiler phases.
+ */
+final class SyntheticCorpus {
+
+    private static final int CLASSES_PER_PACKAGE = 20;
+
+    private SyntheticCorpus() {}
+
+    /** Writes {@code classCount} source files under {@code sourceDir} and returns their paths. */
+    static List<Path> generate(Path sourceDir, int classCount) throws IOException {
+        List<Path> sources = new ArrayList<>(classCount);
+        for (int index = 0; index < classCount; index++) {
+            Path file = sourceDir.resolve(packageName(index).replace('.', '/')).resolve(className(index) + ".java");
+            Files.createDirectories(file.getParent());
+            Files.write(file, source(index).getBytes(StandardCharsets.UTF_8));
+            sources.add(file);
+        }
+        return sources;
+    }
+
+    private static String packageName(int index) {
+        return "corpus.p" + (index / CLASSES_PER_PACKAGE);
+    }
+
+    private static String className(int index) {
+        return "Service" + index;
+    }
+
+    private static String source(int index) {
+        String name = className(index);
+        // Each class depends on the previous one, so that symbols are resolved across classes and packages
+        String dependency = index > 0 ? packageName(index - 1) + "." + className(index - 1) : null;
+        StringBuilder source = new StringBuilder();
+        line(source, "package %s;", packageName(index));
+        line(source, "");
+        line(source, "import com.fasterxml.jackson.annotation.JsonSubTypes;");
+        line(source, "import com.fasterxml.jackson.annotation.JsonTypeInfo;");
+        line(source, "import com.google.common.collect.ImmutableList;");
+        line(source, "import com.palantir.logsafe.Preconditions;");
+        line(source, "import com.palantir.logsafe.SafeArg;");
+        line(source, "import com.palantir.logsafe.UnsafeArg;");
+        line(source, "import java.io.IOException;");
+        line(source, "import java.io.UncheckedIOException;");
+        line(source, "import java.nio.file.Files;");
+        line(source, "import java.nio.file.Path;");
+        line(source, "import java.util.ArrayList;");
+        line(source, "import java.util.HashMap;");
+        line(source, "import java.util.List;");
+        line(source, "import java.util.Map;");
+        line(source, "import java.util.Optional;");
+        line(source, "import java.util.concurrent.CompletableFuture;");
+        line(source, "import java.util.concurrent.ExecutorService;");
+        line(source, "import java.util.stream.Collectors;");
+        line(source, "import java.util.stream.Stream;");
+        line(source, "import org.apache.commons.lang3.Validate;");
+        line(source, "import org.slf4j.Logger;");
+        line(source, "import org.slf4j.LoggerFactory;");
+        line(source, "");
+        line(source, "public final class %s {", name);
+        line(source, "    private static final Logger log = LoggerFactory.getLogger(%s.class);", name);
+        line(source, "");
+        line(source, "    private final Map<String, List<Item>> itemsByOwner = new HashMap<>();");
+        line(source, "    private final ExecutorService executor;");
+        if (dependency != null) {
+            line(source, "    private final %s delegate;", dependency);
+            line(source, "");
+            line(source, "    public %s(ExecutorService executor, %s delegate) {", name, dependency);
+            line(source, "        this.executor = executor;");
+            line(source, "        this.delegate = delegate;");
+        } else {
+            line(source, "");
+            line(source, "    public %s(ExecutorService executor) {", name);
+            line(source, "        this.executor = executor;");
+        }
+        line(source, "    }");
+        line(source, "");
+        line(source, "    public void add(String owner, Item item) {");
+        line(source, "        Preconditions.checkNotNull(owner, \"owner is required\");");
+        line(source, "        Preconditions.checkArgument(item.size() >= 0, \"size must not be negative\",");
+        line(source, "                SafeArg.of(\"size\", item.size()));");
+        line(source, "        com.google.common.base.Preconditions.checkState(");
+        line(source, "                !owner.isEmpty(), \"owner must not be empty, got %%s\", owner);");
+        line(source, "        Validate.isTrue(item.size() < %d, \"size is too large\");", 1000 + index);
+        line(source, "        itemsByOwner.computeIfAbsent(owner, unused -> new ArrayList<>()).add(item);");
+        line(source, "        log.debug(\"Added item {} for {}\", SafeArg.of(\"size\", item.size()),");
+        line(source, "                UnsafeArg.of(\"owner\", owner));");
+        line(source, "    }");
+        line(source, "");
+        line(source, "    public List<String> largestOwners(int limit) {");
+        line(source, "        return itemsByOwner.entrySet().stream()");
+        line(source, "                .sorted((a, b) -> Integer.compare(total(b.getValue()), total(a.getValue())))");
+        line(source, "                .limit(limit)");
+        line(source, "                .map(Map.Entry::getKey)");
+        line(source, "                .collect(Collectors.toList());");
+        line(source, "    }");
+        line(source, "");
+        line(source, "    private static int total(List<Item> items) {");
+        line(source, "        int total = 0;");
+        line(source, "        for (Item item : items) {");
+        line(source, "            total += item.size();");
+        line(source, "        }");
+        line(source, "        return total;");
+        line(source, "    }");
+        line(source, "");
+        line(source, "    public Optional<Item> find(String owner, String label) {");
+        line(source, "        return Optional.ofNullable(itemsByOwner.get(owner))");
+        line(source, "                .flatMap(items -> items.stream()");
+        line(source, "                        .filter(item -> item.label().equals(label))");
+        line(source, "                        .findFirst());");
+        line(source, "    }");
+        line(source, "");
+        line(source, "    public long countFiles(Path directory) {");
+        line(source, "        try (Stream<Path> files = Files.list(directory)) {");
+        line(source, "            return files.filter(Files::isRegularFile).count();");
+        line(source, "        } catch (IOException e) {");
+        line(source, "            log.warn(\"Failed to list directory {}\",");
+        line(source, "                    UnsafeArg.of(\"directory\", directory), e);");
+        line(source, "            throw new UncheckedIOException(e);");
+        line(source, "        }");
+        line(source, "    }");
+        line(source, "");
+        line(source, "    public CompletableFuture<Integer> totalAsync(String owner) {");
+        line(source, "        return CompletableFuture.supplyAsync(() -> {");
+        line(source, "            List<Item> items = itemsByOwner.getOrDefault(owner, ImmutableList.of());");
+        line(source, "            return total(items);");
+        line(source, "        }, executor);");
+        line(source, "    }");
+        line(source, "");
+        line(source, "    public String describe() {");
+        line(source, "        StringBuilder description = new StringBuilder(\"%s\");", name);
+        if (dependency != null) {
+            line(source, "        description.append(\" -> \").append(delegate.describe());");
+        }
+        line(source, "        switch (itemsByOwner.size() %% 3) {");
+        line(source, "            case 0:");
+        line(source, "                description.append(\" (empty)\");");
+        line(source, "                break;");
+        line(source, "            case 1:");
+        line(source, "                description.append(\" (one)\");");
+        line(source, "                break;");
+        line(source, "            default:");
+        line(source, "                description.append(\" (many)\");");
+        line(source, "        }");
+        line(source, "        return description.toString();");
+        line(source, "    }");
+        line(source, "");
+        line(source, "    @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = \"type\")");
+        line(source, "    @JsonSubTypes({@JsonSubTypes.Type(value = Small.class, name = \"small\"),");
+        line(source, "            @JsonSubTypes.Type(value = Large.class, name = \"large\")})");
+        line(source, "    public interface Item {");
+        line(source, "        String label();");
+        line(source, "");
+        line(source, "        int size();");
+        line(source, "    }");
+        for (String kind : new String[] {"Small", "Large"}) {
+            line(source, "");
+            line(source, "    public static final class %s implements Item {", kind);
+            line(source, "        private final String label;");
+            line(source, "        private final int size;");
+            line(source, "");
+            line(source, "        public %s(String label, int size) {", kind);
+            line(source, "            this.label = label;");
+            line(source, "            this.size = size;");
+            line(source, "        }");
+            line(source, "");
+            line(source, "        @Override");
+            line(source, "        public String label() {");
+            line(source, "            return label;");
+            line(source, "        }");
+            line(source, "");
+            line(source, "        @Override");
+            line(source, "        public int size() {");
+            line(source, "            return size;");
+            line(source, "        }");
+            line(source, "    }");
+        }
+        line(source, "}");
+        return source.toString();
+    }
+
+    private static void line(StringBuilder source, String format, Object... args) {
+        source.append(String.format(format, args)).append('\n');
+    }
+}
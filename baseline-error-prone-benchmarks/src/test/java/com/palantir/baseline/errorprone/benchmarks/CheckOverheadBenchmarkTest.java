@@ -0,0 +1,56 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone.benchmarks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.errorprone.bugpatterns.BugChecker;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CheckOverheadBenchmarkTest {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testFindsAllChecks() {
+        assertThat(CheckOverheadBenchmark.checks(null))
+                .extracting(Class::getSimpleName)
+                .contains("CatchBlockLogException", "Slf4jLogsafeArgs", "UnclosedFilesStreamUsage");
+        assertThat(CheckOverheadBenchmark.checks("Slf4jLogsafeArgs,CatchBlockLogException"))
+                .extracting(Class::getSimpleName)
+                .containsExactly("CatchBlockLogException", "Slf4jLogsafeArgs");
+    }
+
+    @Test
+    public void testCorpusCompilesCleanlyWithAllChecks() throws Exception {
+        // Fails if any check reports an error on the corpus, which would skip the later compiler phases
+        Path workDir = temporaryFolder.getRoot().toPath();
+        List<Class<? extends BugChecker>> checks = CheckOverheadBenchmark.checks(null);
+        CheckOverheadBenchmark.Results results = new CheckOverheadBenchmark(
+                SyntheticCorpus.generate(workDir.resolve("src"), 30), workDir.resolve("classes"), 0, 1)
+                .run(checks);
+
+        String report = results.report();
+        assertThat(report).contains("Compiled 30 classes", "javac", "error-prone, no checks", "all checks");
+        checks.forEach(check -> assertThat(report).contains(check.getSimpleName()));
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.errorprone.VisitorState;
+import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.util.Context;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Types looked up by name, cached for the duration of a compilation. {@link VisitorState#getTypeFromString} resolves
+ * the name on every call, which adds up when checks call it for every matching method invocation.
+ */
+final class CachedTypes {
+
+    private static final Context.Key<CachedTypes> KEY = new Context.Key<>();
+
+    private final Map<String, Optional<Type>> types = new ConcurrentHashMap<>();
+
+    private CachedTypes() {}
+
+    /** Returns the type named {@code typeName}, or null if it isn't on the classpath of the compilation. */
+    static Type get(String typeName, VisitorState state) {
+        return instance(state.context).types
+                .computeIfAbsent(typeName, name -> Optional.ofNullable(state.getTypeFromString(name)))
+                .orElse(null);
+    }
+
+    private static CachedTypes instance(Context context) {
+        CachedTypes cachedTypes = context.get(KEY);
+        if (cachedTypes == null) {
+            cachedTypes = new CachedTypes();
+            context.put(KEY, cachedTypes);
+        }
+        return cachedTypes;
+    }
+}
@@ -23,15 +23,12 @@ import com.google.errorprone.BugPattern.LinkType;
 import com.google.errorprone.BugPattern.SeverityLevel;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.bugpatterns.BugChecker;
-import com.google.errorprone.matchers.ChildMultiMatcher;
 import com.google.errorprone.matchers.Description;
-import com.google.errorprone.matchers.Matcher;
-import com.google.errorprone.matchers.Matchers;
-import com.google.errorprone.matchers.method.MethodMatchers;
 import com.sun.source.tree.CatchTree;
-import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
 import com.sun.source.tree.Tree;
-import java.util.regex.Pattern;
+import com.sun.source.util.TreeScanner;
+import java.util.Optional;
 
 @AutoService(BugChecker.class)
 @BugPattern(
@@ -45,22 +42,11 @@ public final class CatchBlockLogException extends BugChecker implements BugCheck
 
     private static final long serialVersionUID = 1L;
 
-    private static final Matcher<ExpressionTree> logMethod = MethodMatchers.instanceMethod()
-            .onDescendantOf("org.slf4j.Logger")
-            .withNameMatching(Pattern.compile("trace|debug|info|warn|error"));
-
-    private static final Matcher<Tree> containslogMethod = Matchers.contains(
-            Matchers.toType(ExpressionTree.class, logMethod));
-
-    private static final Matcher<ExpressionTree> logException = Matchers.methodInvocation(
-            logMethod, ChildMultiMatcher.MatchType.LAST, Matchers.isSubtypeOf(Throwable.class));
-
-    private static final Matcher<Tree> containslogException = Matchers.contains(Matchers.toType(
-            ExpressionTree.class, logException));
-
     @Override
     public Description matchCatch(CatchTree tree, VisitorState state) {
-        if (containslogMethod.matches(tree, state) && !containslogException.matches(tree, state)) {
+        LogCallScanner scanner = new LogCallScanner(state);
+        scanner.scan(tree.getBlock(), null);
+        if (scanner.containsLogCall && !scanner.logsThrowable) {
             return buildDescription(tree)
                     .setMessage("Catch block contains log statements but thrown exception is never logged.")
                     .build();
@@ -68,4 +54,29 @@ public final class CatchBlockLogException extends BugChecker implements BugCheck
         return Description.NO_MATCH;
     }
 
+    /** Finds log calls in a single pass over the catch block, stopping at the first call logging a throwable. */
+    private static final class LogCallScanner extends TreeScanner<Void, Void> {
+        private final VisitorState state;
+        private boolean containsLogCall;
+        private boolean logsThrowable;
+
+        private LogCallScanner(VisitorState state) {
+            this.state = state;
+        }
+
+        @Override
+        public Void scan(Tree tree, Void unused) {
+            return logsThrowable ? null : super.scan(tree, unused);
+        }
+
+        @Override
+        public Void visitMethodInvocation(MethodInvocationTree tree, Void unused) {
+            Optional<Slf4jLogCall> logCall = Slf4jLogCall.of(tree, state);
+            if (logCall.isPresent()) {
+                containsLogCall = true;
+                logsThrowable = logCall.get().logsThrowable();
+            }
+            return super.visitMethodInvocation(tree, unused);
+        }
+    }
 }
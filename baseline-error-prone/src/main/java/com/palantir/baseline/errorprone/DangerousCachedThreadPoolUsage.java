@@ -0,0 +1,64 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.auto.service.AutoService;
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.BugPattern.Category;
+import com.google.errorprone.BugPattern.LinkType;
+import com.google.errorprone.BugPattern.SeverityLevel;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.method.MethodMatchers;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+        name = "DangerousCachedThreadPoolUsage",
+        category = Category.JDK,
+        link = "https://github.com/palantir/gradle-baseline#baseline-error-prone-checks",
+        linkType = LinkType.CUSTOM,
+        severity = SeverityLevel.WARNING,
+        summary = "Disallow Executors.newCachedThreadPool, which creates an unbounded number of threads.")
+public final class DangerousCachedThreadPoolUsage extends MethodInvocationChecker {
+    private static final String ERROR_MESSAGE = "Executors.newCachedThreadPool starts a new thread for every task "
+            + "submitted while all of its threads are busy, without any limit. Under a burst of load it can start "
+            + "thousands of threads, each with its own stack, until the process runs out of memory or native "
+            + "threads, and the resulting contention slows down the tasks that were already running. Use an "
+            + "executor with a bounded number of threads sized for the work, and bound its queue as well (see "
+            + "DangerousUnboundedExecutorUsage). If the number of concurrent tasks is bounded by construction, "
+            + "@SuppressWarnings(\"DangerousCachedThreadPoolUsage\") with a comment explaining the bound.";
+
+    private static final Matcher<ExpressionTree> CACHED_THREAD_POOL = MethodMatchers.staticMethod()
+            .onClass("java.util.concurrent.Executors")
+            .named("newCachedThreadPool");
+
+    private static final long serialVersionUID = 1L;
+
+    public DangerousCachedThreadPoolUsage() {
+        super(ImmutableList.of("newCachedThreadPool"), CACHED_THREAD_POOL);
+    }
+
+    @Override
+    protected Description matchInvocation(MethodInvocationTree tree, VisitorState state) {
+        return buildDescription(tree).setMessage(ERROR_MESSAGE).build();
+    }
+}
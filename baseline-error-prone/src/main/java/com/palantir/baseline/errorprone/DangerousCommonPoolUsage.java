@@ -0,0 +1,231 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.auto.service.AutoService;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.BugPattern.Category;
+import com.google.errorprone.BugPattern.LinkType;
+import com.google.errorprone.BugPattern.SeverityLevel;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.matchers.method.MethodMatchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.MemberReferenceTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Symbol.MethodSymbol;
+import com.sun.tools.javac.code.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+        name = "DangerousCommonPoolUsage",
+        category = Category.JDK,
+        link = "https://github.com/palantir/gradle-baseline#baseline-error-prone-checks",
+        linkType = LinkType.CUSTOM,
+        severity = SeverityLevel.WARNING,
+        summary = "Disallow blocking operations in CompletableFuture async stages and parallel streams that run on "
+                + "the ForkJoin common pool.")
+public final class DangerousCommonPoolUsage extends MethodInvocationChecker {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final ImmutableList<String> ASYNC_METHOD_NAMES = ImmutableList.of(
+            "supplyAsync", "runAsync", "thenApplyAsync", "thenAcceptAsync", "thenRunAsync", "thenCombineAsync",
+            "thenAcceptBothAsync", "runAfterBothAsync", "applyToEitherAsync", "acceptEitherAsync",
+            "runAfterEitherAsync", "thenComposeAsync", "whenCompleteAsync", "handleAsync");
+
+    private static final ImmutableList<String> PARALLEL_METHOD_NAMES = ImmutableList.of("parallelStream", "parallel");
+
+    private static final Matcher<ExpressionTree> COMMON_POOL_METHOD = Matchers.anyOf(
+            MethodMatchers.staticMethod()
+                    .onClass("java.util.concurrent.CompletableFuture")
+                    .withNameMatching(Pattern.compile("supplyAsync|runAsync")),
+            MethodMatchers.instanceMethod()
+                    .onDescendantOf("java.util.concurrent.CompletionStage")
+                    .withNameMatching(Pattern.compile("then.*Async|.*Either.*Async|runAfterBothAsync|"
+                            + "whenCompleteAsync|handleAsync")),
+            MethodMatchers.instanceMethod()
+                    .onDescendantOf("java.util.Collection")
+                    .named("parallelStream"),
+            MethodMatchers.instanceMethod()
+                    .onDescendantOf("java.util.stream.BaseStream")
+                    .named("parallel"));
+
+    /**
+     * Methods that block on I/O or on another thread, by the type that declares them or a supertype of it, and their
+     * names. Method references have no receiver to match, so these are matched by symbol rather than by a method
+     * matcher.
+     */
+    private static final ImmutableMap<String, Pattern> BLOCKING_METHODS = ImmutableMap.<String, Pattern>builder()
+            // JDBC
+            .put("java.sql.Connection", Pattern.compile(".*"))
+            .put("java.sql.Statement", Pattern.compile(".*"))
+            .put("java.sql.ResultSet", Pattern.compile(".*"))
+            .put("java.sql.DriverManager", Pattern.compile("getConnection"))
+            .put("javax.sql.DataSource", Pattern.compile("getConnection"))
+            // File and stream I/O
+            .put("java.nio.file.Files", Pattern.compile(".*"))
+            .put("java.io.InputStream", Pattern.compile("read.*|skip|transferTo"))
+            .put("java.io.Reader", Pattern.compile("read.*|skip|transferTo"))
+            // HTTP clients
+            .put("java.net.URL", Pattern.compile("openStream|openConnection|getContent"))
+            .put("java.net.URLConnection", Pattern.compile("connect|get(InputStream|OutputStream|Content|Response.*)"))
+            .put("java.net.http.HttpClient", Pattern.compile("send"))
+            .put("org.apache.http.client.HttpClient", Pattern.compile("execute"))
+            .put("okhttp3.Call", Pattern.compile("execute"))
+            // Waiting for other threads
+            .put("java.lang.Thread", Pattern.compile("sleep|join"))
+            .put("java.util.concurrent.Future", Pattern.compile("get"))
+            .put("java.util.concurrent.CompletableFuture", Pattern.compile("join"))
+            .build();
+
+    public DangerousCommonPoolUsage() {
+        super(ImmutableList.<String>builder().addAll(ASYNC_METHOD_NAMES).addAll(PARALLEL_METHOD_NAMES).build(),
+                COMMON_POOL_METHOD);
+    }
+
+    @Override
+    protected Description matchInvocation(MethodInvocationTree tree, VisitorState state) {
+        MethodSymbol symbol = ASTHelpers.getSymbol(tree);
+        boolean parallel = PARALLEL_METHOD_NAMES.contains(symbol.getSimpleName().toString());
+        if (!parallel && takesExecutor(symbol, state)) {
+            return Description.NO_MATCH;
+        }
+
+        List<ExpressionTree> tasks = parallel ? pipelineArguments(tree, state) : new ArrayList<>(tree.getArguments());
+        for (ExpressionTree task : tasks) {
+            Optional<Symbol> blocking = findBlockingCall(task, state);
+            if (blocking.isPresent()) {
+                String blockingCall = blocking.get().owner.getSimpleName() + "." + blocking.get().getSimpleName();
+                String message = parallel
+                        ? "Parallel streams run on the ForkJoin common pool, which is shared by the whole JVM, "
+                                + "but this pipeline blocks in " + blockingCall + ". Use a sequential stream, or "
+                                + "submit the work to an executor sized for blocking tasks."
+                        : "CompletableFuture." + symbol.getSimpleName() + " without an executor runs on the "
+                                + "ForkJoin common pool, which is shared by the whole JVM, but this task blocks in "
+                                + blockingCall + ". Pass an executor sized for blocking tasks.";
+                return buildDescription(tree).setMessage(message).build();
+            }
+        }
+        return Description.NO_MATCH;
+    }
+
+    private static boolean takesExecutor(MethodSymbol symbol, VisitorState state) {
+        Type executor = CachedTypes.get("java.util.concurrent.Executor", state);
+        return symbol.getParameters().stream().anyMatch(param -> ASTHelpers.isSubtype(param.type, executor, state));
+    }
+
+    /**
+     * The arguments of every stage of the stream pipeline that {@code tree} makes parallel: a parallel stream runs
+     * the stages before a {@code parallel()} call in parallel too.
+     */
+    private static List<ExpressionTree> pipelineArguments(MethodInvocationTree tree, VisitorState state) {
+        Type baseStream = CachedTypes.get("java.util.stream.BaseStream", state);
+        List<ExpressionTree> arguments = new ArrayList<>();
+        for (ExpressionTree receiver = ASTHelpers.getReceiver(tree);
+                receiver != null && receiver.getKind() == Tree.Kind.METHOD_INVOCATION
+                        && ASTHelpers.isSubtype(ASTHelpers.getType(receiver), baseStream, state);
+                receiver = ASTHelpers.getReceiver(receiver)) {
+            arguments.addAll(((MethodInvocationTree) receiver).getArguments());
+        }
+
+        Tree stage = tree;
+        TreePath path = state.getPath().getParentPath();
+        while (ASTHelpers.isSubtype(ASTHelpers.getType(stage), baseStream, state)
+                && path != null && path.getLeaf() instanceof MemberSelectTree
+                && ((MemberSelectTree) path.getLeaf()).getExpression() == stage
+                && path.getParentPath().getLeaf() instanceof MethodInvocationTree) {
+            stage = path.getParentPath().getLeaf();
+            arguments.addAll(((MethodInvocationTree) stage).getArguments());
+            path = path.getParentPath().getParentPath();
+        }
+        return arguments;
+    }
+
+    /** The first method that blocks on I/O or on another thread in a lambda or method reference argument. */
+    private static Optional<Symbol> findBlockingCall(ExpressionTree task, VisitorState state) {
+        if (task.getKind() == Tree.Kind.MEMBER_REFERENCE) {
+            return Optional.ofNullable(ASTHelpers.getSymbol(task)).filter(symbol -> isBlocking(symbol, state));
+        }
+        if (task.getKind() != Tree.Kind.LAMBDA_EXPRESSION) {
+            return Optional.empty();
+        }
+        List<Symbol> blockingCalls = new ArrayList<>();
+        task.accept(new TreeScanner<Void, Void>() {
+            @Override
+            public Void visitMethodInvocation(MethodInvocationTree node, Void unused) {
+                addIfBlocking(ASTHelpers.getSymbol(node));
+                return super.visitMethodInvocation(node, unused);
+            }
+
+            @Override
+            public Void visitMemberReference(MemberReferenceTree node, Void unused) {
+                addIfBlocking(ASTHelpers.getSymbol(node));
+                return super.visitMemberReference(node, unused);
+            }
+
+            @Override
+            public Void visitNewClass(NewClassTree node, Void unused) {
+                // Anonymous class bodies run whenever their methods are called, not necessarily in this task
+                scan(node.getArguments(), null);
+                return null;
+            }
+
+            @Override
+            public Void visitClass(ClassTree node, Void unused) {
+                return null;
+            }
+
+            private void addIfBlocking(Symbol symbol) {
+                if (symbol != null && isBlocking(symbol, state)) {
+                    blockingCalls.add(symbol);
+                }
+            }
+        }, null);
+        return blockingCalls.stream().findFirst();
+    }
+
+    private static boolean isBlocking(Symbol method, VisitorState state) {
+        for (Map.Entry<String, Pattern> blocking : BLOCKING_METHODS.entrySet()) {
+            Type type = CachedTypes.get(blocking.getKey(), state);
+            if (type != null
+                    && blocking.getValue().matcher(method.getSimpleName()).matches()
+                    && ASTHelpers.isSubtype(method.owner.type, type, state)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.auto.service.AutoService;
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.BugPattern.Category;
+import com.google.errorprone.BugPattern.LinkType;
+import com.google.errorprone.BugPattern.SeverityLevel;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.method.MethodMatchers;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+import java.util.regex.Pattern;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+        name = "DangerousUnboundedExecutorUsage",
+        category = Category.JDK,
+        link = "https://github.com/palantir/gradle-baseline#baseline-error-prone-checks",
+        linkType = LinkType.CUSTOM,
+        severity = SeverityLevel.WARNING,
+        summary = "Disallow Executors.newFixedThreadPool and newSingleThreadExecutor, whose work queue is unbounded.")
+public final class DangerousUnboundedExecutorUsage extends MethodInvocationChecker {
+    private static final String ERROR_MESSAGE = "Executors.newFixedThreadPool and newSingleThreadExecutor queue "
+            + "submitted tasks in an unbounded LinkedBlockingQueue. When tasks are submitted faster than the threads "
+            + "complete them, the queue grows until the JVM runs out of memory, and every queued task holds on to "
+            + "the state it captured. Bound the amount of outstanding work instead, for example by limiting "
+            + "submissions with a Semaphore, or by using a ThreadPoolExecutor with a bounded ArrayBlockingQueue and "
+            + "an explicit RejectedExecutionHandler (suppressing DangerousThreadPoolExecutorUsage for it). If the "
+            + "number of tasks is bounded by construction, @SuppressWarnings(\"DangerousUnboundedExecutorUsage\") "
+            + "with a comment explaining the bound.";
+
+    private static final Matcher<ExpressionTree> UNBOUNDED_EXECUTOR = MethodMatchers.staticMethod()
+            .onClass("java.util.concurrent.Executors")
+            .withNameMatching(Pattern.compile("newFixedThreadPool|newSingleThreadExecutor"));
+
+    private static final long serialVersionUID = 1L;
+
+    public DangerousUnboundedExecutorUsage() {
+        super(ImmutableList.of("newFixedThreadPool", "newSingleThreadExecutor"), UNBOUNDED_EXECUTOR);
+    }
+
+    @Override
+    protected Description matchInvocation(MethodInvocationTree tree, VisitorState state) {
+        return buildDescription(tree).setMessage(ERROR_MESSAGE).build();
+    }
+}
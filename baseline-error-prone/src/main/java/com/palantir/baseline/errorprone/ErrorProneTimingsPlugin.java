@@ -0,0 +1,85 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.auto.service.AutoService;
+import com.google.errorprone.ErrorProneTimings;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.Plugin;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import com.sun.tools.javac.api.BasicJavacTask;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Javac plugin writing the time error-prone spent in each check during a compilation, as collected by
+ * {@link ErrorProneTimings}, to a tab separated file of check names and milliseconds.
+ *
+ * <p>Enabled with {@code -Xplugin:BaselineErrorProneTimings <output file>}.
+ */
+@AutoService(Plugin.class)
+public final class ErrorProneTimingsPlugin implements Plugin {
+
+    public static final String NAME = "BaselineErrorProneTimings";
+    public static final String INITIALIZATION = "(initialization)";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void init(JavacTask task, String... args) {
+        if (args.length == 0) {
+            throw new IllegalArgumentException(NAME + " requires the output file as argument");
+        }
+        // Plugin arguments are split on spaces
+        Path output = Paths.get(String.join(" ", args));
+        ErrorProneTimings timings = ErrorProneTimings.instance(((BasicJavacTask) task).getContext());
+        task.addTaskListener(new TaskListener() {
+            @Override
+            public void finished(TaskEvent event) {
+                if (event.getKind() == TaskEvent.Kind.COMPILATION) {
+                    write(output, timings);
+                }
+            }
+        });
+    }
+
+    private static void write(Path output, ErrorProneTimings timings) {
+        List<String> lines = new ArrayList<>();
+        lines.add(INITIALIZATION + "\t" + timings.initializationTime().toMillis());
+        for (Map.Entry<String, Duration> timing : timings.timings().entrySet()) {
+            lines.add(timing.getKey() + "\t" + timing.getValue().toMillis());
+        }
+        try {
+            Files.createDirectories(output.toAbsolutePath().getParent());
+            Files.write(output, lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.auto.service.AutoService;
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.BugPattern.Category;
+import com.google.errorprone.BugPattern.LinkType;
+import com.google.errorprone.BugPattern.SeverityLevel;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.fixes.SuggestedFix;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.method.MethodMatchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+import java.util.List;
+import java.util.regex.Pattern;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+        name = "LiteralRegexArgument",
+        category = Category.ONE_OFF,
+        link = "https://github.com/palantir/gradle-baseline#baseline-error-prone-checks",
+        linkType = LinkType.CUSTOM,
+        severity = SeverityLevel.WARNING,
+        summary = "String.replaceAll, replaceFirst and split compile their argument as a regex; "
+                + "use String.replace or a single character split for literal strings.")
+public final class LiteralRegexArgument extends MethodInvocationChecker {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Characters with a special meaning in a regex, when not escaped. */
+    private static final String METACHARACTERS = ".$|()[]{}^?*+\\";
+
+    private static final Matcher<ExpressionTree> STRING_REGEX_METHOD = MethodMatchers.instanceMethod()
+            .onExactClass("java.lang.String")
+            .withNameMatching(Pattern.compile("replaceAll|replaceFirst|split"));
+
+    public LiteralRegexArgument() {
+        super(ImmutableList.of("replaceAll", "replaceFirst", "split"), STRING_REGEX_METHOD);
+    }
+
+    @Override
+    protected Description matchInvocation(MethodInvocationTree tree, VisitorState state) {
+        List<? extends ExpressionTree> args = tree.getArguments();
+        String regex = ASTHelpers.constValue(args.get(0), String.class);
+        String literal = regex == null ? null : literalOf(regex);
+        if (literal == null || literal.isEmpty()) {
+            return Description.NO_MATCH;
+        }
+
+        String method = ASTHelpers.getSymbol(tree).getSimpleName().toString();
+        String receiver = state.getSourceForNode(ASTHelpers.getReceiver(tree));
+        switch (method) {
+            case "split":
+                if (!hasRegexFreeAlternative(method, regex)) {
+                    return Description.NO_MATCH;
+                }
+                String splitRegex = PreferStaticRegexPattern.isFastPathSplit(literal) ? literal : "\\" + literal;
+                return buildDescription(tree)
+                        .setMessage("String.split only avoids compiling a regex for a single character, "
+                                + "or a single escaped character; use " + javaString(splitRegex))
+                        .addFix(SuggestedFix.replace(args.get(0), javaString(splitRegex)))
+                        .build();
+            case "replaceAll":
+                Description.Builder description = buildDescription(tree)
+                        .setMessage("String.replaceAll compiles its argument as a regex; "
+                                + "use String.replace to replace a literal string");
+                String replacement = ASTHelpers.constValue(args.get(1), String.class);
+                // In replaceAll, '$' and '\' in the replacement refer to groups and escape characters
+                if (replacement != null && replacement.indexOf('$') < 0 && replacement.indexOf('\\') < 0) {
+                    description.addFix(SuggestedFix.replace(tree, receiver + ".replace("
+                            + literalArguments(literal, replacement) + ")"));
+                }
+                return description.build();
+            default:
+                return buildDescription(tree)
+                        .setMessage("String.replaceFirst compiles its argument as a regex although it is a literal "
+                                + "string; use indexOf and substring, or a static final Pattern")
+                        .build();
+        }
+    }
+
+    /**
+     * Whether String {@code method}, called with the constant {@code regex}, can be replaced by a call that doesn't
+     * compile a regex: {@code replaceAll} with a literal by {@code replace}, and {@code split} with a single literal
+     * character by its fast path.
+     */
+    static boolean hasRegexFreeAlternative(String method, String regex) {
+        String literal = literalOf(regex);
+        if (literal == null || literal.isEmpty()) {
+            return false;
+        }
+        switch (method) {
+            case "replaceAll":
+                return true;
+            case "split":
+                // Multi-character literals have no regex-free equivalent in the JDK
+                return literal.length() == 1 && !PreferStaticRegexPattern.isFastPathSplit(regex);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * The string a regex matches if it only matches that literal string, that is if it has no metacharacters other
+     * than escaped characters which aren't letters or digits, and character classes of a single such character like
+     * {@code [.]}; otherwise null.
+     */
+    static String literalOf(String regex) {
+        StringBuilder literal = new StringBuilder(regex.length());
+        for (int i = 0; i < regex.length(); i++) {
+            char character = regex.charAt(i);
+            if (character == '\\') {
+                if (!isEscapedLiteral(regex, i)) {
+                    return null;
+                }
+                literal.append(regex.charAt(++i));
+            } else if (character == '[') {
+                int end = regex.indexOf(']', i + 2);
+                boolean singleCharacter = end == i + 2 && "^[]&\\".indexOf(regex.charAt(i + 1)) < 0;
+                if (!singleCharacter && !(end == i + 3 && isEscapedLiteral(regex, i + 1))) {
+                    return null;
+                }
+                literal.append(regex.charAt(end - 1));
+                i = end;
+            } else if (METACHARACTERS.indexOf(character) >= 0) {
+                return null;
+            } else {
+                literal.append(character);
+            }
+        }
+        return literal.toString();
+    }
+
+    private static boolean isEscapedLiteral(String regex, int index) {
+        return regex.charAt(index) == '\\'
+                && index + 1 < regex.length()
+                && !Character.isLetterOrDigit(regex.charAt(index + 1));
+    }
+
+    /**
+     * Arguments of String.replace: chars when both are single characters, as {@code replace(char, char)} doesn't use
+     * a regex on Java 8 either, strings otherwise.
+     */
+    private static String literalArguments(String target, String replacement) {
+        if (target.length() == 1 && replacement.length() == 1) {
+            return javaChar(target.charAt(0)) + ", " + javaChar(replacement.charAt(0));
+        }
+        return javaString(target) + ", " + javaString(replacement);
+    }
+
+    private static String javaString(String value) {
+        StringBuilder literal = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char character = value.charAt(i);
+            literal.append(character == '\'' ? "'" : escape(character));
+        }
+        return literal.append('"').toString();
+    }
+
+    private static String javaChar(char value) {
+        return "'" + (value == '"' ? "\"" : escape(value)) + "'";
+    }
+
+    private static String escape(char character) {
+        switch (character) {
+            case '"':
+                return "\\\"";
+            case '\'':
+                return "\\'";
+            case '\\':
+                return "\\\\";
+            case '\t':
+                return "\\t";
+            case '\n':
+                return "\\n";
+            case '\r':
+                return "\\r";
+            default:
+                return character < 0x20 || character == 0x7f
+                        ? String.format("\\u%04x", (int) character)
+                        : String.valueOf(character);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+import java.util.Collection;
+
+/**
+ * Base class for checks of invocations of a few known methods. Invocations are first rejected by their simple method
+ * name, which only takes a few identity comparisons of javac names (see {@link MethodNames}); the method matcher,
+ * which resolves symbols and types, only runs on invocations whose name matches.
+ */
+abstract class MethodInvocationChecker extends BugChecker implements BugChecker.MethodInvocationTreeMatcher {
+
+    private final MethodNames methodNames;
+    private final Matcher<ExpressionTree> methodMatcher;
+
+    /**
+     * Creates a check of the invocations matched by {@code methodMatcher}, which must only match methods named one of
+     * {@code methodNames}.
+     */
+    protected MethodInvocationChecker(Collection<String> methodNames, Matcher<ExpressionTree> methodMatcher) {
+        this.methodNames = MethodNames.of(methodNames);
+        this.methodMatcher = methodMatcher;
+    }
+
+    /** Matches an invocation of one of the methods this check is about. */
+    protected abstract Description matchInvocation(MethodInvocationTree tree, VisitorState state);
+
+    @Override
+    public final Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+        if (!methodNames.matches(tree, state) || !methodMatcher.matches(tree, state)) {
+            return Description.NO_MATCH;
+        }
+        return matchInvocation(tree, state);
+    }
+}
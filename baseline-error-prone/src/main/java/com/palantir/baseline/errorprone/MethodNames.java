@@ -0,0 +1,97 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.VisitorState;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.tools.javac.util.Context;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import javax.lang.model.element.Name;
+
+/**
+ * Simple method names that invocations are checked against before anything is resolved. javac interns names per
+ * compilation, so the names are looked up once per compilation, like {@link CachedTypes}, and then compared by
+ * identity, rather than converting the name of every invocation into a string.
+ */
+final class MethodNames implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ImmutableList<String> names;
+    private transient volatile Interned interned;
+
+    private MethodNames(ImmutableList<String> names) {
+        this.names = names;
+    }
+
+    static MethodNames of(String... names) {
+        return of(Arrays.asList(names));
+    }
+
+    static MethodNames of(Collection<String> names) {
+        return new MethodNames(ImmutableList.copyOf(names));
+    }
+
+    /** Whether the simple name of the method invoked by {@code tree} is one of these names. */
+    boolean matches(MethodInvocationTree tree, VisitorState state) {
+        ExpressionTree methodSelect = tree.getMethodSelect();
+        Name name;
+        switch (methodSelect.getKind()) {
+            case IDENTIFIER:
+                name = ((IdentifierTree) methodSelect).getName();
+                break;
+            case MEMBER_SELECT:
+                name = ((MemberSelectTree) methodSelect).getIdentifier();
+                break;
+            default:
+                return false;
+        }
+        Name[] internedNames = interned(state).names;
+        for (int i = 0; i < internedNames.length; i++) {
+            if (internedNames[i] == name) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Interned interned(VisitorState state) {
+        Interned current = interned;
+        // Concurrent compilations in the same JVM share the checks, and each have their own names
+        if (current == null || current.context != state.context) {
+            current = new Interned(state.context, names.stream().map(state::getName).toArray(Name[]::new));
+            interned = current;
+        }
+        return current;
+    }
+
+    private static final class Interned {
+        private final Context context;
+        private final Name[] names;
+
+        Interned(Context context, Name[] names) {
+            this.context = context;
+            this.names = names;
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package com.palantir.baseline.errorprone;
 
 import com.google.auto.service.AutoService;
+import com.google.common.collect.ImmutableList;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.BugPattern.Category;
 import com.google.errorprone.BugPattern.SeverityLevel;
@@ -38,10 +39,13 @@ import java.util.regex.Pattern;
         category = Category.ONE_OFF,
         severity = SeverityLevel.ERROR,
         summary = "Allow only constant messages to Preconditions.checkX() methods")
-public final class PreconditionsConstantMessage extends BugChecker implements BugChecker.MethodInvocationTreeMatcher {
+public final class PreconditionsConstantMessage extends MethodInvocationChecker {
 
     private static final long serialVersionUID = 1L;
 
+    static final ImmutableList<String> PRECONDITIONS_METHOD_NAMES =
+            ImmutableList.of("checkArgument", "checkState", "checkNotNull");
+
     private static final Matcher<ExpressionTree> PRECONDITIONS_METHOD =
             Matchers.anyOf(
                     MethodMatchers.staticMethod()
@@ -51,12 +55,12 @@ public final class PreconditionsConstantMessage extends BugChecker implements Bu
     private final Matcher<ExpressionTree> compileTimeConstExpressionMatcher =
             new CompileTimeConstantExpressionMatcher();
 
-    @Override
-    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
-        if (!PRECONDITIONS_METHOD.matches(tree, state)) {
-            return Description.NO_MATCH;
-        }
+    public PreconditionsConstantMessage() {
+        super(PRECONDITIONS_METHOD_NAMES, PRECONDITIONS_METHOD);
+    }
 
+    @Override
+    protected Description matchInvocation(MethodInvocationTree tree, VisitorState state) {
         List<? extends ExpressionTree> args = tree.getArguments();
         if (args.size() <= 1) {
             return Description.NO_MATCH;
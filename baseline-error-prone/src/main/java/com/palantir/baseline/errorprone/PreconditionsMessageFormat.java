@@ -17,7 +17,6 @@
 package com.palantir.baseline.errorprone;
 
 import com.google.errorprone.VisitorState;
-import com.google.errorprone.bugpatterns.BugChecker;
 import com.google.errorprone.matchers.Description;
 import com.google.errorprone.matchers.Matcher;
 import com.sun.source.tree.ExpressionTree;
@@ -26,22 +25,16 @@ import com.sun.source.tree.MethodInvocationTree;
 import com.sun.source.tree.Tree;
 import java.util.List;
 
-abstract class PreconditionsMessageFormat extends BugChecker implements BugChecker.MethodInvocationTreeMatcher {
-
-    private final Matcher<ExpressionTree> methodMatcher;
+abstract class PreconditionsMessageFormat extends MethodInvocationChecker {
 
     protected PreconditionsMessageFormat(Matcher<ExpressionTree> methodMatcher) {
-        this.methodMatcher = methodMatcher;
+        super(PreconditionsConstantMessage.PRECONDITIONS_METHOD_NAMES, methodMatcher);
     }
 
     protected abstract Description matchMessageFormat(MethodInvocationTree tree, String message, VisitorState state);
 
     @Override
-    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
-        if (!methodMatcher.matches(tree, state)) {
-            return Description.NO_MATCH;
-        }
-
+    protected final Description matchInvocation(MethodInvocationTree tree, VisitorState state) {
         List<? extends ExpressionTree> args = tree.getArguments();
         if (args.size() <= 1) {
             return Description.NO_MATCH;
@@ -0,0 +1,310 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.auto.service.AutoService;
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.BugPattern.Category;
+import com.google.errorprone.BugPattern.LinkType;
+import com.google.errorprone.BugPattern.SeverityLevel;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.fixes.SuggestedFix;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.matchers.method.MethodMatchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.google.errorprone.util.SourceCodeEscapers;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.EnhancedForLoopTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.ForLoopTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.code.Flags;
+import com.sun.tools.javac.code.Symbol;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+        name = "PreferStaticRegexPattern",
+        category = Category.ONE_OFF,
+        link = "https://github.com/palantir/gradle-baseline#baseline-error-prone-checks",
+        linkType = LinkType.CUSTOM,
+        severity = SeverityLevel.WARNING,
+        summary = "Constant regular expressions should be compiled once into a static final Pattern, "
+                + "not on every method call or loop iteration.")
+public final class PreferStaticRegexPattern extends MethodInvocationChecker {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Matcher<ExpressionTree> PATTERN_COMPILE = MethodMatchers.staticMethod()
+            .onClass("java.util.regex.Pattern")
+            .named("compile");
+
+    private static final Matcher<ExpressionTree> STRING_REGEX_METHOD = MethodMatchers.instanceMethod()
+            .onExactClass("java.lang.String")
+            .withNameMatching(Pattern.compile("matches|replaceAll|replaceFirst|split"));
+
+    public PreferStaticRegexPattern() {
+        super(ImmutableList.of("compile", "matches", "replaceAll", "replaceFirst", "split"),
+                Matchers.anyOf(PATTERN_COMPILE, STRING_REGEX_METHOD));
+    }
+
+    @Override
+    protected Description matchInvocation(MethodInvocationTree tree, VisitorState state) {
+        List<? extends ExpressionTree> args = tree.getArguments();
+        String regex = args.isEmpty() ? null : ASTHelpers.constValue(args.get(0), String.class);
+        if (regex == null) {
+            return Description.NO_MATCH;
+        }
+
+        String method = ASTHelpers.getSymbol(tree).getSimpleName().toString();
+        boolean patternCompile = method.equals("compile");
+        if (patternCompile) {
+            // Flags must be constant as well for the pattern to be hoisted
+            if (args.size() > 1 && ASTHelpers.constValue(args.get(1)) == null) {
+                return Description.NO_MATCH;
+            }
+            if (!isInMethod(state.getPath())) {
+                return Description.NO_MATCH;
+            }
+        } else if ((method.equals("split") && isFastPathSplit(regex))
+                || LiteralRegexArgument.hasRegexFreeAlternative(method, regex)
+                || !isInLoop(state.getPath())) {
+            // Literal regexes are better not compiled at all, as LiteralRegexArgument suggests
+            return Description.NO_MATCH;
+        }
+
+        Description.Builder description = buildDescription(tree).setMessage(patternCompile
+                ? "Pattern.compile with a constant regex recompiles it on every call; "
+                        + "use a static final Pattern instead"
+                : "String." + method + " compiles its regex on every loop iteration; "
+                        + "use a static final Pattern instead");
+        ClassTree hostClass = staticFieldHost(state.getPath());
+        Tree firstMember = hostClass == null ? null : firstDeclaredMember(hostClass);
+        if (firstMember != null) {
+            description.addFix(hoistFix(tree, method, regex, hostClass, firstMember, state));
+        }
+        return description.build();
+    }
+
+    /**
+     * Whether {@link String#split} avoids compiling a pattern for {@code regex}: it splits on single characters that
+     * aren't regex metacharacters, and on backslash-escaped characters that aren't ASCII letters or digits, directly.
+     */
+    static boolean isFastPathSplit(String regex) {
+        if (regex.length() == 1) {
+            return ".$|()[{^?*+\\".indexOf(regex.charAt(0)) < 0;
+        }
+        if (regex.length() == 2 && regex.charAt(0) == '\\') {
+            char escaped = regex.charAt(1);
+            boolean asciiLetterOrDigit = (escaped >= '0' && escaped <= '9')
+                    || (escaped >= 'a' && escaped <= 'z')
+                    || (escaped >= 'A' && escaped <= 'Z');
+            return !asciiLetterOrDigit && !Character.isSurrogate(escaped);
+        }
+        return false;
+    }
+
+    /** Whether the path is within a method or constructor body, rather than in a field or static initializer. */
+    private static boolean isInMethod(TreePath path) {
+        for (TreePath current = path; current != null; current = current.getParentPath()) {
+            Tree.Kind kind = current.getLeaf().getKind();
+            if (kind == Tree.Kind.METHOD) {
+                return true;
+            }
+            if (kind == Tree.Kind.CLASS || kind == Tree.Kind.ENUM || kind == Tree.Kind.INTERFACE) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /** Whether the path is within a part of a loop that is evaluated on every iteration, within the same method. */
+    private static boolean isInLoop(TreePath path) {
+        Tree previous = path.getLeaf();
+        for (TreePath current = path.getParentPath(); current != null; current = current.getParentPath()) {
+            Tree loop = current.getLeaf();
+            switch (loop.getKind()) {
+                case WHILE_LOOP:
+                case DO_WHILE_LOOP:
+                    return true;
+                case FOR_LOOP:
+                    if (!((ForLoopTree) loop).getInitializer().contains(previous)) {
+                        return true;
+                    }
+                    break;
+                case ENHANCED_FOR_LOOP:
+                    if (((EnhancedForLoopTree) loop).getStatement() == previous) {
+                        return true;
+                    }
+                    break;
+                case METHOD:
+                case CLASS:
+                case ENUM:
+                case INTERFACE:
+                    return false;
+                default:
+                    break;
+            }
+            previous = loop;
+        }
+        return false;
+    }
+
+    /**
+     * The innermost class enclosing the path that can declare a private static field: a top-level or static nested
+     * class. Interfaces and enums are left alone, as the field would need to go after the enum constants.
+     */
+    private static ClassTree staticFieldHost(TreePath path) {
+        for (TreePath current = path; current != null; current = current.getParentPath()) {
+            if (current.getLeaf() instanceof ClassTree) {
+                ClassTree classTree = (ClassTree) current.getLeaf();
+                Symbol.ClassSymbol symbol = ASTHelpers.getSymbol(classTree);
+                if (symbol == null || symbol.getKind() != ElementKind.CLASS) {
+                    return null;
+                }
+                if (symbol.getNestingKind() == NestingKind.TOP_LEVEL
+                        || (symbol.getNestingKind() == NestingKind.MEMBER
+                                && symbol.getModifiers().contains(Modifier.STATIC))) {
+                    return classTree;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static SuggestedFix hoistFix(MethodInvocationTree tree, String method, String regex, ClassTree hostClass,
+            Tree firstMember, VisitorState state) {
+        String name = constantName(regex, hostClass);
+        List<? extends ExpressionTree> args = tree.getArguments();
+        String compileArgs = method.equals("compile")
+                ? args.stream().map(arg -> staticSource(arg, state)).collect(Collectors.joining(", "))
+                : staticSource(args.get(0), state);
+        String field = "private static final Pattern " + name + " = Pattern.compile(" + compileArgs + ");\n";
+
+        String replacement;
+        if (method.equals("compile")) {
+            replacement = name;
+        } else {
+            String receiver = state.getSourceForNode(ASTHelpers.getReceiver(tree));
+            String rest = args.stream().skip(1).map(state::getSourceForNode).collect(Collectors.joining(", "));
+            if (method.equals("split")) {
+                replacement = name + ".split(" + receiver + (rest.isEmpty() ? "" : ", " + rest) + ")";
+            } else {
+                replacement = name + ".matcher(" + receiver + ")." + method + "(" + rest + ")";
+            }
+        }
+        return SuggestedFix.builder()
+                .addImport("java.util.regex.Pattern")
+                .prefixWith(firstMember, field)
+                .replace(tree, replacement)
+                .build();
+    }
+
+    /**
+     * The first member written in the source of the class. The default constructor javac generates comes first in
+     * the members but starts at the {@code class} keyword, so inserting before it would put the field outside the
+     * class.
+     */
+    private static Tree firstDeclaredMember(ClassTree hostClass) {
+        return hostClass.getMembers().stream()
+                .filter(member -> !isGeneratedConstructor(member))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static boolean isGeneratedConstructor(Tree member) {
+        Symbol symbol = member instanceof MethodTree ? ASTHelpers.getSymbol((MethodTree) member) : null;
+        return symbol != null && (symbol.flags() & Flags.GENERATEDCONSTR) != 0;
+    }
+
+    /**
+     * Source of a constant argument that can be used in a static field initializer: its own source, unless it refers
+     * to local variables, parameters or instance fields, such as a local {@code final String separator = ","}, in
+     * which case its value as a literal.
+     */
+    private static String staticSource(ExpressionTree argument, VisitorState state) {
+        Boolean referencesInstanceState = argument.accept(new TreeScanner<Boolean, Void>() {
+            @Override
+            public Boolean visitIdentifier(IdentifierTree node, Void unused) {
+                return isNonStaticVariable(ASTHelpers.getSymbol(node));
+            }
+
+            @Override
+            public Boolean visitMemberSelect(MemberSelectTree node, Void unused) {
+                return isNonStaticVariable(ASTHelpers.getSymbol(node)) || super.visitMemberSelect(node, unused);
+            }
+
+            @Override
+            public Boolean reduce(Boolean first, Boolean second) {
+                return Boolean.TRUE.equals(first) || Boolean.TRUE.equals(second);
+            }
+        }, null);
+        if (!Boolean.TRUE.equals(referencesInstanceState)) {
+            return state.getSourceForNode(argument);
+        }
+        Object value = ASTHelpers.constValue(argument);
+        return value instanceof String
+                ? "\"" + SourceCodeEscapers.javaCharEscaper().escape((String) value) + "\""
+                : String.valueOf(value);
+    }
+
+    private static boolean isNonStaticVariable(Symbol symbol) {
+        return symbol instanceof Symbol.VarSymbol && !symbol.isStatic();
+    }
+
+    /** Derives a constant name from the letters and digits of the regex, unique among the fields of the class. */
+    static String constantName(String regex, ClassTree hostClass) {
+        StringBuilder base = new StringBuilder();
+        for (int i = 0; i < regex.length() && base.length() < 30; i++) {
+            char character = regex.charAt(i);
+            if (character < 128 && Character.isLetterOrDigit(character)) {
+                base.append(Character.toUpperCase(character));
+            } else if (base.length() > 0 && base.charAt(base.length() - 1) != '_') {
+                base.append('_');
+            }
+        }
+        String words = base.toString().replaceAll("^_+|_+$", "");
+        String name = words.isEmpty() || Character.isDigit(words.charAt(0)) ? "PATTERN" : words + "_PATTERN";
+
+        Set<String> fields = hostClass.getMembers().stream()
+                .filter(VariableTree.class::isInstance)
+                .map(member -> ((VariableTree) member).getName().toString())
+                .collect(Collectors.toSet());
+        String unique = name;
+        for (int suffix = 2; fields.contains(unique); suffix++) {
+            unique = name + "_" + suffix;
+        }
+        return unique;
+    }
+}
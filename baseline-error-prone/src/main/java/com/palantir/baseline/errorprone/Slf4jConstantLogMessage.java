@@ -26,13 +26,9 @@ import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
 import com.google.errorprone.matchers.CompileTimeConstantExpressionMatcher;
 import com.google.errorprone.matchers.Description;
 import com.google.errorprone.matchers.Matcher;
-import com.google.errorprone.matchers.Matchers;
-import com.google.errorprone.matchers.method.MethodMatchers;
-import com.google.errorprone.util.ASTHelpers;
 import com.sun.source.tree.ExpressionTree;
 import com.sun.source.tree.MethodInvocationTree;
-import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Optional;
 
 @AutoService(BugChecker.class)
 @BugPattern(
@@ -46,30 +42,14 @@ public final class Slf4jConstantLogMessage extends BugChecker implements MethodI
 
     private static final long serialVersionUID = 1L;
 
-    private static final Matcher<ExpressionTree> LOG_METHOD =
-            Matchers.anyOf(
-                    MethodMatchers.instanceMethod()
-                            .onDescendantOf("org.slf4j.Logger")
-                            .withNameMatching(Pattern.compile("trace|debug|info|warn|error")));
-
     private final Matcher<ExpressionTree> compileTimeConstExpressionMatcher =
             new CompileTimeConstantExpressionMatcher();
 
     @Override
     public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
-        if (!LOG_METHOD.matches(tree, state)) {
-            return Description.NO_MATCH;
-        }
-
-        List<? extends ExpressionTree> args = tree.getArguments();
-        ExpressionTree messageArg = ASTHelpers.isCastable(
-                ASTHelpers.getType(tree.getArguments().get(0)),
-                state.getTypeFromString("org.slf4j.Marker"),
-                state)
-                ? args.get(1)
-                : args.get(0);
-
-        if (compileTimeConstExpressionMatcher.matches(messageArg, state)) {
+        Optional<Slf4jLogCall> logCall = Slf4jLogCall.of(tree, state);
+        if (!logCall.isPresent()
+                || compileTimeConstExpressionMatcher.matches(logCall.get().messageArgument(), state)) {
             return Description.NO_MATCH;
         }
 
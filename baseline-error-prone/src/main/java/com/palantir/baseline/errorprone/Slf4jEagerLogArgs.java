@@ -0,0 +1,258 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.auto.service.AutoService;
+import com.google.common.collect.ImmutableMap;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.BugPattern.Category;
+import com.google.errorprone.BugPattern.SeverityLevel;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
+import com.google.errorprone.fixes.SuggestedFix;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.method.MethodMatchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.BinaryTree;
+import com.sun.source.tree.BlockTree;
+import com.sun.source.tree.ConditionalExpressionTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IfTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.ParenthesizedTree;
+import com.sun.source.tree.StatementTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.TypeCastTree;
+import com.sun.source.tree.UnaryTree;
+import com.sun.source.util.TreePath;
+import com.sun.tools.javac.code.Symbol;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+        name = "Slf4jEagerLogArgs",
+        category = Category.ONE_OFF,
+        link = "https://github.com/palantir/gradle-baseline#baseline-error-prone-checks",
+        linkType = BugPattern.LinkType.CUSTOM,
+        severity = SeverityLevel.WARNING,
+        summary = "slf4j trace and debug arguments that are expensive to compute should be guarded by "
+                + "isTraceEnabled or isDebugEnabled.")
+public final class Slf4jEagerLogArgs extends BugChecker implements MethodInvocationTreeMatcher {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final MethodNames GUARDED_LEVELS = MethodNames.of("trace", "debug");
+
+    private static final Matcher<ExpressionTree> ARG_FACTORY = MethodMatchers.staticMethod()
+            .onClassAny("com.palantir.logsafe.SafeArg", "com.palantir.logsafe.UnsafeArg")
+            .named("of");
+
+    private static final Pattern GETTER = Pattern.compile("(get|is|has)[A-Z].*|size|length|name|ordinal");
+
+    /** The level checks that guard each level: trace is finer than debug, so isTraceEnabled implies debug. */
+    private static final ImmutableMap<String, MethodNames> LEVEL_CHECKS = ImmutableMap.of(
+            "trace", MethodNames.of("isTraceEnabled"),
+            "debug", MethodNames.of("isDebugEnabled", "isTraceEnabled"));
+
+    @Override
+    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+        if (!GUARDED_LEVELS.matches(tree, state)) {
+            return Description.NO_MATCH;
+        }
+        Optional<Slf4jLogCall> logCall = Slf4jLogCall.of(tree, state);
+        if (!logCall.isPresent()) {
+            return Description.NO_MATCH;
+        }
+
+        List<? extends ExpressionTree> args = tree.getArguments();
+        List<Integer> eagerArgs = new ArrayList<>();
+        for (int i = logCall.get().firstParameterIndex(); i <= logCall.get().lastParameterIndex(); i++) {
+            if (!isCheap(args.get(i), state)) {
+                eagerArgs.add(i);
+            }
+        }
+        String level = ASTHelpers.getSymbol(tree).getSimpleName().toString();
+        if (eagerArgs.isEmpty() || isGuarded(tree, level, state)) {
+            return Description.NO_MATCH;
+        }
+
+        String guard = "is" + Character.toUpperCase(level.charAt(0)) + level.substring(1) + "Enabled";
+        Description.Builder description = buildDescription(tree)
+                .setMessage("slf4j " + level + " log statement computes arguments " + eagerArgs
+                        + " even when " + level + " logging is disabled; guard it with " + guard + "()");
+
+        ExpressionTree logger = ASTHelpers.getReceiver(tree);
+        Tree statement = state.getPath().getParentPath().getLeaf();
+        if (logger != null
+                && statement.getKind() == Tree.Kind.EXPRESSION_STATEMENT
+                && isCheap(logger, state)) {
+            String marker = logCall.get().hasMarker() ? state.getSourceForNode(args.get(0)) : "";
+            description.addFix(SuggestedFix.builder()
+                    .prefixWith(statement, "if (" + state.getSourceForNode(logger) + "." + guard + "(" + marker
+                            + ")) {\n")
+                    .postfixWith(statement, "\n}")
+                    .build());
+        }
+        return description.build();
+    }
+
+    /**
+     * Whether evaluating an argument is about as cheap as skipping it: constants, variables, field accesses, getters,
+     * and logsafe {@code Arg}s of those. String concatenation, {@code toString}, formatting, object creation, and most
+     * method calls are not.
+     */
+    private static boolean isCheap(ExpressionTree expression, VisitorState state) {
+        if (expression == null || ASTHelpers.constValue(expression) != null) {
+            return true;
+        }
+        switch (expression.getKind()) {
+            case IDENTIFIER:
+            case MEMBER_SELECT:
+            case NULL_LITERAL:
+                return true;
+            case PARENTHESIZED:
+                return isCheap(((ParenthesizedTree) expression).getExpression(), state);
+            case TYPE_CAST:
+                return isCheap(((TypeCastTree) expression).getExpression(), state);
+            case CONDITIONAL_EXPRESSION:
+                ConditionalExpressionTree conditional = (ConditionalExpressionTree) expression;
+                return isCheap(conditional.getCondition(), state)
+                        && isCheap(conditional.getTrueExpression(), state)
+                        && isCheap(conditional.getFalseExpression(), state);
+            case METHOD_INVOCATION:
+                MethodInvocationTree invocation = (MethodInvocationTree) expression;
+                if (ARG_FACTORY.matches(invocation, state)) {
+                    return invocation.getArguments().stream().allMatch(arg -> isCheap(arg, state));
+                }
+                return invocation.getArguments().isEmpty()
+                        && GETTER.matcher(ASTHelpers.getSymbol(invocation).getSimpleName()).matches()
+                        && isCheap(ASTHelpers.getReceiver(invocation), state);
+            default:
+                if (expression instanceof UnaryTree) {
+                    return isCheap(((UnaryTree) expression).getExpression(), state);
+                }
+                if (expression instanceof BinaryTree) {
+                    BinaryTree binary = (BinaryTree) expression;
+                    return !ASTHelpers.isSameType(ASTHelpers.getType(binary), state.getSymtab().stringType, state)
+                            && isCheap(binary.getLeftOperand(), state)
+                            && isCheap(binary.getRightOperand(), state);
+                }
+                return false;
+        }
+    }
+
+    /**
+     * Whether the log call at the current path only runs when its level is enabled on its logger: inside the then
+     * branch of an {@code if} whose condition checks the level, or after an {@code if} that returns or throws unless
+     * it is enabled.
+     */
+    private static boolean isGuarded(MethodInvocationTree logCall, String level, VisitorState state) {
+        Tree previous = state.getPath().getLeaf();
+        for (TreePath current = state.getPath().getParentPath(); current != null; current = current.getParentPath()) {
+            Tree leaf = current.getLeaf();
+            switch (leaf.getKind()) {
+                case IF:
+                    IfTree ifTree = (IfTree) leaf;
+                    if (ifTree.getThenStatement() == previous
+                            && checksLevel(ifTree.getCondition(), logCall, level, state)) {
+                        return true;
+                    }
+                    break;
+                case BLOCK:
+                    for (StatementTree statement : ((BlockTree) leaf).getStatements()) {
+                        if (statement == previous) {
+                            break;
+                        }
+                        if (isEarlyExitUnlessLevel(statement, logCall, level, state)) {
+                            return true;
+                        }
+                    }
+                    break;
+                case METHOD:
+                case CLASS:
+                case LAMBDA_EXPRESSION:
+                    return false;
+                default:
+                    break;
+            }
+            previous = leaf;
+        }
+        return false;
+    }
+
+    /** Whether {@code statement} is {@code if (!condition) return;}, or throws, and the condition checks the level. */
+    private static boolean isEarlyExitUnlessLevel(
+            StatementTree statement, MethodInvocationTree logCall, String level, VisitorState state) {
+        if (statement.getKind() != Tree.Kind.IF || ((IfTree) statement).getElseStatement() != null) {
+            return false;
+        }
+        IfTree ifTree = (IfTree) statement;
+        ExpressionTree condition = stripParentheses(ifTree.getCondition());
+        if (condition.getKind() != Tree.Kind.LOGICAL_COMPLEMENT
+                || !checksLevel(((UnaryTree) condition).getExpression(), logCall, level, state)) {
+            return false;
+        }
+        StatementTree exit = ifTree.getThenStatement();
+        if (exit.getKind() == Tree.Kind.BLOCK) {
+            List<? extends StatementTree> statements = ((BlockTree) exit).getStatements();
+            exit = statements.isEmpty() ? exit : statements.get(statements.size() - 1);
+        }
+        return exit.getKind() == Tree.Kind.RETURN || exit.getKind() == Tree.Kind.THROW;
+    }
+
+    /**
+     * Whether {@code condition} can only be true when {@code level} is enabled on the logger of {@code logCall}: it
+     * is, or has as one of its {@code &&} operands, a call of the {@code isXEnabled} method of that logger for the
+     * level or a finer one. Checks under {@code ||} or {@code !} don't count.
+     */
+    private static boolean checksLevel(
+            ExpressionTree condition, MethodInvocationTree logCall, String level, VisitorState state) {
+        ExpressionTree expression = stripParentheses(condition);
+        if (expression.getKind() == Tree.Kind.CONDITIONAL_AND) {
+            BinaryTree and = (BinaryTree) expression;
+            return checksLevel(and.getLeftOperand(), logCall, level, state)
+                    || checksLevel(and.getRightOperand(), logCall, level, state);
+        }
+        if (expression.getKind() != Tree.Kind.METHOD_INVOCATION) {
+            return false;
+        }
+        MethodInvocationTree check = (MethodInvocationTree) expression;
+        return LEVEL_CHECKS.get(level).matches(check, state)
+                && sameLogger(ASTHelpers.getReceiver(check), ASTHelpers.getReceiver(logCall));
+    }
+
+    private static boolean sameLogger(ExpressionTree first, ExpressionTree second) {
+        if (first == null || second == null) {
+            return first == second;
+        }
+        Symbol firstSymbol = ASTHelpers.getSymbol(first);
+        return firstSymbol != null && firstSymbol.equals(ASTHelpers.getSymbol(second));
+    }
+
+    private static ExpressionTree stripParentheses(ExpressionTree expression) {
+        ExpressionTree stripped = expression;
+        while (stripped.getKind() == Tree.Kind.PARENTHESIZED) {
+            stripped = ((ParenthesizedTree) stripped).getExpression();
+        }
+        return stripped;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.method.MethodMatchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.util.Context;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * The facts slf4j checks need about a log call, such as {@code log.info(marker, "message {}", arg, throwable)}:
+ * where the message is, whether a marker precedes it and a throwable ends the arguments, and the argument types. They
+ * are computed once per invocation and shared by all checks that look at the same invocation.
+ */
+final class Slf4jLogCall {
+
+    static final MethodNames LOG_METHOD_NAMES = MethodNames.of("trace", "debug", "info", "warn", "error");
+
+    private static final Matcher<ExpressionTree> LOG_METHOD = MethodMatchers.instanceMethod()
+            .onDescendantOf("org.slf4j.Logger")
+            .withNameMatching(Pattern.compile("trace|debug|info|warn|error"));
+
+    private static final Context.Key<Cache> CACHE_KEY = new Context.Key<>();
+
+    private final MethodInvocationTree tree;
+    private final List<Type> argumentTypes;
+    private final boolean hasMarker;
+    private final boolean lastArgumentCastableToThrowable;
+    private final boolean lastArgumentThrowable;
+
+    private Slf4jLogCall(MethodInvocationTree tree, VisitorState state) {
+        this.tree = tree;
+        List<Type> types = new ArrayList<>(tree.getArguments().size());
+        for (ExpressionTree argument : tree.getArguments()) {
+            types.add(ASTHelpers.getType(argument));
+        }
+        this.argumentTypes = Collections.unmodifiableList(types);
+
+        Type lastType = types.get(types.size() - 1);
+        Type throwableType = state.getSymtab().throwableType;
+        this.hasMarker = ASTHelpers.isCastable(types.get(0), CachedTypes.get("org.slf4j.Marker", state), state);
+        this.lastArgumentCastableToThrowable = ASTHelpers.isCastable(lastType, throwableType, state);
+        this.lastArgumentThrowable = lastType != null && ASTHelpers.isSubtype(lastType, throwableType, state);
+    }
+
+    /** Returns the analysis of {@code tree} if it is a call of an slf4j {@code Logger} log method. */
+    static Optional<Slf4jLogCall> of(MethodInvocationTree tree, VisitorState state) {
+        if (!LOG_METHOD_NAMES.matches(tree, state) || tree.getArguments().isEmpty()) {
+            return Optional.empty();
+        }
+        Map<MethodInvocationTree, Optional<Slf4jLogCall>> calls =
+                Cache.instance(state).calls(state.getPath().getCompilationUnit());
+        Optional<Slf4jLogCall> call = calls.get(tree);
+        if (call == null) {
+            call = LOG_METHOD.matches(tree, state) ? Optional.of(new Slf4jLogCall(tree, state)) : Optional.empty();
+            calls.put(tree, call);
+        }
+        return call;
+    }
+
+    int messageIndex() {
+        return hasMarker ? 1 : 0;
+    }
+
+    ExpressionTree messageArgument() {
+        return tree.getArguments().get(messageIndex());
+    }
+
+    boolean hasMarker() {
+        return hasMarker;
+    }
+
+    /**
+     * Whether the last argument may be a throwable at runtime, in which case slf4j logs it as the exception rather
+     * than as a message parameter.
+     */
+    boolean hasTrailingThrowable() {
+        return lastArgumentCastableToThrowable;
+    }
+
+    /** Whether the last argument is statically known to be a {@link Throwable}. */
+    boolean logsThrowable() {
+        return lastArgumentThrowable;
+    }
+
+    /** Index of the first argument after the message, which is the first message parameter if there is any. */
+    int firstParameterIndex() {
+        return messageIndex() + 1;
+    }
+
+    /** Index of the last message parameter, which is less than {@link #firstParameterIndex()} if there is none. */
+    int lastParameterIndex() {
+        int lastIndex = argumentTypes.size() - 1;
+        return hasTrailingThrowable() ? lastIndex - 1 : lastIndex;
+    }
+
+    /** Types of all arguments, with null elements for arguments whose type couldn't be determined. */
+    List<Type> argumentTypes() {
+        return argumentTypes;
+    }
+
+    /** Analyses of the log calls in the compilation unit being checked, which each check looks up in turn. */
+    private static final class Cache {
+        private CompilationUnitTree compilationUnit;
+        private final Map<MethodInvocationTree, Optional<Slf4jLogCall>> calls = new IdentityHashMap<>();
+
+        private static Cache instance(VisitorState state) {
+            Cache cache = state.context.get(CACHE_KEY);
+            if (cache == null) {
+                cache = new Cache();
+                state.context.put(CACHE_KEY, cache);
+            }
+            return cache;
+        }
+
+        private Map<MethodInvocationTree, Optional<Slf4jLogCall>> calls(CompilationUnitTree unit) {
+            if (unit != compilationUnit) {
+                compilationUnit = unit;
+                calls.clear();
+            }
+            return calls;
+        }
+    }
+}
@@ -25,14 +25,11 @@ import com.google.errorprone.VisitorState;
 import com.google.errorprone.bugpatterns.BugChecker;
 import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
 import com.google.errorprone.matchers.Description;
-import com.google.errorprone.matchers.Matcher;
-import com.google.errorprone.matchers.Matchers;
-import com.google.errorprone.matchers.method.MethodMatchers;
 import com.google.errorprone.util.ASTHelpers;
-import com.sun.source.tree.ExpressionTree;
 import com.sun.source.tree.MethodInvocationTree;
+import com.sun.tools.javac.code.Type;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Optional;
 
 @AutoService(BugChecker.class)
 @BugPattern(
@@ -46,33 +43,18 @@ public final class Slf4jLogsafeArgs extends BugChecker implements MethodInvocati
 
     private static final long serialVersionUID = 1L;
 
-    private static final Matcher<ExpressionTree> LOG_METHOD =
-            Matchers.anyOf(
-                    MethodMatchers.instanceMethod()
-                            .onDescendantOf("org.slf4j.Logger")
-                            .withNameMatching(Pattern.compile("trace|debug|info|warn|error")));
-
     @Override
     public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
-        if (!LOG_METHOD.matches(tree, state)) {
+        Optional<Slf4jLogCall> logCall = Slf4jLogCall.of(tree, state);
+        if (!logCall.isPresent()) {
             return Description.NO_MATCH;
         }
 
-        List<? extends ExpressionTree> allArgs = tree.getArguments();
-        int lastIndex = allArgs.size() - 1;
-        int startArg = ASTHelpers.isCastable(
-                ASTHelpers.getType(allArgs.get(0)),
-                state.getTypeFromString("org.slf4j.Marker"),
-                state) ? 2 : 1;
-        int endArg = ASTHelpers.isCastable(
-                ASTHelpers.getType(allArgs.get(lastIndex)),
-                state.getTypeFromString("java.lang.Throwable"),
-                state) ? lastIndex - 1 : lastIndex;
-
+        List<Type> argumentTypes = logCall.get().argumentTypes();
+        Type argType = CachedTypes.get("com.palantir.logsafe.Arg", state);
         Builder<Integer> badArgsBuilder = new Builder<>();
-        for (int i = startArg; i <= endArg; i++) {
-            if (!ASTHelpers.isCastable(ASTHelpers.getType(allArgs.get(i)),
-                    state.getTypeFromString("com.palantir.logsafe.Arg"), state)) {
+        for (int i = logCall.get().firstParameterIndex(); i <= logCall.get().lastParameterIndex(); i++) {
+            if (!ASTHelpers.isCastable(argumentTypes.get(i), argType, state)) {
                 badArgsBuilder.add(i);
             }
         }
@@ -0,0 +1,256 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.auto.service.AutoService;
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.BugPattern.Category;
+import com.google.errorprone.BugPattern.LinkType;
+import com.google.errorprone.BugPattern.SeverityLevel;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.method.MethodMatchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.AssignmentTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.MemberReferenceTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.ParenthesizedTree;
+import com.sun.source.tree.ReturnTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Symbol.MethodSymbol;
+import com.sun.tools.javac.code.Type;
+import java.util.List;
+import java.util.regex.Pattern;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.type.TypeKind;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+        name = "UnclosedExecutorServiceUsage",
+        category = Category.JDK,
+        link = "https://github.com/palantir/gradle-baseline#baseline-error-prone-checks",
+        linkType = LinkType.CUSTOM,
+        severity = SeverityLevel.WARNING,
+        summary = "Ensure an ExecutorService created in a method is shut down, or handed over to an owner that "
+                + "shuts it down, so that its threads don't leak on every call.")
+public final class UnclosedExecutorServiceUsage extends MethodInvocationChecker
+        implements BugChecker.NewClassTreeMatcher {
+    private static final String ERROR_MESSAGE = "ExecutorService created in a method is never shut down. Its "
+            + "threads outlive the call, so every call leaks another thread pool, until the process runs out of "
+            + "threads or memory. Create the executor once and share it, or call shutdown() in a finally block "
+            + "once its tasks are done. If ownership of the executor is handed over in a way this check can't "
+            + "see, @SuppressWarnings(\"UnclosedExecutorServiceUsage\").";
+
+    private static final ImmutableList<String> FACTORY_NAMES = ImmutableList.of(
+            "newFixedThreadPool", "newCachedThreadPool", "newSingleThreadExecutor", "newScheduledThreadPool",
+            "newSingleThreadScheduledExecutor", "newWorkStealingPool");
+
+    private static final Matcher<ExpressionTree> CREATES_EXECUTOR = MethodMatchers.staticMethod()
+            .onClass("java.util.concurrent.Executors")
+            .withNameMatching(Pattern.compile(String.join("|", FACTORY_NAMES)));
+
+    private static final Pattern RELEASES_EXECUTOR = Pattern.compile("shutdown|shutdownNow|close");
+
+    private static final long serialVersionUID = 1L;
+
+    public UnclosedExecutorServiceUsage() {
+        super(FACTORY_NAMES, CREATES_EXECUTOR);
+    }
+
+    @Override
+    protected Description matchInvocation(MethodInvocationTree tree, VisitorState state) {
+        return isLeaked(state) ? buildDescription(tree).setMessage(ERROR_MESSAGE).build() : Description.NO_MATCH;
+    }
+
+    @Override
+    public Description matchNewClass(NewClassTree tree, VisitorState state) {
+        Type executorService = CachedTypes.get("java.util.concurrent.ExecutorService", state);
+        if (tree.getClassBody() != null
+                || !ASTHelpers.isSubtype(ASTHelpers.getType(tree), executorService, state)
+                || !isLeaked(state)) {
+            return Description.NO_MATCH;
+        }
+        return buildDescription(tree).setMessage(ERROR_MESSAGE).build();
+    }
+
+    /**
+     * Whether the executor created at the current path is never shut down. An executor created in a field
+     * initializer is owned by its class. One created in a method or lambda leaks unless it is shut down, returned,
+     * stored outside a local variable, or passed as an {@code ExecutorService} to a method that may take it over;
+     * passing it as a plain {@code Executor}, as to {@code CompletableFuture.supplyAsync}, only uses it.
+     */
+    private static boolean isLeaked(VisitorState state) {
+        TreePath scope = enclosingScope(state.getPath());
+        if (scope == null) {
+            return false;
+        }
+
+        Tree previous = state.getPath().getLeaf();
+        for (TreePath path = state.getPath().getParentPath(); path != null; path = path.getParentPath()) {
+            Tree leaf = path.getLeaf();
+            switch (leaf.getKind()) {
+                case PARENTHESIZED:
+                case TYPE_CAST:
+                    previous = leaf;
+                    continue;
+                case VARIABLE:
+                    Symbol variable = ASTHelpers.getSymbol(leaf);
+                    return variable != null
+                            && variable.getKind() == ElementKind.LOCAL_VARIABLE
+                            && !isReleased(variable, scope.getLeaf(), state);
+                case ASSIGNMENT:
+                    Symbol assigned = ASTHelpers.getSymbol(((AssignmentTree) leaf).getVariable());
+                    return assigned != null
+                            && assigned.getKind() == ElementKind.LOCAL_VARIABLE
+                            && !isReleased(assigned, scope.getLeaf(), state);
+                case METHOD_INVOCATION:
+                    MethodInvocationTree invocation = (MethodInvocationTree) leaf;
+                    return !takesOwnership(ASTHelpers.getSymbol(invocation), invocation.getArguments(), previous,
+                            state);
+                case NEW_CLASS:
+                    NewClassTree newClass = (NewClassTree) leaf;
+                    return !takesOwnership(ASTHelpers.getSymbol(newClass), newClass.getArguments(), previous, state);
+                case MEMBER_SELECT:
+                case EXPRESSION_STATEMENT:
+                    // Used once, or not at all, and then dropped
+                    return true;
+                default:
+                    return false;
+            }
+        }
+        return false;
+    }
+
+    /** The method or lambda whose every run creates a new executor, or null in field and class initializers. */
+    private static TreePath enclosingScope(TreePath path) {
+        for (TreePath current = path; current != null; current = current.getParentPath()) {
+            switch (current.getLeaf().getKind()) {
+                case METHOD:
+                case LAMBDA_EXPRESSION:
+                    return current;
+                case CLASS:
+                    return null;
+                default:
+                    break;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Whether {@code argument} is passed to a parameter of type {@code ExecutorService}, which the method may shut
+     * down or keep, or of a type variable, as when it is added to a collection. Passing it to a parameter of a
+     * supertype such as {@code Executor} only uses it.
+     */
+    private static boolean takesOwnership(
+            Symbol method, List<? extends ExpressionTree> arguments, Tree argument, VisitorState state) {
+        int index = arguments.indexOf(argument);
+        if (!(method instanceof MethodSymbol) || index < 0 || ((MethodSymbol) method).getParameters().isEmpty()) {
+            return false;
+        }
+        List<Symbol.VarSymbol> parameters = ((MethodSymbol) method).getParameters();
+        Type parameterType = parameters.get(Math.min(index, parameters.size() - 1)).type;
+        return parameterType.getKind() == TypeKind.TYPEVAR
+                || ASTHelpers.isSubtype(
+                        parameterType, CachedTypes.get("java.util.concurrent.ExecutorService", state), state);
+    }
+
+    /** Whether the local {@code variable} is shut down, or handed over to an owner, anywhere in {@code scope}. */
+    private static boolean isReleased(Symbol variable, Tree scope, VisitorState state) {
+        Boolean released = scope.accept(new TreeScanner<Boolean, Void>() {
+            @Override
+            public Boolean visitMethodInvocation(MethodInvocationTree node, Void unused) {
+                if (isVariable(ASTHelpers.getReceiver(node))
+                        && RELEASES_EXECUTOR.matcher(ASTHelpers.getSymbol(node).getSimpleName()).matches()) {
+                    return true;
+                }
+                for (ExpressionTree argument : node.getArguments()) {
+                    if (isVariable(argument)
+                            && takesOwnership(ASTHelpers.getSymbol(node), node.getArguments(), argument, state)) {
+                        return true;
+                    }
+                }
+                return super.visitMethodInvocation(node, unused);
+            }
+
+            @Override
+            public Boolean visitNewClass(NewClassTree node, Void unused) {
+                for (ExpressionTree argument : node.getArguments()) {
+                    if (isVariable(argument)
+                            && takesOwnership(ASTHelpers.getSymbol(node), node.getArguments(), argument, state)) {
+                        return true;
+                    }
+                }
+                return super.visitNewClass(node, unused);
+            }
+
+            @Override
+            public Boolean visitMemberReference(MemberReferenceTree node, Void unused) {
+                if (isVariable(node.getQualifierExpression())
+                        && RELEASES_EXECUTOR.matcher(node.getName()).matches()) {
+                    return true;
+                }
+                return super.visitMemberReference(node, unused);
+            }
+
+            @Override
+            public Boolean visitReturn(ReturnTree node, Void unused) {
+                return isVariable(node.getExpression()) || super.visitReturn(node, unused);
+            }
+
+            @Override
+            public Boolean visitLambdaExpression(LambdaExpressionTree node, Void unused) {
+                return isVariable(node.getBody()) || super.visitLambdaExpression(node, unused);
+            }
+
+            @Override
+            public Boolean visitAssignment(AssignmentTree node, Void unused) {
+                return isVariable(node.getExpression()) || super.visitAssignment(node, unused);
+            }
+
+            @Override
+            public Boolean visitVariable(VariableTree node, Void unused) {
+                return isVariable(node.getInitializer()) || super.visitVariable(node, unused);
+            }
+
+            @Override
+            public Boolean reduce(Boolean first, Boolean second) {
+                return Boolean.TRUE.equals(first) || Boolean.TRUE.equals(second);
+            }
+
+            private boolean isVariable(Tree tree) {
+                while (tree != null && tree.getKind() == Tree.Kind.PARENTHESIZED) {
+                    tree = ((ParenthesizedTree) tree).getExpression();
+                }
+                return tree != null
+                        && (tree.getKind() == Tree.Kind.IDENTIFIER || tree.getKind() == Tree.Kind.MEMBER_SELECT)
+                        && variable.equals(ASTHelpers.getSymbol(tree));
+            }
+        }, null);
+        return Boolean.TRUE.equals(released);
+    }
+}
@@ -17,6 +17,7 @@
 package com.palantir.baseline.errorprone;
 
 import com.google.auto.service.AutoService;
+import com.google.common.collect.ImmutableList;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.BugPattern.Category;
 import com.google.errorprone.BugPattern.SeverityLevel;
@@ -26,56 +27,212 @@ import com.google.errorprone.matchers.Description;
 import com.google.errorprone.matchers.Matcher;
 import com.google.errorprone.matchers.Matchers;
 import com.google.errorprone.matchers.method.MethodMatchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.AssignmentTree;
+import com.sun.source.tree.BlockTree;
+import com.sun.source.tree.ConditionalExpressionTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.MemberSelectTree;
 import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.StatementTree;
 import com.sun.source.tree.Tree;
 import com.sun.source.tree.TryTree;
+import com.sun.source.tree.VariableTree;
 import com.sun.source.util.TreePath;
-import java.util.Optional;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Type;
+import java.util.List;
 import java.util.regex.Pattern;
+import javax.lang.model.element.ElementKind;
 
 @AutoService(BugChecker.class)
 @BugPattern(
         name = "UnclosedFilesStreamUsage",
         category = Category.ONE_OFF,
         severity = SeverityLevel.ERROR,
-        summary = "Ensure a stream returned by java.nio.file.Files#{find,lines,list,walk} "
+        summary = "Ensure a stream returned by java.nio.file.Files#{find,lines,list,walk,newDirectoryStream}, "
+                + "a channel returned by FileChannel#open or a ZipFile or JarFile "
                 + "is closed to prevent leaking file descriptors.")
-public final class UnclosedFilesStreamUsage extends BugChecker implements BugChecker.MethodInvocationTreeMatcher {
+public final class UnclosedFilesStreamUsage extends MethodInvocationChecker
+        implements BugChecker.NewClassTreeMatcher {
 
     private static final long serialVersionUID = 1L;
 
-    private static final MethodMatchers.MethodNameMatcher filesStreamMatcher = MethodMatchers.staticMethod()
-            .onClass("java.nio.file.Files")
-            .withNameMatching(Pattern.compile("find|lines|list|walk"));
-
-    private static final Matcher<Tree> tryResourcesMatcher = (Matcher<Tree>)
-            (methodInvocationTree, state) -> Optional.ofNullable(state.findEnclosing(TryTree.class))
-                    .map(TryTree::getResources)
-                    .map(resourcesTrees -> resourcesTrees.stream()
-                            .map(resourcesTree -> findPathToEnclosingTree(state.getPath(), resourcesTree))
-                            .anyMatch(Optional::isPresent))
-                    .orElse(false);
-
-    private static Optional<TreePath> findPathToEnclosingTree(TreePath initialPath, Tree tree) {
-        TreePath enclosingPath = initialPath;
-        while (enclosingPath != null) {
-            if (enclosingPath.getLeaf().equals(tree)) {
-                return Optional.of(enclosingPath);
-            }
-            enclosingPath = enclosingPath.getParentPath();
+    private static final Matcher<ExpressionTree> OPENS_FILE = Matchers.anyOf(
+            MethodMatchers.staticMethod()
+                    .onClass("java.nio.file.Files")
+                    .withNameMatching(Pattern.compile("find|lines|list|walk|newDirectoryStream")),
+            MethodMatchers.staticMethod()
+                    .onClass("java.nio.channels.FileChannel")
+                    .named("open"));
+
+    public UnclosedFilesStreamUsage() {
+        super(ImmutableList.of("find", "lines", "list", "walk", "newDirectoryStream", "open"), OPENS_FILE);
+    }
+
+    @Override
+    protected Description matchInvocation(MethodInvocationTree tree, VisitorState state) {
+        if (isClosed(state)) {
+            return Description.NO_MATCH;
         }
-        return Optional.empty();
+        String methodName = ASTHelpers.getSymbol(tree).getSimpleName().toString();
+        String opening;
+        if (methodName.equals("open")) {
+            opening = "FileChannel.open";
+        } else if (methodName.equals("newDirectoryStream")) {
+            opening = "Files.newDirectoryStream";
+        } else {
+            opening = "Methods returning a Stream<> in java.nio.file.Files";
+        }
+        return describe(tree, opening);
     }
 
     @Override
-    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
-        if (!Matchers.allOf(filesStreamMatcher, Matchers.not(tryResourcesMatcher)).matches(tree, state)) {
+    public Description matchNewClass(NewClassTree tree, VisitorState state) {
+        Type zipFile = CachedTypes.get("java.util.zip.ZipFile", state);
+        Type type = ASTHelpers.getType(tree);
+        if (zipFile == null || type == null || !ASTHelpers.isSubtype(type, zipFile, state) || isClosed(state)) {
             return Description.NO_MATCH;
         }
+        return describe(tree, "Constructors of " + type.tsym.getSimpleName());
+    }
+
+    private Description describe(Tree tree, String opening) {
         return buildDescription(tree)
-                .setMessage("Methods returning a Stream<> in java.nio.file.Files must be called "
-                        + "within a try-with-resources block")
+                .setMessage(opening + " must be called within a try-with-resources block, "
+                        + "or closed in a finally block of the statement right after it")
                 .build();
     }
 
+    /**
+     * Whether the resource opened at the current path is closed: either it is part of a try-with-resources resource,
+     * or it is assigned to a local variable that the next statement closes. A resource that is returned, or stored in
+     * a field, is handed over to the caller or the owning instance, which are responsible for closing it. Walks up
+     * the path once, up to the enclosing method or class.
+     */
+    private static boolean isClosed(VisitorState state) {
+        Tree previous = state.getPath().getLeaf();
+        // Whether the value of the parent is the resource itself rather than something computed from it
+        boolean direct = true;
+        for (TreePath path = state.getPath().getParentPath(); path != null; path = path.getParentPath()) {
+            Tree parent = path.getLeaf();
+            switch (parent.getKind()) {
+                case TRY:
+                    if (containsSameTree(((TryTree) parent).getResources(), previous)) {
+                        return true;
+                    }
+                    break;
+                case VARIABLE:
+                    if (direct && isField(ASTHelpers.getSymbol(parent))) {
+                        return true;
+                    }
+                    Tree block = path.getParentPath().getLeaf();
+                    if (block instanceof BlockTree
+                            && isClosedByNextStatement((VariableTree) parent, (BlockTree) block)) {
+                        return true;
+                    }
+                    break;
+                case ASSIGNMENT:
+                    if (direct && isField(ASTHelpers.getSymbol(((AssignmentTree) parent).getVariable()))) {
+                        return true;
+                    }
+                    break;
+                case RETURN:
+                    if (direct) {
+                        return true;
+                    }
+                    break;
+                case LAMBDA_EXPRESSION:
+                    if (direct && ((LambdaExpressionTree) parent).getBody() == previous) {
+                        return true;
+                    }
+                    break;
+                case METHOD:
+                case CLASS:
+                    return false;
+                default:
+                    break;
+            }
+            direct = direct && (parent.getKind() == Tree.Kind.PARENTHESIZED
+                    || parent.getKind() == Tree.Kind.TYPE_CAST
+                    || (parent.getKind() == Tree.Kind.CONDITIONAL_EXPRESSION
+                            && ((ConditionalExpressionTree) parent).getCondition() != previous));
+            previous = parent;
+        }
+        return false;
+    }
+
+    private static boolean isField(Symbol symbol) {
+        return symbol != null && symbol.getKind() == ElementKind.FIELD;
+    }
+
+    /**
+     * Whether the statement following the declaration of {@code variable} is a try statement closing it, by using it
+     * as a resource or by closing it in its finally block.
+     */
+    private static boolean isClosedByNextStatement(VariableTree variable, BlockTree block) {
+        List<? extends StatementTree> statements = block.getStatements();
+        int index = indexOfSameTree(statements, variable);
+        if (index < 0 || index + 1 >= statements.size() || !(statements.get(index + 1) instanceof TryTree)) {
+            return false;
+        }
+        Symbol symbol = ASTHelpers.getSymbol(variable);
+        TryTree next = (TryTree) statements.get(index + 1);
+        for (Tree resource : next.getResources()) {
+            Tree expression = resource instanceof VariableTree ? ((VariableTree) resource).getInitializer() : resource;
+            if (refersTo(expression, symbol)) {
+                return true;
+            }
+        }
+        return next.getFinallyBlock() != null && closes(next.getFinallyBlock(), symbol);
+    }
+
+    /** Whether {@code tree} contains {@code variable.close()} or a {@code close*(variable, ...)} helper call. */
+    private static boolean closes(BlockTree tree, Symbol variable) {
+        Boolean closes = tree.accept(new TreeScanner<Boolean, Void>() {
+            @Override
+            public Boolean visitMethodInvocation(MethodInvocationTree invocation, Void unused) {
+                ExpressionTree select = invocation.getMethodSelect();
+                if (select instanceof MemberSelectTree
+                        && ((MemberSelectTree) select).getIdentifier().contentEquals("close")
+                        && refersTo(((MemberSelectTree) select).getExpression(), variable)) {
+                    return true;
+                }
+                Symbol method = ASTHelpers.getSymbol(invocation);
+                if (method != null && method.getSimpleName().toString().startsWith("close")
+                        && invocation.getArguments().stream().anyMatch(argument -> refersTo(argument, variable))) {
+                    return true;
+                }
+                return super.visitMethodInvocation(invocation, unused);
+            }
+
+            @Override
+            public Boolean reduce(Boolean first, Boolean second) {
+                return Boolean.TRUE.equals(first) || Boolean.TRUE.equals(second);
+            }
+        }, null);
+        return Boolean.TRUE.equals(closes);
+    }
+
+    private static boolean refersTo(Tree tree, Symbol symbol) {
+        Tree stripped = tree == null ? null : ASTHelpers.stripParentheses(tree);
+        return stripped instanceof IdentifierTree && symbol != null && symbol.equals(ASTHelpers.getSymbol(stripped));
+    }
+
+    private static boolean containsSameTree(List<? extends Tree> trees, Tree tree) {
+        return indexOfSameTree(trees, tree) >= 0;
+    }
+
+    private static int indexOfSameTree(List<? extends Tree> trees, Tree tree) {
+        for (int i = 0; i < trees.size(); i++) {
+            if (trees.get(i) == tree) {
+                return i;
+            }
+        }
+        return -1;
+    }
 }
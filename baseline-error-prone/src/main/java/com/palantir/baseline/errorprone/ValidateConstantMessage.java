@@ -17,6 +17,7 @@
 package com.palantir.baseline.errorprone;
 
 import com.google.auto.service.AutoService;
+import com.google.common.collect.ImmutableList;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.BugPattern.Category;
 import com.google.errorprone.BugPattern.SeverityLevel;
@@ -29,6 +30,7 @@ import com.google.errorprone.matchers.method.MethodMatchers;
 import com.google.errorprone.util.ASTHelpers;
 import com.sun.source.tree.ExpressionTree;
 import com.sun.source.tree.MethodInvocationTree;
+import com.sun.tools.javac.code.Type;
 import java.util.List;
 import java.util.Optional;
 
@@ -38,10 +40,16 @@ import java.util.Optional;
         category = Category.ONE_OFF, // or APACHE
         severity = SeverityLevel.ERROR,
         summary = "Allow only constant messages to Validate.X() methods")
-public final class ValidateConstantMessage extends BugChecker implements BugChecker.MethodInvocationTreeMatcher {
+public final class ValidateConstantMessage extends MethodInvocationChecker {
 
     private static final long serialVersionUID = 1L;
 
+    /** The methods of commons-lang3's and commons-lang's Validate; a test checks that none is missing. */
+    static final ImmutableList<String> VALIDATE_METHOD_NAMES = ImmutableList.of(
+            "isTrue", "notNull", "notEmpty", "notBlank", "noNullElements", "validIndex", "validState",
+            "matchesPattern", "notNaN", "finite", "inclusiveBetween", "exclusiveBetween", "isInstanceOf",
+            "isAssignableFrom", "allElementsOfType");
+
     private static final Matcher<ExpressionTree> VALIDATE_METHODS =
             MethodMatchers.staticMethod()
                     .onClassAny("org.apache.commons.lang3.Validate", "org.apache.commons.lang.Validate");
@@ -49,17 +57,17 @@ public final class ValidateConstantMessage extends BugChecker implements BugChec
     private final Matcher<ExpressionTree> compileTimeConstExpressionMatcher =
             new CompileTimeConstantExpressionMatcher();
 
-    @Override
-    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
-        if (!VALIDATE_METHODS.matches(tree, state)) {
-            return Description.NO_MATCH;
-        }
+    public ValidateConstantMessage() {
+        super(VALIDATE_METHOD_NAMES, VALIDATE_METHODS);
+    }
 
+    @Override
+    protected Description matchInvocation(MethodInvocationTree tree, VisitorState state) {
         List<? extends ExpressionTree> args = tree.getArguments();
 
+        Type stringType = state.getSymtab().stringType;
         Optional<? extends ExpressionTree> messageArg = args.stream()
-                .filter(arg -> ASTHelpers.isSameType(ASTHelpers.getType(arg),
-                        state.getTypeFromString("java.lang.String"), state))
+                .filter(arg -> ASTHelpers.isSameType(ASTHelpers.getType(arg), stringType, state))
                 .reduce((one, two) -> two);
 
         if (!messageArg.isPresent() || compileTimeConstExpressionMatcher.matches(messageArg.get(), state)) {
@@ -0,0 +1,91 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.Before;
+import org.junit.Test;
+
+public final class DangerousCommonPoolUsageTests {
+
+    private CompilationTestHelper compilationHelper;
+
+    @Before
+    public void before() {
+        compilationHelper = CompilationTestHelper.newInstance(DangerousCommonPoolUsage.class, getClass());
+    }
+
+    @Test
+    public void testBlockingAsyncTasks() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.util.concurrent.CompletableFuture;",
+                        "import java.util.concurrent.ExecutorService;",
+                        "class Test {",
+                        "  void f(CompletableFuture<Integer> other, ExecutorService executor) {",
+                        "    // BUG: Diagnostic contains: this task blocks in CompletableFuture.join",
+                        "    CompletableFuture.supplyAsync(() -> other.join() + 1);",
+                        "    // BUG: Diagnostic contains: this task blocks in Thread.sleep",
+                        "    CompletableFuture.runAsync(() -> {",
+                        "      try {",
+                        "        Thread.sleep(10);",
+                        "      } catch (InterruptedException e) {",
+                        "        Thread.currentThread().interrupt();",
+                        "      }",
+                        "    });",
+                        "    // BUG: Diagnostic contains: CompletableFuture.thenApplyAsync without an executor",
+                        "    other.thenApplyAsync(value -> value + other.join());",
+                        "    CompletableFuture.supplyAsync(() -> other.join() + 1, executor);",
+                        "    other.thenApplyAsync(value -> value + other.join(), executor);",
+                        "    other.thenApplyAsync(value -> value + 1);",
+                        "    other.thenApply(value -> value + other.join());",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testBlockingParallelStreams() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.io.IOException;",
+                        "import java.io.UncheckedIOException;",
+                        "import java.nio.file.Files;",
+                        "import java.nio.file.Path;",
+                        "import java.util.List;",
+                        "import java.util.concurrent.CompletableFuture;",
+                        "class Test {",
+                        "  long f(List<Path> paths, List<CompletableFuture<Integer>> futures) {",
+                        "    // BUG: Diagnostic contains: this pipeline blocks in Files.readAllLines",
+                        "    return paths.parallelStream().map(path -> {",
+                        "      try {",
+                        "        return Files.readAllLines(path);",
+                        "      } catch (IOException e) {",
+                        "        throw new UncheckedIOException(e);",
+                        "      }",
+                        "    }).count()",
+                        "        // BUG: Diagnostic contains: this pipeline blocks in CompletableFuture.join",
+                        "        + futures.stream().map(CompletableFuture::join).parallel().count()",
+                        "        + futures.stream().map(CompletableFuture::join).count()",
+                        "        + paths.parallelStream().map(Path::getFileName).count();",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+}
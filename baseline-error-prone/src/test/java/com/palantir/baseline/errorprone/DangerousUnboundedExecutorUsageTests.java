@@ -0,0 +1,49 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.baseline.errorprone;
+
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.Before;
+import org.junit.Test;
+
+public final class DangerousUnboundedExecutorUsageTests {
+
+    private CompilationTestHelper compilationHelper;
+
+    @Before
+    public void before() {
+        compilationHelper = CompilationTestHelper.newInstance(DangerousUnboundedExecutorUsage.class, getClass());
+    }
+
+    @Test
+    public void testUnboundedExecutors() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.util.concurrent.ExecutorService;",
+                        "import java.util.concurrent.Executors;",
+                        "class Test {",
+                        "  // BUG: Diagnostic contains: unbounded LinkedBlockingQueue",
+                        "  private final ExecutorService pool = Executors.newFixedThreadPool(4);",
+                        "  // BUG: Diagnostic contains: unbounded LinkedBlockingQueue",
+                        "  private final ExecutorService single = Executors.newSingleThreadExecutor();",
+                        "  private final ExecutorService scheduled = Executors.newScheduledThreadPool(1);",
+                        "  @SuppressWarnings(\"DangerousUnboundedExecutorUsage\") // one task per configured job",
+                        "  private final ExecutorService suppressed = Executors.newFixedThreadPool(4);",
+                        "}")
+                .doTest();
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.ErrorProneJavaCompiler;
+import com.google.errorprone.scanner.ScannerSupplier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ErrorProneTimingsPluginTest {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testWritesTimingsPerCheck() throws Exception {
+        Path source = temporaryFolder.newFolder("src").toPath().resolve("Test.java");
+        Files.write(source, ImmutableList.of(
+                "class Test {",
+                "  String f(String param) {",
+                "    return param.trim();",
+                "  }",
+                "}"), StandardCharsets.UTF_8);
+        Path output = temporaryFolder.getRoot().toPath().resolve("timings dir/compileJava.tsv");
+
+        JavaCompiler compiler = new ErrorProneJavaCompiler(
+                ScannerSupplier.fromBugCheckerClasses(Slf4jLogsafeArgs.class, PreconditionsConstantMessage.class));
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null)) {
+            Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjects(source.toFile());
+            List<String> options = ImmutableList.of(
+                    "-d", temporaryFolder.newFolder("classes").toString(),
+                    "-Xplugin:" + ErrorProneTimingsPlugin.NAME + " " + output);
+            assertThat(compiler.getTask(null, fileManager, null, options, null, units).call()).isTrue();
+        }
+
+        assertThat(Files.readAllLines(output, StandardCharsets.UTF_8))
+                .extracting(line -> line.split("\t")[0])
+                .contains(ErrorProneTimingsPlugin.INITIALIZATION, "Slf4jLogsafeArgs", "PreconditionsConstantMessage");
+    }
+}
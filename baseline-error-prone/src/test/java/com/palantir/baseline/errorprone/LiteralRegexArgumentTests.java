@@ -0,0 +1,104 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.errorprone.BugCheckerRefactoringTestHelper;
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.Before;
+import org.junit.Test;
+
+public final class LiteralRegexArgumentTests {
+
+    private CompilationTestHelper compilationHelper;
+
+    @Before
+    public void before() {
+        compilationHelper = CompilationTestHelper.newInstance(LiteralRegexArgument.class, getClass());
+    }
+
+    @Test
+    public void testLiteralRegexes() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "class Test {",
+                        "  private static final String SLASH = \"/\";",
+                        "  void f(String param, String replacement) {",
+                        "    // BUG: Diagnostic contains: use String.replace",
+                        "    param.replaceAll(SLASH, \".\");",
+                        "    // BUG: Diagnostic contains: use String.replace",
+                        "    param.replaceAll(\"\\\\.class\", replacement);",
+                        "    // BUG: Diagnostic contains: String.replaceFirst compiles its argument",
+                        "    param.replaceFirst(\"foo\", \"bar\");",
+                        "    param.split(\",\");",
+                        "    param.split(\"\\\\.\");",
+                        "    // BUG: Diagnostic contains: String.split only avoids compiling a regex",
+                        "    param.split(\"[.]\");",
+                        "    param.split(\"::\");",
+                        "    param.replaceAll(\".class\", \"\");",
+                        "    param.replaceAll(\"\\\\s\", \"\");",
+                        "    param.replaceFirst(\"^foo\", \"\");",
+                        "    param.replaceAll(param, \"\");",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testLiteralOf() {
+        assertThat(LiteralRegexArgument.literalOf("abc")).isEqualTo("abc");
+        assertThat(LiteralRegexArgument.literalOf("a\\.b\\\\")).isEqualTo("a.b\\");
+        assertThat(LiteralRegexArgument.literalOf("a.b")).isNull();
+        assertThat(LiteralRegexArgument.literalOf("\\d")).isNull();
+        assertThat(LiteralRegexArgument.literalOf("a\\")).isNull();
+        assertThat(LiteralRegexArgument.literalOf("[.][\\[]")).isEqualTo(".[");
+        assertThat(LiteralRegexArgument.literalOf("[ab]")).isNull();
+        assertThat(LiteralRegexArgument.literalOf("[^a]")).isNull();
+    }
+
+    @Test
+    public void testFixes() {
+        BugCheckerRefactoringTestHelper.newInstance(new LiteralRegexArgument(), getClass())
+                .addInputLines(
+                        "Test.java",
+                        "class Test {",
+                        "  void f(String param, String replacement) {",
+                        "    param.replaceAll(\"/\", \".\");",
+                        "    param.replaceAll(\"\\\\.class\", \"\");",
+                        "    param.replaceAll(\"a\", \"$1\");",
+                        "    param.replaceAll(\"a\", replacement);",
+                        "    param.split(\"[,]\");",
+                        "    param.split(\"[|]\");",
+                        "  }",
+                        "}")
+                .addOutputLines(
+                        "Test.java",
+                        "class Test {",
+                        "  void f(String param, String replacement) {",
+                        "    param.replace('/', '.');",
+                        "    param.replace(\".class\", \"\");",
+                        "    param.replaceAll(\"a\", \"$1\");",
+                        "    param.replaceAll(\"a\", replacement);",
+                        "    param.split(\",\");",
+                        "    param.split(\"\\\\|\");",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+}
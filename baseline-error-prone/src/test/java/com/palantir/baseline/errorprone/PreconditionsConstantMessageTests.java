@@ -56,4 +56,33 @@ public final class PreconditionsConstantMessageTests extends PreconditionsTests
                 "Preconditions.checkState(param != \"string\", String.format(\"constant %s\", param));");
         failLogSafe(diagnostic, "Preconditions.checkNotNull(param, String.format(\"constant %s\", param));");
     }
+
+    @Test
+    public void staticImport() throws Exception {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import static com.google.common.base.Preconditions.checkArgument;",
+                        "class Test {",
+                        "  void f(String param) {",
+                        "    // BUG: Diagnostic contains: non-constant message",
+                        "    checkArgument(param != \"string\", \"constant\" + param);",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void negativeOtherMethodName() throws Exception {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "class Test {",
+                        "  void f(String param) {",
+                        "    checkElementIndex(param, \"constant\" + param);",
+                        "  }",
+                        "  void checkElementIndex(String param, String message) {}",
+                        "}")
+                .doTest();
+    }
 }
@@ -0,0 +1,161 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.errorprone.BugCheckerRefactoringTestHelper;
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.Before;
+import org.junit.Test;
+
+public final class PreferStaticRegexPatternTests {
+
+    private CompilationTestHelper compilationHelper;
+
+    @Before
+    public void before() {
+        compilationHelper = CompilationTestHelper.newInstance(PreferStaticRegexPattern.class, getClass());
+    }
+
+    @Test
+    public void testPatternCompileInMethod() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.util.regex.Pattern;",
+                        "class Test {",
+                        "  private static final Pattern WORDS = Pattern.compile(\"\\\\w+\");",
+                        "  private static final String REGEX = \"a+\";",
+                        "  boolean f(String param, String regex) {",
+                        "    // BUG: Diagnostic contains: Pattern.compile with a constant regex",
+                        "    boolean a = Pattern.compile(\"[0-9]+\").matcher(param).matches();",
+                        "    // BUG: Diagnostic contains: Pattern.compile with a constant regex",
+                        "    boolean b = Pattern.compile(REGEX, Pattern.CASE_INSENSITIVE).matcher(param).find();",
+                        "    return a && b && Pattern.compile(regex).matcher(param).find();",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testStringRegexMethodsInLoops() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.util.List;",
+                        "class Test {",
+                        "  int f(List<String> lines, String line) {",
+                        "    int count = line.replaceAll(\"\\\\s+\", \" \").length();",
+                        "    for (String word : line.split(\",\\\\s*\")) {",
+                        "      count += word.split(\",\").length + word.split(\"\\\\.\").length;",
+                        "      // BUG: Diagnostic contains: String.split compiles its regex on every loop iteration",
+                        "      count += word.split(\";\\\\s*\").length;",
+                        "    }",
+                        "    for (String each : lines) {",
+                        "      // BUG: Diagnostic contains: String.replaceAll compiles its regex",
+                        "      count += each.replaceAll(\"\\\\s+\", \" \").length();",
+                        "      // BUG: Diagnostic contains: String.matches compiles its regex",
+                        "      count += each.matches(\"[a-z]+\") ? 1 : 0;",
+                        "    }",
+                        "    int i = 0;",
+                        "    while (i++ < count) {",
+                        "      // BUG: Diagnostic contains: String.replaceFirst compiles its regex",
+                        "      line = line.replaceFirst(\"^x+\", \"\");",
+                        "    }",
+                        "    return count;",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testLeavesLiteralRegexesToLiteralRegexArgument() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.util.List;",
+                        "class Test {",
+                        "  int f(List<String> lines) {",
+                        "    int count = 0;",
+                        "    for (String line : lines) {",
+                        "      count += line.replaceAll(\"\\\\.\", \"/\").length();",
+                        "      count += line.split(\"[.]\").length;",
+                        "      // BUG: Diagnostic contains: String.split compiles its regex on every loop iteration",
+                        "      count += line.split(\"::\").length;",
+                        "    }",
+                        "    return count;",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testHoistsPattern() {
+        BugCheckerRefactoringTestHelper.newInstance(new PreferStaticRegexPattern(), getClass())
+                .addInputLines(
+                        "Test.java",
+                        "import java.util.List;",
+                        "class Test {",
+                        "  int f(List<String> lines) {",
+                        "    int count = 0;",
+                        "    for (String line : lines) {",
+                        "      count += line.replaceAll(\"\\\\s+\", \" \").length();",
+                        "    }",
+                        "    return count;",
+                        "  }",
+                        "}")
+                .addOutputLines(
+                        "Test.java",
+                        "import java.util.List;",
+                        "import java.util.regex.Pattern;",
+                        "class Test {",
+                        "  private static final Pattern S_PATTERN = Pattern.compile(\"\\\\s+\");",
+                        "  int f(List<String> lines) {",
+                        "    int count = 0;",
+                        "    for (String line : lines) {",
+                        "      count += S_PATTERN.matcher(line).replaceAll(\" \").length();",
+                        "    }",
+                        "    return count;",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testHoistsValueOfLocalConstant() {
+        BugCheckerRefactoringTestHelper.newInstance(new PreferStaticRegexPattern(), getClass())
+                .addInputLines(
+                        "Test.java",
+                        "import java.util.regex.Pattern;",
+                        "class Test {",
+                        "  boolean f(String line) {",
+                        "    final String separator = \",\\t\";",
+                        "    return Pattern.compile(separator).matcher(line).find();",
+                        "  }",
+                        "}")
+                .addOutputLines(
+                        "Test.java",
+                        "import java.util.regex.Pattern;",
+                        "class Test {",
+                        "  private static final Pattern PATTERN = Pattern.compile(\",\\t\");",
+                        "  boolean f(String line) {",
+                        "    final String separator = \",\\t\";",
+                        "    return PATTERN.matcher(line).find();",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+}
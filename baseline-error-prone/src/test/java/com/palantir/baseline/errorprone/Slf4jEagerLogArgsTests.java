@@ -0,0 +1,178 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.errorprone;
+
+import com.google.errorprone.BugCheckerRefactoringTestHelper;
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.Before;
+import org.junit.Test;
+
+public final class Slf4jEagerLogArgsTests {
+
+    private CompilationTestHelper compilationHelper;
+
+    @Before
+    public void before() {
+        compilationHelper = CompilationTestHelper.newInstance(Slf4jEagerLogArgs.class, getClass());
+    }
+
+    @Test
+    public void testEagerArguments() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import com.palantir.logsafe.SafeArg;",
+                        "import java.util.List;",
+                        "import java.util.stream.Collectors;",
+                        "import org.slf4j.Logger;",
+                        "import org.slf4j.LoggerFactory;",
+                        "class Test {",
+                        "  private static final Logger log = LoggerFactory.getLogger(Test.class);",
+                        "  void f(String param, List<String> items, Exception e) {",
+                        "    // BUG: Diagnostic contains: computes arguments [1] even when debug logging is disabled",
+                        "    log.debug(\"{}\", String.format(\"%s\", param));",
+                        "    // BUG: Diagnostic contains: guard it with isTraceEnabled()",
+                        "    log.trace(\"{}\", SafeArg.of(\"items\", items.stream().collect(Collectors.toList())));",
+                        "    // BUG: Diagnostic contains: computes arguments [2]",
+                        "    log.debug(\"{} {}\", param, \"prefix\" + param, e);",
+                        "    // BUG: Diagnostic contains: computes arguments [1]",
+                        "    log.debug(\"{}\", items.toString());",
+                        "    log.debug(\"{} {}\", SafeArg.of(\"size\", items.size()), items.isEmpty() ? 1 : -1);",
+                        "    log.debug(\"{}\", (Object) param, e);",
+                        "    log.info(\"{}\", String.format(\"%s\", param));",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testGuardedArguments() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import org.slf4j.Logger;",
+                        "import org.slf4j.LoggerFactory;",
+                        "class Test {",
+                        "  private static final Logger log = LoggerFactory.getLogger(Test.class);",
+                        "  void f(String param) {",
+                        "    if (log.isDebugEnabled()) {",
+                        "      log.debug(\"{}\", param.toUpperCase());",
+                        "    }",
+                        "    if (param != null && log.isTraceEnabled()) {",
+                        "      for (int i = 0; i < 2; i++) {",
+                        "        log.trace(\"{}\", param.toUpperCase());",
+                        "      }",
+                        "    }",
+                        "  }",
+                        "  void g(String param) {",
+                        "    if (!log.isDebugEnabled()) {",
+                        "      return;",
+                        "    }",
+                        "    log.debug(\"{}\", param.toUpperCase());",
+                        "  }",
+                        "  void h(String param) {",
+                        "    if (log.isDebugEnabled()) {",
+                        "      log.debug(\"{}\", param);",
+                        "    } else {",
+                        "      // BUG: Diagnostic contains: computes arguments [1]",
+                        "      log.debug(\"{}\", param.toUpperCase());",
+                        "    }",
+                        "    if (log.isDebugEnabled()) {",
+                        "      Runnable runnable = () -> {",
+                        "        // BUG: Diagnostic contains: computes arguments [1]",
+                        "        log.debug(\"{}\", param.toUpperCase());",
+                        "      };",
+                        "    }",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testGuardsMustCheckLevelOfLogger() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import org.slf4j.Logger;",
+                        "import org.slf4j.LoggerFactory;",
+                        "class Test {",
+                        "  private static final Logger log = LoggerFactory.getLogger(Test.class);",
+                        "  private static final Logger other = LoggerFactory.getLogger(Object.class);",
+                        "  void f(String param, boolean flag) {",
+                        "    if (flag && log.isTraceEnabled()) {",
+                        "      log.debug(\"{}\", param.toUpperCase());",
+                        "    }",
+                        "    if (!log.isDebugEnabled()) {",
+                        "      // BUG: Diagnostic contains: computes arguments [1]",
+                        "      log.debug(\"{}\", param.toUpperCase());",
+                        "    }",
+                        "    if (flag || log.isDebugEnabled()) {",
+                        "      // BUG: Diagnostic contains: computes arguments [1]",
+                        "      log.debug(\"{}\", param.toUpperCase());",
+                        "    }",
+                        "    if (log.isInfoEnabled()) {",
+                        "      // BUG: Diagnostic contains: computes arguments [1]",
+                        "      log.debug(\"{}\", param.toUpperCase());",
+                        "    }",
+                        "    if (log.isDebugEnabled()) {",
+                        "      // BUG: Diagnostic contains: computes arguments [1]",
+                        "      log.trace(\"{}\", param.toUpperCase());",
+                        "    }",
+                        "    if (other.isDebugEnabled()) {",
+                        "      // BUG: Diagnostic contains: computes arguments [1]",
+                        "      log.debug(\"{}\", param.toUpperCase());",
+                        "    }",
+                        "  }",
+                        "  void g(String param) {",
+                        "    if (log.isDebugEnabled() || param == null) {",
+                        "      return;",
+                        "    }",
+                        "    // BUG: Diagnostic contains: computes arguments [1]",
+                        "    log.debug(\"{}\", param.toUpperCase());",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testAddsGuard() {
+        BugCheckerRefactoringTestHelper.newInstance(new Slf4jEagerLogArgs(), getClass())
+                .addInputLines(
+                        "Test.java",
+                        "import org.slf4j.Logger;",
+                        "import org.slf4j.LoggerFactory;",
+                        "class Test {",
+                        "  private static final Logger log = LoggerFactory.getLogger(Test.class);",
+                        "  void f(String param) {",
+                        "    log.debug(\"{}\", param.toUpperCase());",
+                        "  }",
+                        "}")
+                .addOutputLines(
+                        "Test.java",
+                        "import org.slf4j.Logger;",
+                        "import org.slf4j.LoggerFactory;",
+                        "class Test {",
+                        "  private static final Logger log = LoggerFactory.getLogger(Test.class);",
+                        "  void f(String param) {",
+                        "    if (log.isDebugEnabled()) {",
+                        "      log.debug(\"{}\", param.toUpperCase());",
+                        "    }",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+}
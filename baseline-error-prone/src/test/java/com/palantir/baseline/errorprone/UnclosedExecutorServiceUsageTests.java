@@ -0,0 +1,103 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.baseline.errorprone;
+
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.Before;
+import org.junit.Test;
+
+public final class UnclosedExecutorServiceUsageTests {
+
+    private CompilationTestHelper compilationHelper;
+
+    @Before
+    public void before() {
+        compilationHelper = CompilationTestHelper.newInstance(UnclosedExecutorServiceUsage.class, getClass());
+    }
+
+    @Test
+    public void testExecutorsCreatedPerCall() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.util.concurrent.CompletableFuture;",
+                        "import java.util.concurrent.ExecutorService;",
+                        "import java.util.concurrent.Executors;",
+                        "import java.util.concurrent.ForkJoinPool;",
+                        "class Test {",
+                        "  void submitted(Runnable task) {",
+                        "    // BUG: Diagnostic contains: ExecutorService created in a method is never shut down",
+                        "    ExecutorService executor = Executors.newFixedThreadPool(4);",
+                        "    executor.submit(task);",
+                        "  }",
+                        "  void chained(Runnable task) {",
+                        "    // BUG: Diagnostic contains: ExecutorService created in a method is never shut down",
+                        "    Executors.newSingleThreadExecutor().submit(task);",
+                        "  }",
+                        "  void asExecutor(Runnable task) {",
+                        "    // BUG: Diagnostic contains: ExecutorService created in a method is never shut down",
+                        "    CompletableFuture.runAsync(task, Executors.newCachedThreadPool());",
+                        "  }",
+                        "  void constructed(Runnable task) {",
+                        "    // BUG: Diagnostic contains: ExecutorService created in a method is never shut down",
+                        "    ForkJoinPool pool = new ForkJoinPool(2);",
+                        "    pool.execute(task);",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testExecutorsShutDownOrOwned() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.util.List;",
+                        "import java.util.concurrent.ExecutorService;",
+                        "import java.util.concurrent.Executors;",
+                        "import java.util.function.Supplier;",
+                        "class Test {",
+                        "  private static final ExecutorService SHARED = Executors.newFixedThreadPool(4);",
+                        "  private final ExecutorService owned;",
+                        "  Test() {",
+                        "    owned = Executors.newCachedThreadPool();",
+                        "  }",
+                        "  void shutDown(Runnable task) {",
+                        "    ExecutorService executor = Executors.newFixedThreadPool(4);",
+                        "    try {",
+                        "      executor.submit(task);",
+                        "    } finally {",
+                        "      executor.shutdown();",
+                        "    }",
+                        "  }",
+                        "  void shutDownByHook() {",
+                        "    ExecutorService executor = Executors.newSingleThreadExecutor();",
+                        "    Runtime.getRuntime().addShutdownHook(new Thread(executor::shutdownNow));",
+                        "  }",
+                        "  void handedOver(List<ExecutorService> executors) {",
+                        "    ExecutorService executor = Executors.newSingleThreadExecutor();",
+                        "    executors.add(executor);",
+                        "    register(Executors.newSingleThreadExecutor());",
+                        "  }",
+                        "  ExecutorService created() {",
+                        "    Supplier<ExecutorService> supplier = () -> Executors.newSingleThreadExecutor();",
+                        "    return Executors.newFixedThreadPool(2);",
+                        "  }",
+                        "  void register(ExecutorService executor) {}",
+                        "}")
+                .doTest();
+    }
+}
@@ -113,4 +113,191 @@ public final class UnclosedFilesListUsageTests {
                 .doTest();
     }
 
+    @Test
+    public void testThrowsOnNewDirectoryStream_noTryWithResources() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.io.IOException;",
+                        "import java.nio.file.DirectoryStream;",
+                        "import java.nio.file.Files;",
+                        "import java.nio.file.Path;",
+                        "class Test {",
+                        "  int f(Path dir) throws IOException {",
+                        "    // BUG: Diagnostic contains: Files.newDirectoryStream must be called within a try-with",
+                        "    DirectoryStream<Path> paths = Files.newDirectoryStream(dir);",
+                        "    return paths.iterator().hasNext() ? 1 : 0;",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testThrowsOnFileChannelAndZipFiles_noTryWithResources() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.io.File;",
+                        "import java.io.IOException;",
+                        "import java.nio.channels.FileChannel;",
+                        "import java.nio.file.Path;",
+                        "import java.util.jar.JarFile;",
+                        "import java.util.zip.ZipFile;",
+                        "class Test {",
+                        "  long f(Path path, File file) throws IOException {",
+                        "    // BUG: Diagnostic contains: FileChannel.open must be called within a try-with",
+                        "    long size = FileChannel.open(path).size();",
+                        "    // BUG: Diagnostic contains: Constructors of JarFile must be called within a try-with",
+                        "    size += new JarFile(file).size();",
+                        "    // BUG: Diagnostic contains: Constructors of ZipFile must be called within a try-with",
+                        "    return size + new ZipFile(file).size();",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testThrowsOnClose_notInFinally() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.io.IOException;",
+                        "import java.nio.file.Files;",
+                        "import java.nio.file.Path;",
+                        "import java.util.stream.Stream;",
+                        "class Test {",
+                        "  long f(Path dir) throws IOException {",
+                        "    // BUG: Diagnostic contains: java.nio.file.Files must be called within a try-with",
+                        "    Stream<Path> files = Files.list(dir);",
+                        "    long count = files.count();",
+                        "    files.close();",
+                        "    return count;",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void negative_resources() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.io.File;",
+                        "import java.io.IOException;",
+                        "import java.nio.channels.FileChannel;",
+                        "import java.nio.file.DirectoryStream;",
+                        "import java.nio.file.Files;",
+                        "import java.nio.file.Path;",
+                        "import java.util.jar.JarFile;",
+                        "import java.util.stream.Stream;",
+                        "class Test {",
+                        "  long f(Path path, File file) throws IOException {",
+                        "    try (DirectoryStream<Path> paths = Files.newDirectoryStream(path);",
+                        "        FileChannel channel = FileChannel.open(path);",
+                        "        JarFile jar = new JarFile(file);",
+                        "        Stream<String> lines = Files.lines(path).filter(line -> !line.isEmpty())) {",
+                        "      return channel.size() + jar.size() + lines.count();",
+                        "    }",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void negative_closedByNextStatement() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.io.IOException;",
+                        "import java.nio.file.Files;",
+                        "import java.nio.file.Path;",
+                        "import java.util.stream.Stream;",
+                        "class Test {",
+                        "  long f(Path dir) throws IOException {",
+                        "    Stream<Path> files = Files.list(dir);",
+                        "    try {",
+                        "      return files.count();",
+                        "    } finally {",
+                        "      files.close();",
+                        "    }",
+                        "  }",
+                        "  long g(Path dir) throws IOException {",
+                        "    Stream<Path> files = Files.walk(dir);",
+                        "    try (Stream<Path> closed = files) {",
+                        "      return closed.count();",
+                        "    }",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void negative_handedOver() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.io.File;",
+                        "import java.io.IOException;",
+                        "import java.nio.channels.FileChannel;",
+                        "import java.nio.file.Files;",
+                        "import java.nio.file.Path;",
+                        "import java.util.function.Supplier;",
+                        "import java.util.jar.JarFile;",
+                        "import java.util.stream.Stream;",
+                        "class Test {",
+                        "  private final JarFile jar;",
+                        "  private FileChannel channel;",
+                        "  Test(File file) throws IOException {",
+                        "    this.jar = new JarFile(file);",
+                        "  }",
+                        "  void open(Path path) throws IOException {",
+                        "    channel = FileChannel.open(path);",
+                        "  }",
+                        "  static JarFile jar(File file) throws IOException {",
+                        "    return new JarFile(file);",
+                        "  }",
+                        "  static FileChannel channel(Path path, boolean exists) throws IOException {",
+                        "    return exists ? FileChannel.open(path) : null;",
+                        "  }",
+                        "  static Stream<String> lines(Path path) throws IOException {",
+                        "    return (Files.lines(path));",
+                        "  }",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void negative_field() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.io.File;",
+                        "import java.io.IOException;",
+                        "import java.util.jar.JarFile;",
+                        "class Test {",
+                        "  private final JarFile jar = new JarFile(new File(\"test.jar\"));",
+                        "  Test() throws IOException {}",
+                        "}")
+                .doTest();
+    }
+
+    @Test
+    public void testThrowsOnReturnedValueComputedFromResource() {
+        compilationHelper
+                .addSourceLines(
+                        "Test.java",
+                        "import java.io.IOException;",
+                        "import java.nio.channels.FileChannel;",
+                        "import java.nio.file.Path;",
+                        "class Test {",
+                        "  private long size;",
+                        "  long f(Path path) throws IOException {",
+                        "    // BUG: Diagnostic contains: FileChannel.open must be called within a try-with",
+                        "    size = FileChannel.open(path).size();",
+                        "    // BUG: Diagnostic contains: FileChannel.open must be called within a try-with",
+                        "    return FileChannel.open(path).size();",
+                        "  }",
+                        "}")
+                .doTest();
+    }
 }
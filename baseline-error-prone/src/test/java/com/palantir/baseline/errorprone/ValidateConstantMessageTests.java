@@ -16,7 +16,13 @@
 
 package com.palantir.baseline.errorprone;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 import com.google.errorprone.CompilationTestHelper;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import org.apache.commons.lang3.Validate;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -29,6 +35,14 @@ public final class ValidateConstantMessageTests {
         compilationHelper = CompilationTestHelper.newInstance(ValidateConstantMessage.class, getClass());
     }
 
+    @Test
+    public void testChecksAllValidateMethods() {
+        assertThat(Arrays.stream(Validate.class.getDeclaredMethods())
+                .filter(method -> Modifier.isPublic(method.getModifiers()) && Modifier.isStatic(method.getModifiers()))
+                .map(Method::getName))
+                .isSubsetOf(ValidateConstantMessage.VALIDATE_METHOD_NAMES);
+    }
+
     private void test(String call) throws Exception {
         compilationHelper
                 .addSourceLines(
@@ -33,17 +33,21 @@ public final class Baseline implements Plugin<Project> {
                     project.getName());
         }
 
-        rootProject.getPluginManager().apply(BaselineConfig.class);
-        rootProject.getPluginManager().apply(BaselineCircleCi.class);
+        BaselineTimings timings = BaselineTimings.of(rootProject);
+        applyTimed(timings, rootProject, BaselineConfig.class);
+        applyTimed(timings, rootProject, BaselineCircleCi.class);
         rootProject.allprojects(proj -> {
-            proj.getPluginManager().apply(BaselineCheckstyle.class);
-            proj.getPluginManager().apply(BaselineEclipse.class);
-            proj.getPluginManager().apply(BaselineIdea.class);
-            proj.getPluginManager().apply(BaselineErrorProne.class);
-            proj.getPluginManager().apply(BaselineVersions.class);
+            applyTimed(timings, proj, BaselineCheckstyle.class);
+            applyTimed(timings, proj, BaselineEclipse.class);
+            applyTimed(timings, proj, BaselineIdea.class);
+            applyTimed(timings, proj, BaselineErrorProne.class);
+            applyTimed(timings, proj, BaselineVersions.class);
             // TODO(dfox): enable this when it has been validated on a few real projects
             // project.getPluginManager().apply(BaselineClassUniquenessPlugin.class);
         });
     }
 
+    private static void applyTimed(BaselineTimings timings, Project project, Class<? extends Plugin<?>> plugin) {
+        timings.time(plugin.getSimpleName(), "apply", project, () -> project.getPluginManager().apply(plugin));
+    }
 }
@@ -17,11 +17,19 @@
 package com.palantir.baseline.plugins;
 
 import com.google.common.base.Splitter;
+import com.palantir.baseline.tasks.BuildHistory;
+import com.palantir.baseline.tasks.DependencyFingerprintTask;
+import com.palantir.baseline.tasks.DependencyResolutionReport;
+import com.palantir.baseline.tasks.PrefetchDependenciesTask;
+import com.palantir.baseline.tasks.TestTimingReportTask;
 import com.palantir.configurationresolver.ConfigurationResolverPlugin;
+import com.palantir.gradle.circlestyle.AggregatingCheckstyleReportHandler;
 import com.palantir.gradle.circlestyle.CheckstyleReportHandler;
 import com.palantir.gradle.circlestyle.CircleBuildFailureListener;
 import com.palantir.gradle.circlestyle.CircleBuildFinishedAction;
+import com.palantir.gradle.circlestyle.CircleBuildJournal;
 import com.palantir.gradle.circlestyle.CircleStyleFinalizer;
+import com.palantir.gradle.circlestyle.CircleStyleReportCollector;
 import com.palantir.gradle.circlestyle.JavacFailuresSupplier;
 import com.palantir.gradle.circlestyle.StyleTaskTimer;
 import com.palantir.gradle.circlestyle.TaskTimer;
@@ -37,8 +45,12 @@ import java.nio.file.attribute.PosixFilePermissions;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Set;
+import javax.xml.transform.TransformerException;
+import org.gradle.StartParameter;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.plugins.ExtraPropertiesExtension;
 import org.gradle.api.plugins.quality.Checkstyle;
 import org.gradle.api.tasks.compile.JavaCompile;
 import org.gradle.api.tasks.testing.Test;
@@ -49,6 +61,9 @@ public final class BaselineCircleCi implements Plugin<Project> {
     private final SimpleDateFormat fileDateFormat = new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss");
     private static final FileAttribute<Set<PosixFilePermission>> PERMS_ATTRIBUTE =
             PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwxr-xr-x"));
+    private static final String PROPERTY_PREFIX = "baselineCircleCi.";
+    private static final String PREFETCH_TASK_NAME = "prefetchDependencies";
+    private static final String JOURNALS_RECOVERED = "baselineCircleCiJournalsRecovered";
 
     @Override
     public void apply(Project project) {
@@ -60,8 +75,85 @@ public final class BaselineCircleCi implements Plugin<Project> {
 
         // the `./gradlew resolveConfigurations` task is used on CI to download all jars for convenient caching
         project.getRootProject().allprojects(p -> p.getPluginManager().apply(ConfigurationResolverPlugin.class));
+        configureDependencyPrefetch(project.getRootProject());
         configurePluginsForReports(project);
         configurePluginsForArtifacts(project);
+        configureTestForkSizing(project);
+        configureTestPrioritization(project);
+    }
+
+    /**
+     * Adds a {@code prefetchDependencies} task to every project; run with {@code --parallel} to warm the dependency
+     * cache concurrently. The root project's task runs last and writes a report of resolution and download times.
+     * Also adds a root {@code dependencyFingerprint} task, whose output serves as a cache key for the dependency cache.
+     */
+    private static void configureDependencyPrefetch(Project rootProject) {
+        if (rootProject.getTasks().findByName(PREFETCH_TASK_NAME) != null) {
+            return;
+        }
+        String circleArtifactsDir = System.getenv("CIRCLE_ARTIFACTS");
+        File reportFile = circleArtifactsDir != null
+                ? Paths.get(circleArtifactsDir, "dependency-resolution.txt").toFile()
+                : new File(rootProject.getBuildDir(), "reports/dependency-resolution.txt");
+        DependencyResolutionReport report = new DependencyResolutionReport();
+        PrefetchDependenciesTask rootTask = rootProject.getTasks().create(
+                PREFETCH_TASK_NAME, PrefetchDependenciesTask.class, task -> {
+                    task.setReport(report);
+                    task.setReportFile(reportFile);
+                });
+        rootProject.subprojects(proj -> rootTask.dependsOn(proj.getTasks().create(
+                PREFETCH_TASK_NAME, PrefetchDependenciesTask.class, task -> task.setReport(report))));
+
+        // Runs after prefetching when both are requested, so that the resolved dependency graphs are reused
+        rootProject.getTasks().create("dependencyFingerprint", DependencyFingerprintTask.class, task -> {
+            task.setFingerprintFile(new File(rootProject.getBuildDir(), "dependency-fingerprint"));
+            task.mustRunAfter(rootTask);
+        });
+    }
+
+    private static void configureTestPrioritization(Project project) {
+        if (!booleanProperty(project, "prioritizeTests")) {
+            return;
+        }
+        Path historyDir = historyDir(project);
+        int slowestCount = intProperty(project, "prioritizedSlowTestCount", TestPrioritization.DEFAULT_SLOWEST_COUNT);
+        int retentionBuilds = intProperty(
+                project, "testHistoryRetentionBuilds", BuildHistory.DEFAULT_RETENTION_BUILDS);
+        project.getRootProject().allprojects(proj -> proj.getTasks().withType(Test.class,
+                test -> TestPrioritization.configure(test, historyDir, slowestCount, retentionBuilds)));
+    }
+
+    private static void configureTestForkSizing(Project project) {
+        if (!booleanProperty(project, "tuneTestForks")) {
+            return;
+        }
+        Integer maxParallelForks = project.hasProperty(PROPERTY_PREFIX + "testMaxParallelForks")
+                ? intProperty(project, "testMaxParallelForks", 1)
+                : null;
+        Object maxHeapSize = project.findProperty(PROPERTY_PREFIX + "testMaxHeapSize");
+        Long forkEvery = project.hasProperty(PROPERTY_PREFIX + "testForkEvery")
+                ? (long) intProperty(project, "testForkEvery", 0)
+                : null;
+        Path heapHistoryFile = historyDir(project).resolve(TestJvmMetrics.HEAP_HISTORY_FILE);
+
+        // Sized once the task graph is known, so that only tasks that will run are sized and explicit settings win
+        project.getGradle().getTaskGraph().whenReady(graph -> timed(project, "whenReady", () -> {
+            // Only tasks of different projects run in parallel, and no more of them than there are workers
+            StartParameter startParameter = project.getGradle().getStartParameter();
+            long testProjects = graph.getAllTasks().stream()
+                    .filter(Test.class::isInstance)
+                    .map(Task::getProject)
+                    .distinct()
+                    .count();
+            int concurrentTasks = startParameter.isParallelProjectExecutionEnabled()
+                    ? (int) Math.min(testProjects, startParameter.getMaxWorkerCount())
+                    : 1;
+            TestForkSizing sizing = TestForkSizing.create(heapHistoryFile, concurrentTasks);
+            graph.getAllTasks().stream()
+                    .filter(Test.class::isInstance)
+                    .forEach(test -> sizing.apply((Test) test, maxParallelForks,
+                            maxHeapSize != null ? maxHeapSize.toString() : null, forkEvery));
+        }));
     }
 
     private void configurePluginsForArtifacts(Project project) {
@@ -77,18 +169,49 @@ public final class BaselineCircleCi implements Plugin<Project> {
             throw new RuntimeException("failed to create CIRCLE_ARTIFACTS directory", e);
         }
 
+        boolean testGcLogging = booleanProperty(project, "testGcLogging");
+        boolean testFlightRecording = booleanProperty(project, "testFlightRecording");
+        Path heapHistoryFile = historyDir(project).resolve(TestJvmMetrics.HEAP_HISTORY_FILE);
         project.getRootProject().allprojects(proj ->
                 proj.getTasks().withType(Test.class, test -> {
                     test.getReports().getHtml().setEnabled(true);
                     test.getReports().getHtml().setDestination(junitPath(circleArtifactsDir, test.getPath()));
+                    if (testGcLogging || testFlightRecording) {
+                        TestJvmMetrics.configure(test, junitPath(circleArtifactsDir, test.getPath() + "-jvm"),
+                                testGcLogging, testFlightRecording, heapHistoryFile);
+                    }
                 }));
 
+        if (project.getGradle().getStartParameter().isBuildCacheEnabled()
+                || booleanProperty(project, "buildCacheReport")) {
+            String baseName = "build-cache-" + fileDateFormat.format(new Date());
+            BuildCacheReport report = new BuildCacheReport(
+                    Paths.get(circleArtifactsDir, "build-cache", baseName + ".tsv"),
+                    Paths.get(circleArtifactsDir, "build-cache", baseName + ".txt"));
+            project.getGradle().addListener(report);
+            project.getGradle().buildFinished(report);
+        }
+
+        if (booleanProperty(project, "recordBuild")) {
+            String baseName = "build-" + fileDateFormat.format(new Date());
+            BuildFlightRecorder recorder = BuildFlightRecorder.start(
+                    Paths.get(circleArtifactsDir, "profile", baseName + ".jfr"),
+                    Paths.get(circleArtifactsDir, "profile", baseName + "-jfr-summary.txt"));
+            if (recorder != null) {
+                project.getGradle().buildFinished(recorder);
+            }
+        }
+
         if (project.getGradle().getStartParameter().isProfile()) {
+            ProfileJsonRenderer jsonRenderer =
+                    new ProfileJsonRenderer(circleContainer(), System.getenv("CIRCLE_BUILD_NUM"));
             project.getGradle().addListener((ProfileListener) buildProfile -> {
                 ProfileReportRenderer renderer = new ProfileReportRenderer();
-                File file = Paths.get(circleArtifactsDir, "profile", "profile-"
-                        + fileDateFormat.format(new Date(buildProfile.getBuildStarted())) + ".html").toFile();
+                String baseName = "profile-" + fileDateFormat.format(new Date(buildProfile.getBuildStarted()));
+                File file = Paths.get(circleArtifactsDir, "profile", baseName + ".html").toFile();
                 renderer.writeTo(buildProfile, file);
+                jsonRenderer.writeTo(
+                        buildProfile, Paths.get(circleArtifactsDir, "profile", baseName + ".jsonl").toFile());
             });
         }
     }
@@ -108,30 +231,126 @@ public final class BaselineCircleCi implements Plugin<Project> {
         }
 
         configureBuildFailureFinalizer(project.getRootProject(), circleReportsDir);
+        configureTestTimingReport(project.getRootProject(), circleReportsDir);
 
         TaskTimer timer = new StyleTaskTimer();
         project.getRootProject().getGradle().addListener(timer);
 
+        boolean aggregateCheckstyle = booleanProperty(project, "aggregateCheckstyle");
+        int checkstyleExamples = intProperty(
+                project, "checkstyleExamples", AggregatingCheckstyleReportHandler.DEFAULT_MAX_EXAMPLES);
+
+        // Either one finalizer task and report per style task, or a single build-scoped collector and report
+        CircleStyleReportCollector collector = booleanProperty(project, "consolidatedStyleReport")
+                ? createStyleReportCollector(project.getRootProject(), circleReportsDir)
+                : null;
+
         project.getRootProject().allprojects(proj -> {
             proj.getTasks().withType(Test.class, test -> {
                 test.getReports().getJunitXml().setEnabled(true);
                 test.getReports().getJunitXml().setDestination(junitPath(circleReportsDir, test.getPath()));
             });
-            proj.getTasks().withType(Checkstyle.class, checkstyle ->
+            proj.getTasks().withType(Checkstyle.class, checkstyle -> {
+                XmlReportFailuresSupplier failuresSupplier = aggregateCheckstyle
+                        ? XmlReportFailuresSupplier.create(
+                                checkstyle, new AggregatingCheckstyleReportHandler(checkstyleExamples))
+                        : XmlReportFailuresSupplier.create(checkstyle, new CheckstyleReportHandler());
+                if (collector != null) {
+                    collector.register(checkstyle, failuresSupplier);
+                } else {
                     CircleStyleFinalizer.registerFinalizer(
-                            checkstyle,
-                            timer,
-                            XmlReportFailuresSupplier.create(checkstyle, new CheckstyleReportHandler()),
-                            Paths.get(circleReportsDir, "checkstyle")));
-            proj.getTasks().withType(JavaCompile.class, javac ->
+                            checkstyle, timer, failuresSupplier, Paths.get(circleReportsDir, "checkstyle"));
+                }
+            });
+            proj.getTasks().withType(JavaCompile.class, javac -> {
+                JavacFailuresSupplier failuresSupplier = JavacFailuresSupplier.create(javac);
+                if (collector != null) {
+                    collector.register(javac, failuresSupplier);
+                } else {
                     CircleStyleFinalizer.registerFinalizer(
-                            javac,
-                            timer,
-                            JavacFailuresSupplier.create(javac),
-                            Paths.get(circleReportsDir, "javac")));
+                            javac, timer, failuresSupplier, Paths.get(circleReportsDir, "javac"));
+                }
+            });
         });
     }
 
+    private static CircleStyleReportCollector createStyleReportCollector(Project rootProject, String circleReportsDir) {
+        CircleStyleReportCollector collector = new CircleStyleReportCollector(
+                rootProject.getProjectDir(), uniqueReportFile(Paths.get(circleReportsDir, "style"), "style"));
+        rootProject.getGradle().addListener(collector);
+        rootProject.getGradle().buildFinished(collector);
+        return collector;
+    }
+
+    private static void configureTestTimingReport(Project rootProject, String circleReportsDir) {
+        if (rootProject.getTasks().findByName("testTimingReport") != null) {
+            return;
+        }
+        String circleArtifactsDir = System.getenv("CIRCLE_ARTIFACTS");
+        File reportFile = circleArtifactsDir != null
+                ? Paths.get(circleArtifactsDir, "test-timings.txt").toFile()
+                : new File(rootProject.getBuildDir(), "reports/test-timings.txt");
+        TestTimingReportTask report = rootProject.getTasks().create(
+                "testTimingReport", TestTimingReportTask.class, task -> {
+                    task.setHistoryFile(historyDir(rootProject).resolve("test-durations.tsv").toFile());
+                    task.setReportFile(reportFile);
+                    task.setRegressionThreshold(doubleProperty(
+                            rootProject, "testRegressionThreshold", task.getRegressionThreshold()));
+                    task.setMinimumDurationMillis(intProperty(
+                            rootProject, "testRegressionMinMillis", (int) task.getMinimumDurationMillis()));
+                    task.setSlowestCount(intProperty(rootProject, "slowestTestCount", task.getSlowestCount()));
+                    task.setHistoryRetentionBuilds(intProperty(
+                            rootProject, "testHistoryRetentionBuilds", task.getHistoryRetentionBuilds()));
+                });
+        rootProject.allprojects(proj -> proj.getTasks().withType(Test.class, test -> {
+            report.addTestTask(test);
+            test.finalizedBy(report);
+        }));
+    }
+
+    /**
+     * Directory for data carried over between builds, such as test durations. Defaults to a directory in the Gradle
+     * user home, which CI setups commonly cache; override with {@code -PbaselineCircleCi.historyDir=...}.
+     */
+    static Path historyDir(Project project) {
+        Object value = project.findProperty(PROPERTY_PREFIX + "historyDir");
+        if (value != null) {
+            return project.getRootProject().file(value).toPath();
+        }
+        return BuildHistory.defaultDirectory(project);
+    }
+
+    private static boolean booleanProperty(Project project, String name) {
+        Object value = project.findProperty(PROPERTY_PREFIX + name);
+        return value != null && Boolean.parseBoolean(value.toString());
+    }
+
+    private static int intProperty(Project project, String name, int defaultValue) {
+        Object value = project.findProperty(PROPERTY_PREFIX + name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.toString());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(
+                    "Project property " + PROPERTY_PREFIX + name + " must be an integer, got '" + value + "'", e);
+        }
+    }
+
+    private static double doubleProperty(Project project, String name, double defaultValue) {
+        Object value = project.findProperty(PROPERTY_PREFIX + name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.toString());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(
+                    "Project property " + PROPERTY_PREFIX + name + " must be a number, got '" + value + "'", e);
+        }
+    }
+
     private static File junitPath(String basePath, String testPath) {
         Path junitReportsDir = Paths.get(basePath, "junit");
         for (String component : Splitter.on(":").split(testPath.substring(1))) {
@@ -140,21 +359,55 @@ public final class BaselineCircleCi implements Plugin<Project> {
         return junitReportsDir.toFile();
     }
 
-    private static void configureBuildFailureFinalizer(Project rootProject, String circleReportsDir) {
+    /**
+     * Returns {@code dir/prefix.xml}, or {@code dir/prefixN.xml} if earlier builds already wrote a report or other
+     * running builds are journaling one.
+     */
+    private static Path uniqueReportFile(Path dir, String prefix) {
         int attemptNumber = 1;
-        Path targetFile = Paths.get(circleReportsDir, "gradle", "build.xml");
-        while (targetFile.toFile().exists()) {
-            targetFile = Paths.get(circleReportsDir, "gradle", "build" + (++attemptNumber) + ".xml");
+        Path targetFile = dir.resolve(prefix + ".xml");
+        while (targetFile.toFile().exists() || CircleBuildJournal.journalFile(targetFile).toFile().exists()) {
+            targetFile = dir.resolve(prefix + (++attemptNumber) + ".xml");
+        }
+        return targetFile;
+    }
+
+    private static void configureBuildFailureFinalizer(Project rootProject, String circleReportsDir) {
+        Path reportsDir = Paths.get(circleReportsDir, "gradle");
+        ExtraPropertiesExtension extraProperties = rootProject.getExtensions().getExtraProperties();
+        if (!extraProperties.has(JOURNALS_RECOVERED)) {
+            extraProperties.set(JOURNALS_RECOVERED, true);
+            try {
+                // Salvage partial reports from earlier builds that died before they could write them
+                CircleBuildJournal.recoverAll(reportsDir);
+            } catch (IOException | TransformerException e) {
+                rootProject.getLogger().warn("Failed to recover reports of unfinished builds from {}", reportsDir, e);
+            }
         }
-        Integer container;
+
+        Path targetFile = uniqueReportFile(reportsDir, "build");
+        Integer container = circleContainer();
+        CircleBuildJournal journal;
         try {
-            container = Integer.parseInt(System.getenv("CIRCLE_NODE_INDEX"));
-        } catch (NumberFormatException e) {
-            container = null;
+            journal = CircleBuildJournal.create(targetFile, CircleBuildFinishedAction.reportName(container));
+        } catch (IOException e) {
+            throw new RuntimeException("failed to create build journal", e);
         }
-        CircleBuildFailureListener listener = new CircleBuildFailureListener();
+        CircleBuildFailureListener listener = new CircleBuildFailureListener(journal);
         CircleBuildFinishedAction action = new CircleBuildFinishedAction(container, targetFile, listener);
         rootProject.getGradle().addListener(listener);
         rootProject.getGradle().buildFinished(action);
     }
+
+    static void timed(Project project, String phase, Runnable action) {
+        BaselineTimings.of(project).time("BaselineCircleCi", phase, project, action);
+    }
+
+    private static Integer circleContainer() {
+        try {
+            return Integer.parseInt(System.getenv("CIRCLE_NODE_INDEX"));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
 }
@@ -73,27 +73,29 @@ class BaselineEclipse extends AbstractBaselinePlugin {
         // Configure Eclipse JDT Core by merging in Baseline settings.
         project.plugins.withType(EclipsePlugin, { plugin ->
             project.afterEvaluate {
-                project.eclipse {
-                    if (jdt != null) {
-                        // Read baseline configuration from config directory
-                        def baselineJdtCoreProps = new Properties()
-                        def baselineJdtCorePropsFile = project.file("${configDir}/eclipse/org.eclipse.jdt.core.prefs")
-                        if (baselineJdtCorePropsFile.canRead()) {
-                            def reader = baselineJdtCorePropsFile.newReader()
-                            baselineJdtCoreProps.load(reader)
-                            reader.close()
-
-                            def binding = [
-                                javaSourceVersion: project.sourceCompatibility,
-                                javaTargetVersion: project.targetCompatibility]
-
-                            // Merge baseline config into default config
-                            jdt.file.withProperties { Properties baseProperties ->
-                                mergeProperties(baselineJdtCoreProps, baseProperties, binding)
+                timed('afterEvaluate') {
+                    project.eclipse {
+                        if (jdt != null) {
+                            // Read baseline configuration from config directory
+                            def baselineJdtCoreProps = new Properties()
+                            def baselineJdtCorePropsFile = project.file("${configDir}/eclipse/org.eclipse.jdt.core.prefs")
+                            if (baselineJdtCorePropsFile.canRead()) {
+                                def reader = baselineJdtCorePropsFile.newReader()
+                                baselineJdtCoreProps.load(reader)
+                                reader.close()
+
+                                def binding = [
+                                    javaSourceVersion: project.sourceCompatibility,
+                                    javaTargetVersion: project.targetCompatibility]
+
+                                // Merge baseline config into default config
+                                jdt.file.withProperties { Properties baseProperties ->
+                                    mergeProperties(baselineJdtCoreProps, baseProperties, binding)
+                                }
+                            } else {
+                                project.logger.error("Cannot read Baseline Eclipse configuration, not configuring Eclipse: {}",
+                                    baselineJdtCorePropsFile)
                             }
-                        } else {
-                            project.logger.error("Cannot read Baseline Eclipse configuration, not configuring Eclipse: {}",
-                                baselineJdtCorePropsFile)
                         }
                     }
                 }
@@ -103,49 +105,55 @@ class BaselineEclipse extends AbstractBaselinePlugin {
         // Configure Checkstyle/JdtUI settings by copying in the default Baseline config file.
         // Warning: this may interfere with other Gradle plugins that may try to mutate these files.
         project.afterEvaluate { Project p ->
-            def eclipseTemplate = project.task(
-                "eclipseTemplate",
-                group: "Baseline",
-                description: "Update Eclipse settings from stored templates."
-            ).doLast {
-                // Copy static files verbatim.
-                project.copy {
-                    from project.file("${configDir}/eclipse/static")
-                    into project.file(".")
-                    eachFile { fileDetails ->
-                        fileDetails.path = fileDetails.path.replaceAll('dotfile.', '.')
+            timed('afterEvaluate') {
+                def eclipseTemplate = project.task(
+                    "eclipseTemplate",
+                    group: "Baseline",
+                    description: "Update Eclipse settings from stored templates."
+                ).doLast {
+                    // Copy static files verbatim.
+                    project.copy {
+                        from project.file("${configDir}/eclipse/static")
+                        into project.file(".")
+                        eachFile { fileDetails ->
+                            fileDetails.path = fileDetails.path.replaceAll('dotfile.', '.')
+                        }
+                        includeEmptyDirs = false  // Skip directories that become empty due to the renaming above.
                     }
-                    includeEmptyDirs = false  // Skip directories that become empty due to the renaming above.
-                }
 
-                // Copy dynamic templates and replace '${variableName}' markers in source files.
-                project.copy {
-                    from project.file("${configDir}/eclipse/dynamic")
-                    into project.file(".")
-                    eachFile { fileDetails ->
-                        fileDetails.path = fileDetails.path.replaceAll('dotfile.', '.')
+                    // Copy dynamic templates and replace '${variableName}' markers in source files.
+                    project.copy {
+                        from project.file("${configDir}/eclipse/dynamic")
+                        into project.file(".")
+                        eachFile { fileDetails ->
+                            fileDetails.path = fileDetails.path.replaceAll('dotfile.', '.')
+                        }
+                        includeEmptyDirs = false  // Skip directories that become empty due to the renaming above.
+                        expand(configDir: configDir)
                     }
-                    includeEmptyDirs = false  // Skip directories that become empty due to the renaming above.
-                    expand(configDir: configDir)
                 }
-            }
 
-            // Run eclipseTemplate when eclipse task is run
-            eclipseTemplate.onlyIf {
-                project.plugins.hasPlugin(JavaPlugin)
-            }
-            project.tasks.eclipse.dependsOn(eclipseTemplate)
-
-            // Override default Eclipse JRE.
-            if (project.plugins.hasPlugin(JavaPlugin)) {
-                project.tasks.eclipseClasspath.doFirst {
-                    String eclipseClassPath = "org.eclipse.jdt.launching.JRE_CONTAINER/org.eclipse.jdt.internal.debug.ui.launcher.StandardVMType/JavaSE-" + project.sourceCompatibility;
-                    project.eclipse.classpath {
-                        containers.clear()
-                        containers.add(eclipseClassPath)
+                // Run eclipseTemplate when eclipse task is run
+                eclipseTemplate.onlyIf {
+                    project.plugins.hasPlugin(JavaPlugin)
+                }
+                project.tasks.eclipse.dependsOn(eclipseTemplate)
+
+                // Override default Eclipse JRE.
+                if (project.plugins.hasPlugin(JavaPlugin)) {
+                    project.tasks.eclipseClasspath.doFirst {
+                        String eclipseClassPath = "org.eclipse.jdt.launching.JRE_CONTAINER/org.eclipse.jdt.internal.debug.ui.launcher.StandardVMType/JavaSE-" + project.sourceCompatibility;
+                        project.eclipse.classpath {
+                            containers.clear()
+                            containers.add(eclipseClassPath)
+                        }
                     }
                 }
             }
         }
     }
+
+    private void timed(String phase, Closure action) {
+        BaselineTimings.of(project).time('BaselineEclipse', phase, project, action)
+    }
 }
@@ -18,6 +18,7 @@ package com.palantir.baseline.plugins;
 
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
+import com.palantir.baseline.tasks.ErrorProneTimingReportTask;
 import java.io.File;
 import java.util.AbstractList;
 import java.util.List;
@@ -25,6 +26,7 @@ import java.util.stream.Collectors;
 import net.ltgt.gradle.errorprone.ErrorPronePlugin;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.Task;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.plugins.JavaPluginConvention;
 import org.gradle.api.tasks.compile.JavaCompile;
@@ -33,8 +35,19 @@ import org.gradle.api.tasks.testing.Test;
 
 public final class BaselineErrorProne implements Plugin<Project> {
 
+    public static final String EXTENSION_NAME = "baselineErrorProne";
+    private static final String TIMINGS_PLUGIN = "BaselineErrorProneTimings";
+    private static final String TIMING_REPORT_TASK_NAME = "errorProneTimingReport";
+
     @Override
     public void apply(Project project) {
+        BaselineErrorProneExtension extension = project.getExtensions()
+                .create(EXTENSION_NAME, BaselineErrorProneExtension.class);
+        project.afterEvaluate(p -> timed(project, "afterEvaluate", () -> {
+            if (extension.isTimings()) {
+                configureTimings(project);
+            }
+        }));
         project.getPluginManager().withPlugin("java", plugin -> {
             project.getPluginManager().apply(ErrorPronePlugin.class);
             project.getDependencies().add("errorprone", "com.palantir.baseline:baseline-error-prone:latest.release");
@@ -66,6 +79,36 @@ public final class BaselineErrorProne implements Plugin<Project> {
         });
     }
 
+    /**
+     * Records per-check timings through the javac plugin shipped with baseline-error-prone, one file per compile task,
+     * and finalizes every compile task with a root project task aggregating them.
+     */
+    private static void configureTimings(Project project) {
+        Project rootProject = project.getRootProject();
+        File timingsDir = new File(rootProject.getBuildDir(), "error-prone-timings");
+        Task report;
+        synchronized (rootProject) {
+            report = rootProject.getTasks().findByName(TIMING_REPORT_TASK_NAME);
+            if (report == null) {
+                report = rootProject.getTasks().create(
+                        TIMING_REPORT_TASK_NAME, ErrorProneTimingReportTask.class, task -> {
+                            task.setTimingsDir(timingsDir);
+                            task.setReportFile(new File(rootProject.getBuildDir(), "reports/error-prone-timings.txt"));
+                        });
+            }
+        }
+        Task timingReport = report;
+        project.getTasks().withType(JavaCompile.class).configureEach(compile -> {
+            File timings = new File(timingsDir, compile.getPath().substring(1).replace(':', '-') + ".tsv");
+            compile.getOptions().getCompilerArgs().add("-Xplugin:" + TIMINGS_PLUGIN + " " + timings);
+            compile.finalizedBy(timingReport);
+        });
+    }
+
+    private static void timed(Project project, String phase, Runnable action) {
+        BaselineTimings.of(project).time("BaselineErrorProne", phase, project, action);
+    }
+
     private static final class LazyConfigurationList extends AbstractList<File> {
         private final FileCollection files;
         private List<File> fileList;
@@ -0,0 +1,35 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.plugins;
+
+/** Configures the {@link BaselineErrorProne} plugin, as {@code baselineErrorProne { ... }}. */
+public class BaselineErrorProneExtension {
+
+    private boolean timings;
+
+    /**
+     * Whether to record the time every error-prone check takes in each compile task, and write a report ranking the
+     * checks across all compile tasks to {@code build/reports/error-prone-timings.txt} of the root project.
+     */
+    public final boolean isTimings() {
+        return timings;
+    }
+
+    public final void setTimings(boolean timings) {
+        this.timings = timings;
+    }
+}
@@ -31,33 +31,43 @@ class BaselineIdea extends AbstractBaselinePlugin {
 
         project.plugins.apply IdeaPlugin
         project.afterEvaluate {
+            timed('afterEvaluate') {
 
-            // Configure Idea project
-            IdeaModel ideaRootModel = project.rootProject.extensions.findByType(IdeaModel)
-            if (ideaRootModel) {
-                ideaRootModel.project.ipr.withXml { provider ->
-                    def node = provider.asNode()
-                    addCodeStyle(node)
-                    addCopyright(node)
-                    addCheckstyle(node)
-                    addGit(node)
-                    addInspectionProjectProfile(node)
-                }
+                // Configure Idea project
+                IdeaModel ideaRootModel = project.rootProject.extensions.findByType(IdeaModel)
+                if (ideaRootModel) {
+                    ideaRootModel.project.ipr.withXml { provider ->
+                        timed('withXml') {
+                            def node = provider.asNode()
+                            addCodeStyle(node)
+                            addCopyright(node)
+                            addCheckstyle(node)
+                            addGit(node)
+                            addInspectionProjectProfile(node)
+                        }
+                    }
 
-                ideaRootModel.workspace.iws.withXml { provider ->
-                    def node = provider.asNode()
-                    setRunManagerWorkingDirectory(node)
+                    ideaRootModel.workspace.iws.withXml { provider ->
+                        timed('withXml') {
+                            def node = provider.asNode()
+                            setRunManagerWorkingDirectory(node)
+                        }
+                    }
                 }
-            }
 
-            // Configure Idea module
-            IdeaModel ideaModuleModel = project.extensions.findByType(IdeaModel)
-            addJdkVersion(ideaModuleModel)
-            markResourcesDirs(ideaModuleModel);
-            moveProjectReferencesToEnd(ideaModuleModel);
+                // Configure Idea module
+                IdeaModel ideaModuleModel = project.extensions.findByType(IdeaModel)
+                addJdkVersion(ideaModuleModel)
+                markResourcesDirs(ideaModuleModel);
+                moveProjectReferencesToEnd(ideaModuleModel);
+            }
         }
     }
 
+    private void timed(String phase, Closure action) {
+        BaselineTimings.of(project).time('BaselineIdea', phase, project, action)
+    }
+
     /**
      * Extracts IDEA formatting configurations from Baseline directory and adds it to the Idea project XML node.
      */
@@ -200,8 +210,10 @@ class BaselineIdea extends AbstractBaselinePlugin {
             }
 
             ideaModel.module.jdkName = javaVersion
-            ideaModel.module.iml.withXml {
-                it.asNode().component.find { it.@name == 'NewModuleRootManager' }.@LANGUAGE_LEVEL = jdkVersion
+            ideaModel.module.iml.withXml { provider ->
+                timed('withXml') {
+                    provider.asNode().component.find { it.@name == 'NewModuleRootManager' }.@LANGUAGE_LEVEL = jdkVersion
+                }
             }
         } else {
             project.logger.debug("BaselineIdea: No Java version found in sourceCompatibility property.")
@@ -212,14 +224,16 @@ class BaselineIdea extends AbstractBaselinePlugin {
      * By default the Idea plugin marks resources dirs as source dirs.
      */
     private void markResourcesDirs(IdeaModel ideaModel) {
-        ideaModel.module.iml.withXml {
-            def node = it.asNode()
-            def content = node.component.find { it.'@name' == 'NewModuleRootManager' }.content[0]
-            content.sourceFolder.each { sourceFolder ->
-                if(sourceFolder.@url?.endsWith('/resources')) {
-                    sourceFolder.attributes().with {
-                        boolean isTestSource = (remove('isTestSource') == 'true')
-                        put('type', isTestSource ? 'java-test-resource' : 'java-resource')
+        ideaModel.module.iml.withXml { provider ->
+            timed('withXml') {
+                def node = provider.asNode()
+                def content = node.component.find { it.'@name' == 'NewModuleRootManager' }.content[0]
+                content.sourceFolder.each { sourceFolder ->
+                    if(sourceFolder.@url?.endsWith('/resources')) {
+                        sourceFolder.attributes().with {
+                            boolean isTestSource = (remove('isTestSource') == 'true')
+                            put('type', isTestSource ? 'java-test-resource' : 'java-resource')
+                        }
                     }
                 }
             }
@@ -243,9 +257,11 @@ class BaselineIdea extends AbstractBaselinePlugin {
      */
     private void moveProjectReferencesToEnd(IdeaModel ideaModel) {
         ideaModel.module.iml.whenMerged { module ->
-            def projectRefs = module.dependencies.findAll { it instanceof org.gradle.plugins.ide.idea.model.ModuleDependency }
-            module.dependencies.removeAll(projectRefs)
-            module.dependencies.addAll(projectRefs)
+            timed('whenMerged') {
+                def projectRefs = module.dependencies.findAll { it instanceof org.gradle.plugins.ide.idea.model.ModuleDependency }
+                module.dependencies.removeAll(projectRefs)
+                module.dependencies.addAll(projectRefs)
+            }
         }
     }
 }
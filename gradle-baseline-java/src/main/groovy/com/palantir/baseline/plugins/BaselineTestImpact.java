@@ -0,0 +1,203 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.plugins;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.palantir.baseline.tasks.BuildHistory;
+import com.palantir.baseline.tasks.ClassDependencyGraph;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.gradle.api.Project;
+import org.gradle.api.tasks.StopExecutionException;
+import org.gradle.api.tasks.testing.Test;
+import org.gradle.api.tasks.testing.TestDescriptor;
+import org.gradle.api.tasks.testing.TestListener;
+import org.gradle.api.tasks.testing.TestResult;
+
+/**
+ * Test impact analysis: restricts every {@link Test} task to the test classes that transitively reference a class
+ * that changed since the last successful run of the task, based on a class-level dependency graph read from the
+ * bytecode on the test runtime classpath (see {@link ClassDependencyGraph}).
+ *
+ * <p>The whole suite runs whenever the analysis can't be trusted: without a previous state, or when build scripts,
+ * resources or external jars changed. Dependencies that don't show up in bytecode, such as reflection or service
+ * loading, are not detected.
+ */
+public class BaselineTestImpact extends AbstractBaselinePlugin {
+
+    private static final String PROPERTY_PREFIX = "baselineTestImpact.";
+
+    @Override
+    public final void apply(Project project) {
+        this.project = project;
+        project.getPlugins().withId("java", plugin ->
+                project.getTasks().withType(Test.class, test -> new Analysis(test).configure()));
+    }
+
+    private final class Analysis {
+        private final Test test;
+        private final Path stateFile;
+        private final AtomicLong failures = new AtomicLong();
+        private ClassDependencyGraph current;
+
+        private Analysis(Test test) {
+            this.test = test;
+            Object stateDir = project.findProperty(PROPERTY_PREFIX + "stateDir");
+            Path stateDirPath = stateDir != null
+                    ? project.getRootProject().file(stateDir).toPath()
+                    : BuildHistory.defaultDirectory(project).resolve("test-impact");
+            this.stateFile = stateDirPath.resolve("test-impact" + test.getPath().replace(':', '-') + ".tsv");
+        }
+
+        void configure() {
+            test.doFirst(task -> selectTests());
+            test.addTestListener(new FailureCounter());
+            // Only reached when the tests passed (or failures are ignored, hence the counter)
+            test.doLast(task -> {
+                if (current != null && failures.get() == 0) {
+                    saveState();
+                }
+            });
+        }
+
+        private void selectTests() {
+            // Tasks already filtered, e.g. with --tests, run as requested and leave the state alone
+            if (!test.getFilter().getIncludePatterns().isEmpty()) {
+                return;
+            }
+            try {
+                current = ClassDependencyGraph.analyze(
+                        test.getClasspath(), file -> file.toPath().startsWith(project.getRootDir().toPath()));
+                current.putFingerprint("build", buildFingerprint());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to analyze the test classpath of " + test.getPath(), e);
+            }
+
+            if (Boolean.parseBoolean(String.valueOf(project.findProperty(PROPERTY_PREFIX + "fullSuite")))) {
+                test.getLogger().lifecycle("Running all tests of {} as requested", test.getPath());
+                return;
+            }
+            if (!Files.isRegularFile(stateFile)) {
+                test.getLogger().lifecycle("Running all tests of {}, no previous run to compare with", test.getPath());
+                return;
+            }
+            ClassDependencyGraph previous;
+            try {
+                previous = ClassDependencyGraph.read(stateFile);
+            } catch (IOException e) {
+                test.getLogger().warn("Running all tests of {}, failed to read {}", test.getPath(), stateFile, e);
+                return;
+            }
+            Set<String> changedFingerprints = current.changedFingerprints(previous);
+            if (!changedFingerprints.isEmpty()) {
+                test.getLogger().lifecycle("Running all tests of {}, changed: {}", test.getPath(), changedFingerprints);
+                return;
+            }
+
+            Set<String> changedClasses = current.changedClasses(previous);
+            Set<String> affectedTests = current.dependentsOf(changedClasses).stream()
+                    .filter(testClassNames()::contains)
+                    .map(className -> className.contains("$")
+                            ? className.substring(0, className.indexOf('$'))
+                            : className)
+                    .collect(Collectors.toCollection(TreeSet::new));
+            if (affectedTests.isEmpty()) {
+                test.getLogger().lifecycle("Skipping {}, no tests are affected by {} changed classes",
+                        test.getPath(), changedClasses.size());
+                saveState();
+                throw new StopExecutionException();
+            }
+            test.getLogger().lifecycle("Running {} test classes of {} affected by {} changed classes",
+                    affectedTests.size(), test.getPath(), changedClasses.size());
+            test.getLogger().info("Changed classes: {}, affected tests: {}", changedClasses, affectedTests);
+            test.getFilter().setFailOnNoMatchingTests(false);
+            affectedTests.forEach(test.getFilter()::includeTestsMatching);
+        }
+
+        private Set<String> testClassNames() {
+            Set<String> classNames = new TreeSet<>();
+            // Visited as a file tree, the directories may have been replaced by one, see TestPrioritization
+            test.getTestClassesDirs().getAsFileTree().visit(file -> {
+                if (!file.isDirectory() && file.getName().endsWith(".class")) {
+                    classNames.add(ClassDependencyGraph.className(file.getPath()));
+                }
+            });
+            return classNames;
+        }
+
+        private void saveState() {
+            try {
+                current.write(stateFile);
+            } catch (IOException e) {
+                test.getLogger().warn("Failed to save test impact state to {}", stateFile, e);
+            }
+        }
+
+        /** Hash of the settings and build scripts of all projects, and of the root project's gradle directory. */
+        private String buildFingerprint() throws IOException {
+            Project rootProject = project.getRootProject();
+            Set<File> files = new TreeSet<>();
+            files.add(rootProject.file("settings.gradle"));
+            files.add(rootProject.file("settings.gradle.kts"));
+            files.add(rootProject.file("gradle.properties"));
+            files.add(rootProject.file("versions.props"));
+            rootProject.getAllprojects().forEach(proj -> files.add(proj.getBuildFile()));
+            File gradleDir = rootProject.file("gradle");
+            if (gradleDir.isDirectory()) {
+                try (Stream<Path> gradleFiles = Files.walk(gradleDir.toPath())) {
+                    gradleFiles.filter(Files::isRegularFile).forEach(file -> files.add(file.toFile()));
+                }
+            }
+
+            Hasher hasher = Hashing.sha256().newHasher();
+            for (File file : files) {
+                if (file.isFile()) {
+                    hasher.putUnencodedChars(rootProject.relativePath(file))
+                            .putBytes(Files.readAllBytes(file.toPath()));
+                }
+            }
+            return hasher.hash().toString();
+        }
+
+        private final class FailureCounter implements TestListener {
+            @Override
+            public void beforeSuite(TestDescriptor suite) {}
+
+            @Override
+            public void afterSuite(TestDescriptor suite, TestResult result) {
+                if (suite.getParent() == null) {
+                    failures.addAndGet(result.getFailedTestCount());
+                }
+            }
+
+            @Override
+            public void beforeTest(TestDescriptor testDescriptor) {}
+
+            @Override
+            public void afterTest(TestDescriptor testDescriptor, TestResult result) {}
+        }
+    }
+}
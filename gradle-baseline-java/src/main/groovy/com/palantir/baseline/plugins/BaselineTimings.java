@@ -0,0 +1,158 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.plugins;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.gradle.api.Project;
+import org.gradle.api.logging.LogLevel;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+/**
+ * Records the configuration time spent in Baseline plugins, broken down by plugin, phase (e.g. {@code apply},
+ * {@code afterEvaluate}, {@code whenReady}, {@code withXml}) and project. A single instance is shared by all projects
+ * of a build; the totals are logged when the build finishes (at lifecycle level with {@code --profile}, otherwise at
+ * info level) and written to {@code $CIRCLE_ARTIFACTS/baseline-timings.tsv} if that variable is set.
+ */
+final class BaselineTimings {
+
+    private static final Logger log = Logging.getLogger(BaselineTimings.class);
+    private static final String EXTENSION_NAME = "baselineTimings";
+
+    private final Map<String, Timing> timings = new ConcurrentHashMap<>();
+
+    private BaselineTimings() {}
+
+    static BaselineTimings of(Project project) {
+        Project rootProject = project.getRootProject();
+        synchronized (rootProject) {
+            BaselineTimings timings = (BaselineTimings) rootProject.getExtensions().findByName(EXTENSION_NAME);
+            if (timings == null) {
+                timings = new BaselineTimings();
+                rootProject.getExtensions().add(EXTENSION_NAME, timings);
+                LogLevel level = rootProject.getGradle().getStartParameter().isProfile()
+                        ? LogLevel.LIFECYCLE
+                        : LogLevel.INFO;
+                BaselineTimings registered = timings;
+                rootProject.getGradle().buildFinished(result -> registered.report(level));
+            }
+            return timings;
+        }
+    }
+
+    /** Runs {@code action}, attributing its duration to the given plugin, phase and project. */
+    void time(String plugin, String phase, Project project, Runnable action) {
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            timings.computeIfAbsent(plugin + '\t' + phase + '\t' + project.getPath(),
+                    key -> new Timing(plugin, phase, project.getPath()))
+                    .add(elapsed);
+        }
+    }
+
+    private void report(LogLevel level) {
+        List<Timing> perProject = new ArrayList<>(timings.values());
+        if (perProject.isEmpty()) {
+            return;
+        }
+        perProject.sort(Comparator.comparingLong(Timing::nanos).reversed());
+
+        if (log.isEnabled(level)) {
+            Map<String, List<Timing>> byPhase = perProject.stream()
+                    .collect(Collectors.groupingBy(timing -> timing.plugin + " " + timing.phase));
+            log.log(level, "Baseline plugin configuration time:");
+            byPhase.entrySet().stream()
+                    .sorted(Comparator.comparingLong(
+                            (Map.Entry<String, List<Timing>> entry) -> totalNanos(entry.getValue())).reversed())
+                    .forEach(entry -> {
+                        Timing slowest = entry.getValue().get(0);
+                        log.log(level, "  {}: {}ms across {} projects (slowest {}: {}ms)",
+                                entry.getKey(),
+                                TimeUnit.NANOSECONDS.toMillis(totalNanos(entry.getValue())),
+                                entry.getValue().size(),
+                                slowest.project,
+                                TimeUnit.NANOSECONDS.toMillis(slowest.nanos()));
+                    });
+        }
+
+        String circleArtifactsDir = System.getenv("CIRCLE_ARTIFACTS");
+        if (circleArtifactsDir != null) {
+            Path file = Paths.get(circleArtifactsDir, "baseline-timings.tsv");
+            try {
+                Files.createDirectories(file.getParent());
+            } catch (IOException e) {
+                log.warn("Failed to create {}", file.getParent(), e);
+                return;
+            }
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                writer.write("plugin\tphase\tproject\tcount\tmillis\n");
+                for (Timing timing : perProject) {
+                    writer.write(timing.plugin + '\t' + timing.phase + '\t' + timing.project + '\t' + timing.count()
+                            + '\t' + TimeUnit.NANOSECONDS.toMillis(timing.nanos()) + '\n');
+                }
+            } catch (IOException e) {
+                log.warn("Failed to write Baseline timings to {}", file, e);
+            }
+        }
+    }
+
+    private static long totalNanos(List<Timing> timings) {
+        return timings.stream().mapToLong(Timing::nanos).sum();
+    }
+
+    private static final class Timing {
+        private final String plugin;
+        private final String phase;
+        private final String project;
+        private long nanos;
+        private int count;
+
+        Timing(String plugin, String phase, String project) {
+            this.plugin = plugin;
+            this.phase = phase;
+            this.project = project;
+        }
+
+        synchronized void add(long elapsedNanos) {
+            nanos += elapsedNanos;
+            count++;
+        }
+
+        synchronized long nanos() {
+            return nanos;
+        }
+
+        synchronized int count() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.plugins;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.gradle.BuildResult;
+import org.gradle.api.Action;
+import org.gradle.api.Task;
+import org.gradle.api.execution.TaskExecutionListener;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.tasks.TaskState;
+
+/**
+ * Records for every task whether it was cacheable (and why not), and whether it was loaded from the build cache,
+ * up-to-date or executed. When the build finishes, writes a TSV of all tasks and a text report that ranks the tasks
+ * that executed by their duration, i.e. the time a cache hit would have saved.
+ */
+final class BuildCacheReport implements TaskExecutionListener, Action<BuildResult> {
+
+    private static final Logger log = Logging.getLogger(BuildCacheReport.class);
+    private static final int TOP_COUNT = 30;
+
+    private final Path tsvFile;
+    private final Path reportFile;
+    private final Map<Task, Long> startNanos = new ConcurrentHashMap<>();
+    private final List<TaskRecord> records = new ArrayList<>();
+
+    BuildCacheReport(Path tsvFile, Path reportFile) {
+        this.tsvFile = tsvFile;
+        this.reportFile = reportFile;
+    }
+
+    @Override
+    public void beforeExecute(Task task) {
+        startNanos.put(task, System.nanoTime());
+    }
+
+    @Override
+    public void afterExecute(Task task, TaskState state) {
+        Long started = startNanos.remove(task);
+        long millis = started == null ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        String outcome = state.getSkipMessage() != null ? state.getSkipMessage() : "EXECUTED";
+        String disabledReason = cachingDisabledReason(state);
+        synchronized (records) {
+            records.add(new TaskRecord(task.getPath(), task.getClass().getName().replace("_Decorated", ""),
+                    outcome, disabledReason == null, disabledReason, millis));
+        }
+    }
+
+    @Override
+    public void execute(BuildResult result) {
+        try {
+            Files.createDirectories(tsvFile.getParent());
+            writeTsv();
+            writeReport();
+        } catch (IOException e) {
+            log.warn("Failed to write build cache report to {}", reportFile, e);
+        }
+    }
+
+    private void writeTsv() throws IOException {
+        try (Writer writer = Files.newBufferedWriter(tsvFile, StandardCharsets.UTF_8)) {
+            writer.write("task\ttype\toutcome\tcacheable\tnotCacheableReason\tmillis\n");
+            for (TaskRecord record : records) {
+                writer.write(String.join("\t", record.path, record.type, record.outcome,
+                        String.valueOf(record.cacheable), record.notCacheableReason == null
+                                ? ""
+                                : record.notCacheableReason.replaceAll("\\s+", " "),
+                        String.valueOf(record.millis)) + "\n");
+            }
+        }
+    }
+
+    private void writeReport() throws IOException {
+        Map<String, Long> countsByOutcome = records.stream()
+                .collect(Collectors.groupingBy(record -> record.outcome, Collectors.counting()));
+        long fromCache = countsByOutcome.getOrDefault("FROM-CACHE", 0L);
+        long cacheMisses = records.stream()
+                .filter(record -> record.cacheable && record.outcome.equals("EXECUTED"))
+                .count();
+        List<TaskRecord> executed = records.stream()
+                .filter(record -> record.outcome.equals("EXECUTED"))
+                .sorted(Comparator.comparingLong((TaskRecord record) -> record.millis).reversed())
+                .collect(Collectors.toList());
+
+        try (Writer writer = Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8)) {
+            writer.write(String.format("%d tasks: %s%n", records.size(), new TreeMap<>(countsByOutcome)));
+            if (fromCache + cacheMisses > 0) {
+                writer.write(String.format("Cache hit rate of cacheable tasks: %.0f%% (%d of %d)%n",
+                        100.0 * fromCache / (fromCache + cacheMisses), fromCache, fromCache + cacheMisses));
+            }
+            writer.write(String.format("%nTime lost to cache misses:%n"));
+            writeTasks(writer, executed.stream().filter(record -> record.cacheable), record -> "");
+            writer.write(String.format("%nTime spent in tasks that could not be cached:%n"));
+            writeTasks(writer, executed.stream().filter(record -> !record.cacheable),
+                    record -> " (" + record.notCacheableReason + ")");
+        }
+    }
+
+    private static void writeTasks(Writer writer, Stream<TaskRecord> tasks, Function<TaskRecord, String> suffix)
+            throws IOException {
+        for (TaskRecord record : tasks.limit(TOP_COUNT).collect(Collectors.toList())) {
+            writer.write(String.format("%10s  %s%s%n",
+                    String.format("%.3fs", record.millis / 1000.0), record.path, suffix.apply(record)));
+        }
+    }
+
+    /**
+     * Why the outputs of a task could not be cached, or {@code null} if they could. Gradle only exposes this through
+     * its internal task state, so it's read reflectively; unknown when that API isn't available.
+     */
+    private static String cachingDisabledReason(TaskState state) {
+        try {
+            Object caching = invoke(state, "getTaskOutputCaching");
+            if ((Boolean) invoke(caching, "isEnabled")) {
+                return null;
+            }
+            Object reason = invoke(caching, "getDisabledReason");
+            return reason != null ? reason.toString() : "unknown";
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return "unknown";
+        }
+    }
+
+    private static Object invoke(Object target, String methodName) throws ReflectiveOperationException {
+        // Implementations of internal interfaces aren't necessarily public
+        Method method = target.getClass().getMethod(methodName);
+        method.setAccessible(true);
+        return method.invoke(target);
+    }
+
+    private static final class TaskRecord {
+        private final String path;
+        private final String type;
+        private final String outcome;
+        private final boolean cacheable;
+        private final String notCacheableReason;
+        private final long millis;
+
+        private TaskRecord(
+                String path, String type, String outcome, boolean cacheable, String notCacheableReason, long millis) {
+            this.path = path;
+            this.type = type;
+            this.outcome = outcome;
+            this.cacheable = cacheable;
+            this.notCacheableReason = notCacheableReason;
+            this.millis = millis;
+        }
+    }
+}
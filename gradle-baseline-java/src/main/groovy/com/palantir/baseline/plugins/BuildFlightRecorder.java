@@ -0,0 +1,181 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.plugins;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import org.gradle.BuildResult;
+import org.gradle.api.Action;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+/**
+ * Records the build process with Java Flight Recorder from configuration time until the build finishes, then dumps the
+ * recording and writes a short text summary of the hottest methods, top allocation sites and GC pauses next to it.
+ * The recording is controlled through the {@code DiagnosticCommand} MBean, like {@code jcmd JFR.start} would.
+ */
+final class BuildFlightRecorder implements Action<BuildResult> {
+
+    private static final Logger log = Logging.getLogger(BuildFlightRecorder.class);
+    private static final String RECORDING_NAME = "baseline-build";
+    private static final int TOP_COUNT = 20;
+
+    private final Path recordingFile;
+    private final Path summaryFile;
+
+    private BuildFlightRecorder(Path recordingFile, Path summaryFile) {
+        this.recordingFile = recordingFile;
+        this.summaryFile = summaryFile;
+    }
+
+    /** Starts recording, returning the action that stops it, or {@code null} if this JVM can't record. */
+    static BuildFlightRecorder start(Path recordingFile, Path summaryFile) {
+        try {
+            // A daemon that didn't see the end of its previous build may still be recording
+            diagnosticCommand("jfrStop", "name=" + RECORDING_NAME);
+        } catch (JMException e) {
+            // No such recording, as expected
+        }
+        try {
+            diagnosticCommand("jfrStart", "name=" + RECORDING_NAME, "settings=profile");
+        } catch (JMException e) {
+            log.warn("Failed to start a flight recording of the build, is JFR available in this JVM?", e);
+            return null;
+        }
+        return new BuildFlightRecorder(recordingFile, summaryFile);
+    }
+
+    @Override
+    public void execute(BuildResult result) {
+        try {
+            Files.createDirectories(recordingFile.getParent());
+            diagnosticCommand("jfrStop", "name=" + RECORDING_NAME, "filename=" + recordingFile.toAbsolutePath());
+        } catch (IOException | JMException e) {
+            log.warn("Failed to write the flight recording of the build to {}", recordingFile, e);
+            return;
+        }
+        if (!JfrEvents.isSupported()) {
+            log.info("Summarizing flight recordings requires Java 11 or later, see {}", recordingFile);
+            return;
+        }
+        try {
+            writeSummary();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to summarize the flight recording {}", recordingFile, e);
+        }
+    }
+
+    private void writeSummary() throws IOException {
+        Map<String, Double> samplesByMethod = new HashMap<>();
+        Map<String, Double> bytesBySite = new HashMap<>();
+        Map<String, GcPauses> pausesByCollector = new TreeMap<>();
+        JfrEvents.forEach(recordingFile, event -> {
+            switch (event.type()) {
+                case "jdk.ExecutionSample":
+                    samplesByMethod.merge(topFrame(event), 1.0, Double::sum);
+                    break;
+                case "jdk.ObjectAllocationSample":
+                    bytesBySite.merge(topFrame(event), event.getDouble("weight"), Double::sum);
+                    break;
+                case "jdk.ObjectAllocationInNewTLAB":
+                    bytesBySite.merge(topFrame(event), event.getDouble("tlabSize"), Double::sum);
+                    break;
+                case "jdk.ObjectAllocationOutsideTLAB":
+                    bytesBySite.merge(topFrame(event), event.getDouble("allocationSize"), Double::sum);
+                    break;
+                case "jdk.GarbageCollection":
+                    GcPauses pauses = pausesByCollector.computeIfAbsent(
+                            String.valueOf(event.get("name")), name -> new GcPauses());
+                    Duration pause = event.getDuration("sumOfPauses");
+                    pauses.count++;
+                    pauses.total = pauses.total.plus(pause);
+                    pauses.longest = pause.compareTo(pauses.longest) > 0 ? pause : pauses.longest;
+                    break;
+                default:
+                    break;
+            }
+        });
+
+        double totalSamples = samplesByMethod.values().stream().mapToDouble(Double::doubleValue).sum();
+        try (Writer writer = Files.newBufferedWriter(summaryFile, StandardCharsets.UTF_8)) {
+            writer.write(String.format("Hot methods (share of %.0f execution samples):%n", totalSamples));
+            writeTop(writer, samplesByMethod, samples -> String.format("%.1f%%", 100 * samples / totalSamples));
+            writer.write(String.format("%nAllocation sites (estimated bytes allocated):%n"));
+            writeTop(writer, bytesBySite, bytes -> String.format("%.1f MB", bytes / 1e6));
+            writer.write(String.format("%nGC pauses:%n"));
+            for (Map.Entry<String, GcPauses> collector : pausesByCollector.entrySet()) {
+                GcPauses pauses = collector.getValue();
+                writer.write(String.format("%10s  %s: %d collections, longest pause %s%n",
+                        seconds(pauses.total), collector.getKey(), pauses.count, seconds(pauses.longest)));
+            }
+        }
+    }
+
+    private static void writeTop(Writer writer, Map<String, Double> values, Function<Double, String> format)
+            throws IOException {
+        List<Map.Entry<String, Double>> top = values.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                .limit(TOP_COUNT)
+                .collect(Collectors.toList());
+        for (Map.Entry<String, Double> entry : top) {
+            writer.write(String.format("%10s  %s%n", format.apply(entry.getValue()), entry.getKey()));
+        }
+    }
+
+    private static String topFrame(JfrEvents.Event event) {
+        Object frames = event.get("stackTrace.frames");
+        if (!(frames instanceof Object[]) || ((Object[]) frames).length == 0) {
+            return "<unknown>";
+        }
+        Object frame = ((Object[]) frames)[0];
+        // Type names are in internal form, e.g. java/lang/String
+        return String.valueOf(JfrEvents.value(frame, "method.type.name")).replace('/', '.')
+                + "." + JfrEvents.value(frame, "method.name");
+    }
+
+    private static String seconds(Duration duration) {
+        return String.format("%.3fs", duration.toNanos() / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private static void diagnosticCommand(String operation, String... arguments) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().invoke(
+                new ObjectName("com.sun.management:type=DiagnosticCommand"),
+                operation,
+                new Object[] {arguments},
+                new String[] {String[].class.getName()});
+    }
+
+    private static final class GcPauses {
+        private int count;
+        private Duration total = Duration.ZERO;
+        private Duration longest = Duration.ZERO;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.plugins;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * CPU and memory available to this process, taking cgroup (v1 and v2) limits of the surrounding container into
+ * account, which older JVMs and the operating system's totals don't.
+ */
+final class ContainerResources {
+
+    // cgroup v1 reports "no limit" as a huge page-aligned number rather than a marker
+    private static final long UNLIMITED_MEMORY_THRESHOLD = Long.MAX_VALUE / 2;
+
+    private final int cpus;
+    private final long memoryBytes;
+
+    ContainerResources(int cpus, long memoryBytes) {
+        this.cpus = cpus;
+        this.memoryBytes = memoryBytes;
+    }
+
+    static ContainerResources detect() {
+        return detect(Paths.get("/sys/fs/cgroup"));
+    }
+
+    static ContainerResources detect(Path cgroupRoot) {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        Optional<Double> cpuLimit = cpuLimit(cgroupRoot);
+        if (cpuLimit.isPresent()) {
+            cpus = (int) Math.max(1, Math.min(cpus, Math.ceil(cpuLimit.get())));
+        }
+        long memoryBytes = physicalMemory();
+        Optional<Long> memoryLimit = memoryLimit(cgroupRoot);
+        if (memoryLimit.isPresent()) {
+            memoryBytes = memoryBytes > 0 ? Math.min(memoryBytes, memoryLimit.get()) : memoryLimit.get();
+        }
+        return new ContainerResources(cpus, memoryBytes);
+    }
+
+    int cpus() {
+        return cpus;
+    }
+
+    /** Memory available to the container, or {@code 0} if unknown. */
+    long memoryBytes() {
+        return memoryBytes;
+    }
+
+    private static Optional<Double> cpuLimit(Path cgroupRoot) {
+        // v2: "<quota> <period>", or "max <period>" without a limit
+        Optional<String[]> cpuMax = readFirstLine(cgroupRoot.resolve("cpu.max")).map(line -> line.split(" "));
+        if (cpuMax.isPresent()) {
+            String[] fields = cpuMax.get();
+            return fields.length == 2 && !fields[0].equals("max")
+                    ? ratio(fields[0], fields[1])
+                    : Optional.empty();
+        }
+        // v1: quota of -1 without a limit
+        Optional<String> quota = readFirstLine(cgroupRoot.resolve("cpu/cpu.cfs_quota_us"));
+        Optional<String> period = readFirstLine(cgroupRoot.resolve("cpu/cpu.cfs_period_us"));
+        if (quota.isPresent() && period.isPresent() && !quota.get().startsWith("-")) {
+            return ratio(quota.get(), period.get());
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<Long> memoryLimit(Path cgroupRoot) {
+        Optional<String> limit = readFirstLine(cgroupRoot.resolve("memory.max"));
+        if (!limit.isPresent()) {
+            limit = readFirstLine(cgroupRoot.resolve("memory/memory.limit_in_bytes"));
+        }
+        try {
+            return limit.map(Long::parseLong).filter(bytes -> bytes > 0 && bytes < UNLIMITED_MEMORY_THRESHOLD);
+        } catch (NumberFormatException e) {
+            // "max", i.e. no limit
+            return Optional.empty();
+        }
+    }
+
+    private static Optional<Double> ratio(String quota, String period) {
+        try {
+            double periodValue = Double.parseDouble(period);
+            return periodValue > 0 ? Optional.of(Double.parseDouble(quota) / periodValue) : Optional.empty();
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static Optional<String> readFirstLine(Path file) {
+        if (!Files.isReadable(file)) {
+            return Optional.empty();
+        }
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            return lines.isEmpty() ? Optional.empty() : Optional.of(lines.get(0).trim());
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    /** Total physical memory through the HotSpot-specific MXBean, which isn't available on every JVM. */
+    private static long physicalMemory() {
+        OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+        try {
+            Class<?> hotspotBean = Class.forName("com.sun.management.OperatingSystemMXBean");
+            if (!hotspotBean.isInstance(bean)) {
+                return 0;
+            }
+            return ((Number) hotspotBean.getMethod("getTotalPhysicalMemorySize").invoke(bean)).longValue();
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.plugins;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Consumer;
+
+/**
+ * Streams the events of a Java Flight Recorder file. The {@code jdk.jfr.consumer} API only exists on Java 11+, while
+ * this plugin has to load on Java 8, so it is accessed reflectively; check {@link #isSupported} before reading.
+ */
+final class JfrEvents {
+
+    private static final Api API = Api.load();
+
+    private JfrEvents() {}
+
+    static boolean isSupported() {
+        return API != null;
+    }
+
+    /** Passes every event in {@code recording} to {@code consumer}, in file order. */
+    static void forEach(Path recording, Consumer<Event> consumer) throws IOException {
+        if (API == null) {
+            throw new UnsupportedOperationException("Reading JFR recordings requires Java 11 or later");
+        }
+        AutoCloseable file = (AutoCloseable) API.invoke(() -> API.recordingFileConstructor.newInstance(recording));
+        try {
+            while ((Boolean) API.invoke(() -> API.hasMoreEvents.invoke(file))) {
+                Object event = API.invoke(() -> API.readEvent.invoke(file));
+                consumer.accept(new Event(event));
+            }
+        } finally {
+            try {
+                file.close();
+            } catch (Exception e) {
+                // Nothing left to read, so a failure to close loses nothing
+            }
+        }
+    }
+
+    /**
+     * Returns the value of a (possibly dotted, e.g. {@code method.type.name}) field of a recorded object, such as an
+     * event, stack frame or method; nested objects and lists of them can be passed back in.
+     */
+    static Object value(Object recordedObject, String field) {
+        try {
+            return API.invoke(() -> API.getValue.invoke(recordedObject, field));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static final class Event {
+        private final Object event;
+
+        private Event(Object event) {
+            this.event = event;
+        }
+
+        String type() {
+            Object eventType = value(() -> API.getEventType.invoke(event));
+            return (String) value(() -> API.getName.invoke(eventType));
+        }
+
+        Instant startTime() {
+            return (Instant) value(() -> API.getStartTime.invoke(event));
+        }
+
+        Duration duration() {
+            return (Duration) value(() -> API.getDuration.invoke(event));
+        }
+
+        Object get(String field) {
+            return JfrEvents.value(event, field);
+        }
+
+        /** Returns a timespan field, which {@link #get} would return as a raw number of ticks. */
+        Duration getDuration(String field) {
+            return (Duration) value(() -> API.getDurationField.invoke(event, field));
+        }
+
+        double getDouble(String field) {
+            Object fieldValue = get(field);
+            return fieldValue instanceof Number ? ((Number) fieldValue).doubleValue() : 0;
+        }
+
+        private static Object value(Reflective call) {
+            try {
+                return API.invoke(call);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private interface Reflective {
+        Object call() throws ReflectiveOperationException;
+    }
+
+    private static final class Api {
+        private final Constructor<?> recordingFileConstructor;
+        private final Method hasMoreEvents;
+        private final Method readEvent;
+        private final Method getValue;
+        private final Method getDurationField;
+        private final Method getEventType;
+        private final Method getName;
+        private final Method getStartTime;
+        private final Method getDuration;
+
+        private Api(ClassLoader loader) throws ReflectiveOperationException {
+            Class<?> recordingFile = Class.forName("jdk.jfr.consumer.RecordingFile", false, loader);
+            Class<?> recordedObject = Class.forName("jdk.jfr.consumer.RecordedObject", false, loader);
+            Class<?> recordedEvent = Class.forName("jdk.jfr.consumer.RecordedEvent", false, loader);
+            recordingFileConstructor = recordingFile.getConstructor(Path.class);
+            hasMoreEvents = recordingFile.getMethod("hasMoreEvents");
+            readEvent = recordingFile.getMethod("readEvent");
+            getValue = recordedObject.getMethod("getValue", String.class);
+            getDurationField = recordedObject.getMethod("getDuration", String.class);
+            getEventType = recordedEvent.getMethod("getEventType");
+            getName = Class.forName("jdk.jfr.EventType", false, loader).getMethod("getName");
+            getStartTime = recordedEvent.getMethod("getStartTime");
+            getDuration = recordedEvent.getMethod("getDuration");
+        }
+
+        static Api load() {
+            try {
+                return new Api(ClassLoader.getSystemClassLoader());
+            } catch (ReflectiveOperationException | LinkageError e) {
+                return null;
+            }
+        }
+
+        Object invoke(Reflective call) throws IOException {
+            try {
+                return call.call();
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.plugins;
+
+import groovy.json.JsonOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.gradle.profile.BuildProfile;
+import org.gradle.profile.ContinuousOperation;
+import org.gradle.profile.ProjectProfile;
+import org.gradle.profile.TaskExecution;
+
+/**
+ * Writes the data behind Gradle's {@code --profile} HTML report as newline-delimited JSON. Every record is a flat
+ * object carrying the build's start time and CircleCI container, so files from different containers and builds can be
+ * concatenated and queried together.
+ */
+final class ProfileJsonRenderer {
+
+    private final Integer container;
+    private final String buildNum;
+
+    ProfileJsonRenderer(Integer container, String buildNum) {
+        this.container = container;
+        this.buildNum = buildNum;
+    }
+
+    void writeTo(BuildProfile profile, File file) {
+        try {
+            Files.createDirectories(file.toPath().getParent());
+            try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+                Map<String, Object> build = record(profile, "build");
+                build.put("description", profile.getBuildDescription());
+                build.put("successful", profile.isSuccessful());
+                build.put("startupMillis", profile.getElapsedStartup());
+                build.put("settingsMillis", profile.getElapsedSettings());
+                build.put("projectsLoadingMillis", profile.getElapsedProjectsLoading());
+                build.put("executionMillis", profile.getElapsedTotalExecutionTime());
+                build.put("totalMillis", profile.getElapsedTotal());
+                writeRecord(writer, build);
+
+                for (ProjectProfile project : profile.getProjects()) {
+                    Map<String, Object> configuration = record(profile, "configuration");
+                    configuration.put("project", project.getPath());
+                    configuration.put("elapsedMillis", project.getConfigurationOperation().getElapsedTime());
+                    writeRecord(writer, configuration);
+
+                    for (TaskExecution task : project.getTasks()) {
+                        Map<String, Object> execution = record(profile, "task");
+                        execution.put("project", project.getPath());
+                        execution.put("task", task.getPath());
+                        execution.put("status", task.getStatus());
+                        execution.put("elapsedMillis", task.getElapsedTime());
+                        writeRecord(writer, execution);
+                    }
+                }
+
+                for (ContinuousOperation dependencySet : profile.getDependencySets()) {
+                    Map<String, Object> resolution = record(profile, "resolution");
+                    resolution.put("configuration", dependencySet.getDescription());
+                    resolution.put("elapsedMillis", dependencySet.getElapsedTime());
+                    writeRecord(writer, resolution);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write build profile to " + file, e);
+        }
+    }
+
+    private Map<String, Object> record(BuildProfile profile, String type) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("type", type);
+        record.put("buildStarted", profile.getBuildStarted());
+        if (buildNum != null) {
+            record.put("buildNum", buildNum);
+        }
+        if (container != null) {
+            record.put("container", container);
+        }
+        return record;
+    }
+
+    private static void writeRecord(Writer writer, Map<String, Object> record) throws IOException {
+        writer.write(JsonOutput.toJson(record));
+        writer.write('\n');
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.plugins;
+
+import com.palantir.baseline.tasks.BuildHistory;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import org.gradle.api.tasks.testing.Test;
+
+/**
+ * Sizes the forks of {@link Test} tasks for the container the build runs in: each fork gets a heap with headroom over
+ * the peak heap measured in previous builds (see {@link TestJvmMetrics}), and as many forks run in parallel as there
+ * are CPUs and memory left over by the Gradle daemon. Test tasks that may run at the same time split these evenly.
+ * If even a single fork can't get the heap it used to need, forks are recycled every
+ * {@link #CONSTRAINED_FORK_EVERY} test classes to bound heap growth.
+ *
+ * <p>Only settings left at Gradle's defaults are changed, and project properties override the computed values.
+ */
+final class TestForkSizing {
+
+    static final long DEFAULT_HEAP_BYTES = 512L << 20;
+    static final long MIN_HEAP_BYTES = 256L << 20;
+    static final long CONSTRAINED_FORK_EVERY = 100;
+
+    private static final double HEAP_HEADROOM = 1.5;
+    // Metaspace, code cache, thread stacks and GC structures of a fork on top of its heap
+    private static final long FORK_OVERHEAD_BYTES = 256L << 20;
+    private static final long HEAP_GRANULARITY_BYTES = 64L << 20;
+
+    private final ContainerResources resources;
+    private final Map<String, BuildHistory.Entry> heapHistory;
+    private final int concurrentTasks;
+
+    TestForkSizing(ContainerResources resources, Map<String, BuildHistory.Entry> heapHistory, int concurrentTasks) {
+        this.resources = resources;
+        this.heapHistory = heapHistory;
+        this.concurrentTasks = Math.max(1, concurrentTasks);
+    }
+
+    /** Sizes test tasks of which up to {@code concurrentTasks} may run at the same time. */
+    static TestForkSizing create(Path heapHistoryFile, int concurrentTasks) {
+        try {
+            return new TestForkSizing(
+                    ContainerResources.detect(), BuildHistory.read(heapHistoryFile), concurrentTasks);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read test fork heap history from " + heapHistoryFile, e);
+        }
+    }
+
+    void apply(Test test, Integer maxParallelForksOverride, String maxHeapSizeOverride, Long forkEveryOverride) {
+        Sizing sizing = size(test.getPath(), Runtime.getRuntime().maxMemory());
+        if (test.getMaxParallelForks() == 1) {
+            test.setMaxParallelForks(maxParallelForksOverride != null ? maxParallelForksOverride : sizing.forks);
+        }
+        if (test.getMaxHeapSize() == null) {
+            test.setMaxHeapSize(maxHeapSizeOverride != null
+                    ? maxHeapSizeOverride
+                    : (sizing.heapBytes >> 20) + "m");
+        }
+        if (test.getForkEvery() == 0) {
+            test.setForkEvery(forkEveryOverride != null ? forkEveryOverride : sizing.forkEvery);
+        }
+        test.getLogger().info("Running {} with up to {} forks of {} heap, forking every {} test classes "
+                        + "({} CPUs, {} MB memory available, shared by up to {} test tasks)",
+                test.getPath(), test.getMaxParallelForks(), test.getMaxHeapSize(), test.getForkEvery(),
+                resources.cpus(), resources.memoryBytes() >> 20, concurrentTasks);
+    }
+
+    /** Sizes the forks of the given test task, next to a Gradle daemon with the given maximum heap. */
+    Sizing size(String testPath, long daemonHeapBytes) {
+        BuildHistory.Entry peakHeap = heapHistory.get(testPath);
+        long heapBytes = peakHeap != null
+                ? roundUp(Math.max(MIN_HEAP_BYTES, (long) (peakHeap.value() * HEAP_HEADROOM)))
+                : DEFAULT_HEAP_BYTES;
+
+        if (resources.memoryBytes() <= 0) {
+            return new Sizing(1, heapBytes, 0);
+        }
+        // The daemon needs room for its own non-heap memory too
+        long availableBytes = (resources.memoryBytes() - daemonHeapBytes - FORK_OVERHEAD_BYTES) / concurrentTasks;
+        long forkEvery = 0;
+        if (heapBytes + FORK_OVERHEAD_BYTES > availableBytes) {
+            heapBytes = Math.max(MIN_HEAP_BYTES, roundDown(availableBytes - FORK_OVERHEAD_BYTES));
+            forkEvery = CONSTRAINED_FORK_EVERY;
+        }
+        int forksByMemory = (int) Math.max(1, availableBytes / (heapBytes + FORK_OVERHEAD_BYTES));
+        int forksByCpus = Math.max(1, resources.cpus() / concurrentTasks);
+        return new Sizing(Math.min(forksByCpus, forksByMemory), heapBytes, forkEvery);
+    }
+
+    private static long roundUp(long bytes) {
+        return (bytes + HEAP_GRANULARITY_BYTES - 1) / HEAP_GRANULARITY_BYTES * HEAP_GRANULARITY_BYTES;
+    }
+
+    private static long roundDown(long bytes) {
+        return bytes / HEAP_GRANULARITY_BYTES * HEAP_GRANULARITY_BYTES;
+    }
+
+    static final class Sizing {
+        private final int forks;
+        private final long heapBytes;
+        private final long forkEvery;
+
+        private Sizing(int forks, long heapBytes, long forkEvery) {
+            this.forks = forks;
+            this.heapBytes = heapBytes;
+            this.forkEvery = forkEvery;
+        }
+
+        int forks() {
+            return forks;
+        }
+
+        long heapBytes() {
+            return heapBytes;
+        }
+
+        /** Number of test classes after which forks are recycled, or {@code 0} to keep them. */
+        long forkEvery() {
+            return forkEvery;
+        }
+    }
+}
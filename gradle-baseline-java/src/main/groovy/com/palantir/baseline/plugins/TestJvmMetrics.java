@@ -0,0 +1,241 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.plugins;
+
+import com.palantir.baseline.tasks.BuildHistory;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.gradle.api.tasks.testing.Test;
+
+/**
+ * Optionally enables GC logging and/or a JFR recording in the JVMs forked by a {@link Test} task and, once the task
+ * has run, summarizes peak heap, GC pauses and CPU time per fork into {@code summary.txt} next to the logs. The
+ * largest peak heap of any fork is also recorded in the build history, for sizing future test forks.
+ *
+ * <p>Flags are chosen for the Java version running Gradle, which is assumed to run the tests too.
+ */
+final class TestJvmMetrics {
+
+    static final String HEAP_HISTORY_FILE = "test-fork-heap.tsv";
+
+    // Heap transition and pause duration of a stop-the-world collection, in the Java 8 (-XX:+PrintGC) and unified
+    // (-Xlog:gc) formats, e.g. "33280K->5112K(125952K), 0.0050 secs" and "24M->3M(256M) 5.123ms"
+    private static final Pattern PAUSE = Pattern.compile(
+            "(\\d+)([KMG])->\\d+[KMG]\\(\\d+[KMG]\\),? (\\d+(?:\\.\\d+)?) ?(ms|secs)");
+    // CPU used by GC threads for one collection, only logged by Java 9+ (-Xlog:gc+cpu)
+    private static final Pattern GC_CPU = Pattern.compile("User=(\\d+(?:\\.\\d+)?)s Sys=(\\d+(?:\\.\\d+)?)s");
+    // gc-%p.log expands to gc-123.log on Java 9+ and gc-pid123.log on Java 8; JFR names its own files
+    private static final Pattern GC_LOG_FILE = Pattern.compile("gc-(?:pid)?(\\d+)\\.log");
+    private static final Pattern RECORDING_FILE = Pattern.compile("hotspot-pid-(\\d+)-.*\\.jfr");
+
+    private TestJvmMetrics() {}
+
+    static void configure(Test test, File metricsDir, boolean gcLogging, boolean flightRecording, Path historyFile) {
+        int javaVersion = javaFeatureVersion();
+        if (gcLogging) {
+            String logFile = new File(metricsDir, "gc-%p.log").getAbsolutePath();
+            if (javaVersion >= 9) {
+                test.jvmArgs("-Xlog:gc,gc+cpu:file=" + logFile + ":uptime");
+            } else {
+                test.jvmArgs("-Xloggc:" + logFile, "-XX:+PrintGC", "-XX:+PrintGCTimeStamps");
+            }
+        }
+        if (flightRecording) {
+            if (javaVersion >= 11) {
+                // Given a directory, each fork writes its own uniquely named recording into it
+                test.jvmArgs("-XX:StartFlightRecording=dumponexit=true,settings=default,filename="
+                        + metricsDir.getAbsolutePath());
+            } else {
+                test.getLogger().warn("Flight recordings of test JVMs require Java 11 or later, not recording {}",
+                        test.getPath());
+            }
+        }
+
+        test.doFirst(task -> {
+            test.getProject().delete(metricsDir);
+            metricsDir.mkdirs();
+        });
+        test.getProject().getGradle().getTaskGraph().afterTask(task -> {
+            if (task != test || !(task.getState().getDidWork() || task.getState().getFailure() != null)) {
+                return;
+            }
+            try {
+                summarize(metricsDir.toPath(), test.getPath(), historyFile);
+            } catch (IOException | RuntimeException e) {
+                test.getLogger().warn("Failed to summarize JVM metrics of {}", test.getPath(), e);
+            }
+        });
+    }
+
+    private static void summarize(Path metricsDir, String testPath, Path historyFile) throws IOException {
+        if (!Files.isDirectory(metricsDir)) {
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> list = Files.list(metricsDir)) {
+            files = list.sorted().collect(Collectors.toList());
+        }
+        Map<String, ForkMetrics> forks = new TreeMap<>();
+        for (Path file : files) {
+            Matcher gcLog = GC_LOG_FILE.matcher(file.getFileName().toString());
+            if (gcLog.matches()) {
+                readGcLog(file, forks.computeIfAbsent(gcLog.group(1), pid -> new ForkMetrics()));
+            }
+        }
+        // After the GC logs, so that the recordings only fill in GC metrics of forks without a GC log
+        for (Path file : files) {
+            Matcher recording = RECORDING_FILE.matcher(file.getFileName().toString());
+            if (recording.matches() && JfrEvents.isSupported()) {
+                readRecording(file, forks.computeIfAbsent(recording.group(1), pid -> new ForkMetrics()));
+            }
+        }
+        if (forks.isEmpty()) {
+            return;
+        }
+
+        try (Writer writer = Files.newBufferedWriter(metricsDir.resolve("summary.txt"), StandardCharsets.UTF_8)) {
+            writer.write(String.format("%-10s %8s %12s %12s %12s %12s %12s%n",
+                    "fork", "pauses", "pause total", "max pause", "peak heap", "gc cpu", "process cpu"));
+            for (Map.Entry<String, ForkMetrics> fork : forks.entrySet()) {
+                ForkMetrics metrics = fork.getValue();
+                writer.write(String.format("%-10s %8d %12s %12s %12s %12s %12s%n",
+                        fork.getKey(),
+                        metrics.pauses,
+                        seconds(metrics.pauses > 0 ? metrics.pauseMillis : -1),
+                        seconds(metrics.pauses > 0 ? metrics.maxPauseMillis : -1),
+                        metrics.peakHeapBytes > 0 ? String.format("%.1f MB", metrics.peakHeapBytes / 1e6) : "-",
+                        seconds(metrics.gcCpuMillis),
+                        seconds(metrics.processCpuMillis)));
+            }
+        }
+
+        long peakHeapBytes = forks.values().stream().mapToLong(fork -> fork.peakHeapBytes).max().orElse(0);
+        if (peakHeapBytes > 0) {
+            BuildHistory.update(historyFile, history -> BuildHistory.record(history, testPath, peakHeapBytes));
+        }
+    }
+
+    private static void readGcLog(Path gcLog, ForkMetrics fork) throws IOException {
+        fork.gcLogged = true;
+        for (String line : Files.readAllLines(gcLog, StandardCharsets.UTF_8)) {
+            Matcher pause = PAUSE.matcher(line);
+            // Skip concurrent phases of Shenandoah/ZGC, but not pauses such as "Pause Young (Concurrent Start)"
+            if (pause.find() && (line.contains("Pause") || !line.contains("Concurrent"))) {
+                double millis = Double.parseDouble(pause.group(3)) * (pause.group(4).equals("ms") ? 1 : 1000);
+                fork.pauses++;
+                fork.pauseMillis += millis;
+                fork.maxPauseMillis = Math.max(fork.maxPauseMillis, millis);
+                fork.peakHeapBytes = Math.max(fork.peakHeapBytes, bytes(pause.group(1), pause.group(2)));
+            }
+            Matcher gcCpu = GC_CPU.matcher(line);
+            if (gcCpu.find()) {
+                fork.gcCpuMillis = Math.max(fork.gcCpuMillis, 0)
+                        + 1000 * (Double.parseDouble(gcCpu.group(1)) + Double.parseDouble(gcCpu.group(2)));
+            }
+        }
+    }
+
+    /**
+     * Estimates the CPU time of the fork from the periodic {@code jdk.CPULoad} samples, which give the JVM's share of
+     * the whole machine since the previous sample. Unless the fork also wrote a GC log, GC pauses are read from the
+     * {@code jdk.GarbageCollection} events and the peak heap from the heap usage that {@code jdk.GCHeapSummary}
+     * reports around each collection.
+     */
+    private static void readRecording(Path recording, ForkMetrics fork) throws IOException {
+        boolean readGc = !fork.gcLogged;
+        double[] hardwareThreads = {Runtime.getRuntime().availableProcessors()};
+        Instant[] previousSample = {null};
+        double[] cpuMillis = {0};
+        JfrEvents.forEach(recording, event -> {
+            switch (event.type()) {
+                case "jdk.CPUInformation":
+                    hardwareThreads[0] = event.getDouble("hwThreads");
+                    break;
+                case "jdk.CPULoad":
+                    Instant sampleTime = event.startTime();
+                    long intervalMillis = previousSample[0] == null
+                            ? TimeUnit.SECONDS.toMillis(1)
+                            : Duration.between(previousSample[0], sampleTime).toMillis();
+                    previousSample[0] = sampleTime;
+                    cpuMillis[0] += (event.getDouble("jvmUser") + event.getDouble("jvmSystem"))
+                            * hardwareThreads[0] * intervalMillis;
+                    break;
+                case "jdk.GarbageCollection":
+                    if (readGc) {
+                        double millis = event.getDuration("sumOfPauses").toNanos() / 1e6;
+                        fork.pauses++;
+                        fork.pauseMillis += millis;
+                        fork.maxPauseMillis = Math.max(fork.maxPauseMillis, millis);
+                    }
+                    break;
+                case "jdk.GCHeapSummary":
+                    if (readGc) {
+                        fork.peakHeapBytes = Math.max(fork.peakHeapBytes, (long) event.getDouble("heapUsed"));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        });
+        fork.processCpuMillis = cpuMillis[0];
+    }
+
+    private static int javaFeatureVersion() {
+        String version = System.getProperty("java.specification.version");
+        return Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+    }
+
+    private static long bytes(String amount, String unit) {
+        long value = Long.parseLong(amount);
+        switch (unit) {
+            case "G":
+                return value << 30;
+            case "M":
+                return value << 20;
+            default:
+                return value << 10;
+        }
+    }
+
+    private static String seconds(double millis) {
+        return millis < 0 ? "-" : String.format("%.3fs", millis / TimeUnit.SECONDS.toMillis(1));
+    }
+
+    private static final class ForkMetrics {
+        private int pauses;
+        private double pauseMillis;
+        private double maxPauseMillis;
+        private long peakHeapBytes;
+        private double gcCpuMillis = -1;
+        private double processCpuMillis = -1;
+        private boolean gcLogged;
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.plugins;
+
+import com.palantir.baseline.tasks.BuildHistory;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import org.gradle.api.Task;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.tasks.testing.Test;
+import org.gradle.api.tasks.util.PatternSet;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Runs the test classes of a {@link Test} task that failed in the previous build, followed by its slowest classes,
+ * ahead of all others, so that failures surface early and long-running classes don't hold up the end of the task.
+ *
+ * <p>Gradle hands test classes to the test workers in the order in which it visits the task's test classes
+ * directories, so these are replaced by a file tree that visits the prioritized classes first. Test framework
+ * detection then finds the superclasses of test classes through the test runtime classpath. The history is collected
+ * from the task's JUnit XML reports.
+ */
+final class TestPrioritization {
+
+    static final String DURATIONS_HISTORY_FILE = "test-class-durations.tsv";
+    static final String FAILURES_HISTORY_FILE = "test-class-failures.tsv";
+    static final int DEFAULT_SLOWEST_COUNT = 10;
+
+    private final Test test;
+    private final Path historyDir;
+    private final int slowestCount;
+    private final int retentionBuilds;
+
+    private TestPrioritization(Test test, Path historyDir, int slowestCount, int retentionBuilds) {
+        this.test = test;
+        this.historyDir = historyDir;
+        this.slowestCount = slowestCount;
+        this.retentionBuilds = retentionBuilds;
+    }
+
+    /**
+     * Prioritizes the classes of {@code test}, forgetting classes that didn't run for more than
+     * {@code retentionBuilds} runs of the task, e.g. because they were deleted or renamed.
+     */
+    static void configure(Test test, Path historyDir, int slowestCount, int retentionBuilds) {
+        TestPrioritization prioritization = new TestPrioritization(test, historyDir, slowestCount, retentionBuilds);
+        test.getProject().getGradle().getTaskGraph().whenReady(graph -> {
+            if (graph.hasTask(test)) {
+                BaselineCircleCi.timed(test.getProject(), "whenReady", prioritization::orderClasses);
+            }
+        });
+        test.getProject().getGradle().getTaskGraph().afterTask(prioritization::afterTask);
+    }
+
+    private void orderClasses() {
+        Set<String> classes;
+        try {
+            classes = prioritizedClasses();
+        } catch (IOException e) {
+            test.getLogger().warn("Failed to read test history from {}, not prioritizing tests", historyDir, e);
+            return;
+        }
+        if (classes.isEmpty()) {
+            return;
+        }
+
+        FileTree classFiles = test.getTestClassesDirs().getAsFileTree();
+        PatternSet others = new PatternSet();
+        FileTree ordered = null;
+        for (String className : classes) {
+            String classFile = className.replace('.', '/') + ".class";
+            FileTree prioritized = classFiles.matching(new PatternSet().include(classFile));
+            ordered = ordered == null ? prioritized : ordered.plus(prioritized);
+            others.exclude(classFile);
+        }
+        test.setTestClassesDirs(ordered.plus(classFiles.matching(others)));
+        test.getLogger().info("Running {} test classes of {} first: {}", classes.size(), test.getPath(), classes);
+    }
+
+    /** Classes that failed last time, then the slowest ones, in order. */
+    private Set<String> prioritizedClasses() throws IOException {
+        String prefix = test.getPath() + " ";
+        Set<String> classes = new LinkedHashSet<>();
+        BuildHistory.read(historyDir.resolve(FAILURES_HISTORY_FILE)).keySet().stream()
+                .filter(key -> key.startsWith(prefix))
+                .forEach(key -> classes.add(key.substring(prefix.length())));
+        BuildHistory.read(historyDir.resolve(DURATIONS_HISTORY_FILE)).entrySet().stream()
+                .filter(entry -> entry.getKey().startsWith(prefix))
+                .sorted(Map.Entry.<String, BuildHistory.Entry>comparingByValue(
+                        (first, second) -> Double.compare(second.value(), first.value())))
+                .limit(slowestCount)
+                .forEach(entry -> classes.add(entry.getKey().substring(prefix.length())));
+        return classes;
+    }
+
+    private void afterTask(Task task) {
+        if (task != test || !(task.getState().getDidWork() || task.getState().getFailure() != null)) {
+            return;
+        }
+        try {
+            recordHistory(test.getReports().getJunitXml().getDestination());
+        } catch (IOException | RuntimeException e) {
+            task.getLogger().warn("Failed to record test history of {}", task.getPath(), e);
+        }
+    }
+
+    private void recordHistory(File junitReportsDir) throws IOException {
+        if (!junitReportsDir.isDirectory()) {
+            return;
+        }
+        ClassResultsHandler results = new ClassResultsHandler();
+        try (Stream<Path> files = Files.list(junitReportsDir.toPath())) {
+            for (Path xmlReport : files.filter(file -> file.toString().endsWith(".xml")).collect(Collectors.toList())) {
+                try (InputStream stream = Files.newInputStream(xmlReport)) {
+                    SAXParserFactory.newInstance().newSAXParser().parse(stream, results);
+                } catch (SAXException | ParserConfigurationException e) {
+                    test.getLogger().warn("Skipping unparseable JUnit report {}", xmlReport, e);
+                }
+            }
+        }
+
+        // The history files are shared by all test tasks, only age the classes of this one
+        String prefix = test.getPath() + " ";
+        Set<String> seen = results.classMillis.keySet().stream()
+                .map(className -> prefix + className)
+                .collect(Collectors.toSet());
+        BuildHistory.update(historyDir.resolve(DURATIONS_HISTORY_FILE), durations -> {
+            results.classMillis.forEach((className, millis) ->
+                    BuildHistory.record(durations, prefix + className, millis));
+            age(durations, prefix, seen);
+        });
+        BuildHistory.update(historyDir.resolve(FAILURES_HISTORY_FILE), failures -> {
+            for (String className : results.classMillis.keySet()) {
+                if (results.failedClasses.contains(className)) {
+                    BuildHistory.record(failures, prefix + className, 1);
+                } else {
+                    failures.remove(prefix + className);
+                }
+            }
+            age(failures, prefix, seen);
+        });
+    }
+
+    private void age(Map<String, BuildHistory.Entry> entries, String prefix, Set<String> seen) {
+        Set<String> notAged = entries.keySet().stream()
+                .filter(name -> !name.startsWith(prefix) || seen.contains(name))
+                .collect(Collectors.toSet());
+        BuildHistory.age(entries, notAged, retentionBuilds);
+    }
+
+    private static final class ClassResultsHandler extends DefaultHandler {
+        private final Map<String, Double> classMillis = new HashMap<>();
+        private final Set<String> failedClasses = new HashSet<>();
+        private String currentClass;
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if (qName.equals("testcase")) {
+                currentClass = attributes.getValue("classname");
+                if (currentClass == null) {
+                    return;
+                }
+                classMillis.merge(currentClass, millis(attributes.getValue("time")), Double::sum);
+            } else if ((qName.equals("failure") || qName.equals("error")) && currentClass != null) {
+                failedClasses.add(currentClass);
+            }
+        }
+
+        private static double millis(String seconds) {
+            try {
+                return seconds == null ? 0 : Double.parseDouble(seconds) * TimeUnit.SECONDS.toMillis(1);
+            } catch (NumberFormatException e) {
+                // Still a class that ran, just without a duration
+                return 0;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if (qName.equals("testcase")) {
+                currentClass = null;
+            }
+        }
+    }
+}
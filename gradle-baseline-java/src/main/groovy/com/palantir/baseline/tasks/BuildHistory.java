@@ -0,0 +1,164 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.tasks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import org.gradle.api.Project;
+
+/**
+ * A tab-separated file of named measurements (e.g. test durations) carried over between builds, typically in a
+ * directory that CI caches. Each value is an exponentially weighted average of the measurements seen so far, so the
+ * history adapts to deliberate changes while smoothing out noise.
+ */
+public final class BuildHistory {
+
+    /** Default number of builds after which entries that weren't measured anymore are dropped. */
+    public static final int DEFAULT_RETENTION_BUILDS = 30;
+
+    private static final double HISTORY_WEIGHT = 0.7;
+    private static final Object UPDATE_LOCK = new Object();
+
+    private BuildHistory() {}
+
+    public static Map<String, Entry> read(Path file) throws IOException {
+        Map<String, Entry> entries = new TreeMap<>();
+        if (!Files.isRegularFile(file)) {
+            return entries;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t");
+                if (fields.length != 3 && fields.length != 4) {
+                    continue;
+                }
+                try {
+                    int unseenBuilds = fields.length == 4 ? Integer.parseInt(fields[3]) : 0;
+                    entries.put(fields[0], new Entry(
+                            Double.parseDouble(fields[1]), Integer.parseInt(fields[2]), unseenBuilds));
+                } catch (NumberFormatException e) {
+                    // Header or corrupt line; the history is advisory, so skip it
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Default directory for history files of the given build, inside the Gradle user home so that it survives clean
+     * checkouts wherever CI caches the Gradle user home between builds.
+     */
+    public static Path defaultDirectory(Project project) {
+        return project.getGradle().getGradleUserHomeDir().toPath()
+                .resolve(Paths.get("caches", "baseline-history", project.getRootProject().getName()));
+    }
+
+    /** Atomically replaces {@code file} with the given entries. */
+    public static void write(Path file, Map<String, Entry> entries) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tempFile = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            writer.write("name\tvalue\tsamples\tunseen\n");
+            for (Map.Entry<String, Entry> entry : new TreeMap<>(entries).entrySet()) {
+                writer.write(entry.getKey() + '\t' + entry.getValue().value() + '\t' + entry.getValue().samples()
+                        + '\t' + entry.getValue().unseenBuilds() + '\n');
+            }
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads, updates and writes back {@code file}, excluding concurrent updates of the same history, e.g. by test
+     * tasks of different projects running in parallel, or by other builds sharing the Gradle user home. Without this,
+     * concurrent updates would each write back what they read, dropping the others' measurements.
+     */
+    public static void update(Path file, Consumer<Map<String, Entry>> update) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path lockFile = file.resolveSibling(file.getFileName() + ".lock");
+        // A file lock only excludes other processes; the same JVM must not lock the same file twice
+        synchronized (UPDATE_LOCK) {
+            try (FileChannel channel = FileChannel.open(
+                    lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                    FileLock lock = channel.lock()) {
+                Map<String, Entry> entries = read(file);
+                update.accept(entries);
+                write(file, entries);
+            }
+        }
+    }
+
+    /** Folds a new measurement into the history for {@code name}. */
+    public static void record(Map<String, Entry> entries, String name, double value) {
+        entries.merge(name, new Entry(value, 1), (previous, current) -> new Entry(
+                HISTORY_WEIGHT * previous.value() + (1 - HISTORY_WEIGHT) * current.value(),
+                previous.samples() + 1));
+    }
+
+    /**
+     * Counts another build in which the entries not named in {@code seen} weren't measured, and removes those that
+     * haven't been measured for more than {@code maxUnseenBuilds} builds, e.g. because the test was deleted.
+     */
+    public static void age(Map<String, Entry> entries, Set<String> seen, int maxUnseenBuilds) {
+        entries.replaceAll((name, entry) -> seen.contains(name)
+                ? entry
+                : new Entry(entry.value(), entry.samples(), entry.unseenBuilds() + 1));
+        entries.values().removeIf(entry -> entry.unseenBuilds() > maxUnseenBuilds);
+    }
+
+    public static final class Entry {
+        private final double value;
+        private final int samples;
+        private final int unseenBuilds;
+
+        public Entry(double value, int samples) {
+            this(value, samples, 0);
+        }
+
+        public Entry(double value, int samples, int unseenBuilds) {
+            this.value = value;
+            this.samples = samples;
+            this.unseenBuilds = unseenBuilds;
+        }
+
+        public double value() {
+            return value;
+        }
+
+        public int samples() {
+            return samples;
+        }
+
+        /** Number of consecutive builds that updated the history without measuring this entry. */
+        public int unseenBuilds() {
+            return unseenBuilds;
+        }
+    }
+}
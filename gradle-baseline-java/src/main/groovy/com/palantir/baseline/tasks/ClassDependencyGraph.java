@@ -0,0 +1,314 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.tasks;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+import java.util.jar.JarEntry;
+import java.util.jar.JarInputStream;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Class-level dependency graph of the classes built by a project, read from their bytecode: a class depends on every
+ * class named in its constant pool, including those only mentioned in descriptors, generic signatures and annotations.
+ * Alongside the graph, it keeps a hash of every class and fingerprints of everything else that could change test
+ * behaviour (resources and external jars), so that two snapshots can be compared.
+ */
+public final class ClassDependencyGraph {
+
+    private static final Pattern TYPE_IN_DESCRIPTOR = Pattern.compile("L([\\p{javaJavaIdentifierPart}/$]+)[;<]");
+    private static final String FINGERPRINT_PREFIX = "#";
+
+    /**
+     * Content hashes of external jars by absolute path, reused while their size and modification time are unchanged,
+     * since the same dependency jars are on the classpath of every test task of every build in the daemon.
+     */
+    private static final ConcurrentMap<Path, JarHash> EXTERNAL_JAR_HASHES = new ConcurrentHashMap<>();
+
+    private final Map<String, String> classHashes = new TreeMap<>();
+    private final Map<String, Set<String>> dependencies = new HashMap<>();
+    private final Map<String, String> fingerprints = new TreeMap<>();
+
+    private ClassDependencyGraph() {}
+
+    /**
+     * Analyzes the classes in the directories and project jars of {@code classpath}; other jars only contribute their
+     * names and content hashes to the {@code classpath} fingerprint, so that a re-published snapshot of the same name
+     * and size runs all tests.
+     */
+    public static ClassDependencyGraph analyze(Iterable<File> classpath, Predicate<File> isProjectJar)
+            throws IOException {
+        ClassDependencyGraph graph = new ClassDependencyGraph();
+        Hasher resources = Hashing.sha256().newHasher();
+        Hasher externalJars = Hashing.sha256().newHasher();
+        for (File entry : classpath) {
+            if (entry.isDirectory()) {
+                graph.analyzeDirectory(entry.toPath(), resources);
+            } else if (entry.isFile() && isProjectJar.test(entry)) {
+                graph.analyzeJar(entry, resources);
+            } else if (entry.isFile()) {
+                externalJars.putString(entry.getName(), StandardCharsets.UTF_8)
+                        .putString(externalJarHash(entry), StandardCharsets.UTF_8);
+            }
+        }
+        graph.fingerprints.put("resources", resources.hash().toString());
+        graph.fingerprints.put("classpath", externalJars.hash().toString());
+        // Only keep edges between analyzed classes, references to the JDK and external jars are irrelevant
+        graph.dependencies.values().forEach(targets -> targets.retainAll(graph.classHashes.keySet()));
+        return graph;
+    }
+
+    /** Adds a fingerprint of something outside the classpath, e.g. build scripts. */
+    public void putFingerprint(String name, String value) {
+        fingerprints.put(name, value);
+    }
+
+    /** Names of the fingerprints that differ between {@code previous} and this graph. */
+    public Set<String> changedFingerprints(ClassDependencyGraph previous) {
+        Set<String> names = new TreeSet<>(fingerprints.keySet());
+        names.addAll(previous.fingerprints.keySet());
+        return names.stream()
+                .filter(name -> !Objects.equals(fingerprints.get(name), previous.fingerprints.get(name)))
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    /** Classes that were added, modified or removed since {@code previous}. */
+    public Set<String> changedClasses(ClassDependencyGraph previous) {
+        Set<String> names = new TreeSet<>(classHashes.keySet());
+        names.addAll(previous.classHashes.keySet());
+        return names.stream()
+                .filter(name -> !Objects.equals(classHashes.get(name), previous.classHashes.get(name)))
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    /** The given classes and all classes that transitively depend on any of them. */
+    public Set<String> dependentsOf(Collection<String> classes) {
+        Map<String, Set<String>> dependents = new HashMap<>();
+        dependencies.forEach((source, targets) -> targets.forEach(target ->
+                dependents.computeIfAbsent(target, unused -> new HashSet<>()).add(source)));
+
+        Set<String> visited = new TreeSet<>(classes);
+        Deque<String> queue = new ArrayDeque<>(classes);
+        while (!queue.isEmpty()) {
+            for (String dependent : dependents.getOrDefault(queue.pop(), new HashSet<>())) {
+                if (visited.add(dependent)) {
+                    queue.push(dependent);
+                }
+            }
+        }
+        return visited;
+    }
+
+    public void write(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, String> fingerprint : fingerprints.entrySet()) {
+                writer.write(FINGERPRINT_PREFIX + fingerprint.getKey() + '\t' + fingerprint.getValue() + '\n');
+            }
+            for (Map.Entry<String, String> entry : classHashes.entrySet()) {
+                Set<String> targets = new TreeSet<>(dependencies.getOrDefault(entry.getKey(), new HashSet<>()));
+                writer.write(entry.getKey() + '\t' + entry.getValue() + '\t' + String.join(",", targets) + '\n');
+            }
+        }
+    }
+
+    public static ClassDependencyGraph read(Path file) throws IOException {
+        ClassDependencyGraph graph = new ClassDependencyGraph();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                if (line.startsWith(FINGERPRINT_PREFIX) && fields.length == 2) {
+                    graph.fingerprints.put(fields[0].substring(FINGERPRINT_PREFIX.length()), fields[1]);
+                } else if (fields.length == 3) {
+                    graph.classHashes.put(fields[0], fields[1]);
+                    if (!fields[2].isEmpty()) {
+                        graph.dependencies.put(fields[0], new HashSet<>(Arrays.asList(fields[2].split(","))));
+                    }
+                } else {
+                    throw new IOException("Malformed line in " + file + ": " + line);
+                }
+            }
+        }
+        return graph;
+    }
+
+    /** Classes named in the constant pool of the given class file, as binary names (e.g. {@code a.b.C$D}). */
+    static Set<String> referencedClasses(InputStream classFile) throws IOException {
+        DataInputStream data = new DataInputStream(classFile);
+        if (data.readInt() != 0xCAFEBABE) {
+            throw new IOException("Not a class file");
+        }
+        data.readUnsignedShort(); // minor version
+        data.readUnsignedShort(); // major version
+        int constantPoolCount = data.readUnsignedShort();
+        String[] utf8Constants = new String[constantPoolCount];
+        List<Integer> classNameIndexes = new ArrayList<>();
+        for (int index = 1; index < constantPoolCount; index++) {
+            int tag = data.readUnsignedByte();
+            switch (tag) {
+                case 1: // Utf8
+                    utf8Constants[index] = data.readUTF();
+                    break;
+                case 7: // Class
+                    classNameIndexes.add(data.readUnsignedShort());
+                    break;
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    data.readUnsignedShort();
+                    break;
+                case 15: // MethodHandle
+                    data.readUnsignedByte();
+                    data.readUnsignedShort();
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    data.readInt();
+                    break;
+                case 5: // Long
+                case 6: // Double, both take up two entries
+                    data.readLong();
+                    index++;
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+
+        Set<String> classes = new TreeSet<>();
+        for (int index : classNameIndexes) {
+            String name = utf8Constants[index];
+            if (name != null && !name.startsWith("[")) {
+                classes.add(name.replace('/', '.'));
+            }
+        }
+        // Descriptors and signatures, which also cover array types and annotations
+        for (String constant : utf8Constants) {
+            if (constant == null) {
+                continue;
+            }
+            Matcher matcher = TYPE_IN_DESCRIPTOR.matcher(constant);
+            while (matcher.find()) {
+                classes.add(matcher.group(1).replace('/', '.'));
+            }
+        }
+        return classes;
+    }
+
+    private static String externalJarHash(File jar) throws IOException {
+        Path path = jar.toPath().toAbsolutePath();
+        long size = jar.length();
+        long lastModified = jar.lastModified();
+        JarHash cached = EXTERNAL_JAR_HASHES.get(path);
+        if (cached != null && cached.size == size && cached.lastModified == lastModified) {
+            return cached.hash;
+        }
+        String hash = com.google.common.io.Files.asByteSource(jar).hash(Hashing.sha256()).toString();
+        EXTERNAL_JAR_HASHES.put(path, new JarHash(size, lastModified, hash));
+        return hash;
+    }
+
+    private void analyzeDirectory(Path directory, Hasher resources) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.filter(Files::isRegularFile).sorted().collect(Collectors.toList())) {
+                String relativePath = directory.relativize(file).toString().replace(File.separatorChar, '/');
+                analyzeEntry(relativePath, Files.readAllBytes(file), resources);
+            }
+        }
+    }
+
+    private void analyzeJar(File jar, Hasher resources) throws IOException {
+        try (JarInputStream jarInputStream = new JarInputStream(new FileInputStream(jar))) {
+            JarEntry entry;
+            while ((entry = jarInputStream.getNextJarEntry()) != null) {
+                if (!entry.isDirectory()) {
+                    analyzeEntry(entry.getName(), ByteStreams.toByteArray(jarInputStream), resources);
+                }
+            }
+        }
+    }
+
+    private void analyzeEntry(String path, byte[] contents, Hasher resources) throws IOException {
+        if (!path.endsWith(".class") || path.endsWith("module-info.class")) {
+            resources.putString(path, StandardCharsets.UTF_8).putBytes(contents);
+            return;
+        }
+        String className = className(path);
+        classHashes.put(className, Hashing.sha256().hashBytes(contents).toString());
+        Set<String> references = referencedClasses(new ByteArrayInputStream(contents));
+        references.remove(className);
+        dependencies.computeIfAbsent(className, unused -> new HashSet<>()).addAll(references);
+    }
+
+    /** Name of the class in {@code classFilePath}, relative to its classes directory or jar. */
+    public static String className(String classFilePath) {
+        return classFilePath.substring(0, classFilePath.length() - ".class".length())
+                .replace(File.separatorChar, '.')
+                .replace('/', '.');
+    }
+
+    private static final class JarHash {
+        private final long size;
+        private final long lastModified;
+        private final String hash;
+
+        JarHash(long size, long lastModified, String hash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+}
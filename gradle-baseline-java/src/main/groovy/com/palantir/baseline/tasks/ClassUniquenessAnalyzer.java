@@ -82,7 +82,9 @@ public final class ClassUniquenessAnalyzer {
                         continue;
                     }
 
-                    String className = entry.getName().replaceAll("/", ".").replaceAll(".class", "");
+                    String entryName = entry.getName();
+                    String className = entryName.substring(0, entryName.length() - ".class".length())
+                            .replace('/', '.');
                     HashingInputStream inputStream = new HashingInputStream(Hashing.sha256(), jarInputStream);
                     ByteStreams.exhaust(inputStream);
 
@@ -0,0 +1,110 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.tasks;
+
+import com.google.common.hash.Hashing;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ProjectComponentIdentifier;
+import org.gradle.api.artifacts.result.ResolutionResult;
+import org.gradle.api.artifacts.result.UnresolvedDependencyResult;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * Writes a hash of the coordinates of all modules resolved by all resolvable configurations of all projects and of
+ * their buildscripts, for use as a CI cache key for the Gradle user home: the key changes exactly when the set of
+ * resolved modules does. Only dependency graphs are resolved, no artifacts are downloaded, and graphs already resolved
+ * in the same build (e.g. by {@code prefetchDependencies}) are reused.
+ */
+public class DependencyFingerprintTask extends DefaultTask {
+
+    private File fingerprintFile;
+
+    public DependencyFingerprintTask() {
+        setGroup("Build Setup");
+        setDescription("Writes a hash of all resolved dependency coordinates, to be used as a CI cache key.");
+        getOutputs().upToDateWhen(task -> false);
+    }
+
+    @OutputFile
+    public final File getFingerprintFile() {
+        return fingerprintFile;
+    }
+
+    public final void setFingerprintFile(File fingerprintFile) {
+        this.fingerprintFile = fingerprintFile;
+    }
+
+    /** The file listing the coordinates that were hashed, next to the fingerprint, to debug unexpected cache misses. */
+    @OutputFile
+    public final File getCoordinatesFile() {
+        return new File(fingerprintFile.getParentFile(), fingerprintFile.getName() + ".modules");
+    }
+
+    @TaskAction
+    public final void fingerprint() throws IOException {
+        SortedSet<String> coordinates = new TreeSet<>();
+        // The cache layout of the Gradle user home depends on the Gradle version
+        coordinates.add("gradle " + getProject().getGradle().getGradleVersion());
+        for (Project project : getProject().getAllprojects()) {
+            addCoordinates(project.getConfigurations(), coordinates);
+            // Buildscript classpaths, including plugins applied with the plugins block, are cached there as well
+            addCoordinates(project.getBuildscript().getConfigurations(), coordinates);
+        }
+
+        String hash = Hashing.sha256().hashString(String.join("\n", coordinates), StandardCharsets.UTF_8).toString();
+        Files.createDirectories(fingerprintFile.getAbsoluteFile().getParentFile().toPath());
+        Files.write(getCoordinatesFile().toPath(), coordinates, StandardCharsets.UTF_8);
+        Files.write(fingerprintFile.toPath(), (hash + "\n").getBytes(StandardCharsets.UTF_8));
+        getLogger().lifecycle("Dependency fingerprint of {} modules: {}", coordinates.size() - 1, hash);
+    }
+
+    private static void addCoordinates(Iterable<Configuration> configurations, Set<String> coordinates) {
+        for (Configuration configuration : configurations) {
+            if (configuration.isCanBeResolved()) {
+                addCoordinates(configuration.getIncoming().getResolutionResult(), coordinates);
+            }
+        }
+    }
+
+    private static void addCoordinates(ResolutionResult result, Set<String> coordinates) {
+        result.getAllComponents().forEach(component -> {
+            ComponentIdentifier id = component.getId();
+            // Project components don't live in the dependency cache, and their versions change with every commit
+            if (id instanceof ModuleComponentIdentifier) {
+                ModuleComponentIdentifier module = (ModuleComponentIdentifier) id;
+                coordinates.add(module.getGroup() + ":" + module.getModule() + ":" + module.getVersion());
+            } else if (!(id instanceof ProjectComponentIdentifier)) {
+                coordinates.add(id.getDisplayName());
+            }
+        });
+        result.getAllDependencies().stream()
+                .filter(UnresolvedDependencyResult.class::isInstance)
+                .forEach(dependency -> coordinates.add("unresolved " + dependency.getRequested().getDisplayName()));
+    }
+}
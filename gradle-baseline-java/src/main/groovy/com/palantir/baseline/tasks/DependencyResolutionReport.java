@@ -0,0 +1,138 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.tasks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import org.gradle.api.artifacts.component.ComponentArtifactIdentifier;
+
+/**
+ * Collects resolution and download timings from all {@link PrefetchDependenciesTask}s of a build, which may run
+ * concurrently. Artifacts shared by several configurations are fetched by each, which is cheap once the first has
+ * cached them, but only counted once.
+ */
+public final class DependencyResolutionReport {
+
+    private final Set<ComponentArtifactIdentifier> fetchedArtifacts = ConcurrentHashMap.newKeySet();
+    private final Map<String, ConfigurationTimings> configurations = new ConcurrentHashMap<>();
+    private final Set<String> unresolved = ConcurrentHashMap.newKeySet();
+
+    /** Returns whether {@code artifact} is fetched for the first time in this build, and so counts as a download. */
+    public boolean isFirstFetch(ComponentArtifactIdentifier artifact) {
+        return fetchedArtifacts.add(artifact);
+    }
+
+    public void recordResolution(String configuration, long millis, int components, Set<String> unresolvedModules) {
+        ConfigurationTimings timings = configurations.computeIfAbsent(configuration, ConfigurationTimings::new);
+        timings.resolveMillis = millis;
+        timings.components = components;
+        unresolvedModules.forEach(module -> unresolved.add(module + " (" + configuration + ")"));
+    }
+
+    public void recordDownload(String configuration, String repository, long millis, int artifacts, long bytes) {
+        ConfigurationTimings timings = configurations.computeIfAbsent(configuration, ConfigurationTimings::new);
+        synchronized (timings) {
+            timings.downloads.add(new Download(repository, millis, artifacts, bytes));
+        }
+    }
+
+    public void write(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        List<ConfigurationTimings> byDuration = configurations.values().stream()
+                .sorted(Comparator.comparingLong(ConfigurationTimings::totalMillis).reversed())
+                .collect(Collectors.toList());
+        Map<String, Download> byRepository = new TreeMap<>();
+        byDuration.stream().flatMap(timings -> timings.downloads.stream()).forEach(download ->
+                byRepository.merge(download.repository, download, Download::plus));
+
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(String.format("%d configurations, %d distinct artifacts%n%n",
+                    configurations.size(), fetchedArtifacts.size()));
+            writer.write(String.format("%10s %10s %10s %10s %10s  %s%n",
+                    "resolve", "download", "components", "artifacts", "MB", "configuration"));
+            for (ConfigurationTimings timings : byDuration) {
+                Download downloads = timings.downloads.stream()
+                        .reduce(new Download("", 0, 0, 0), Download::plus);
+                writer.write(String.format("%10s %10s %10d %10d %10.1f  %s%n",
+                        seconds(timings.resolveMillis), seconds(downloads.millis), timings.components,
+                        downloads.artifacts, downloads.bytes / 1e6, timings.configuration));
+            }
+
+            writer.write(String.format("%n%10s %10s %10s  %s%n", "download", "artifacts", "MB", "repository"));
+            for (Download download : byRepository.values()) {
+                writer.write(String.format("%10s %10d %10.1f  %s%n",
+                        seconds(download.millis), download.artifacts, download.bytes / 1e6, download.repository));
+            }
+
+            if (!unresolved.isEmpty()) {
+                writer.write(String.format("%nUnresolved dependencies:%n"));
+                for (String module : new TreeSet<>(unresolved)) {
+                    writer.write("  " + module + "\n");
+                }
+            }
+        }
+    }
+
+    private static String seconds(long millis) {
+        return String.format("%.3fs", millis / 1000.0);
+    }
+
+    private static final class ConfigurationTimings {
+        private final String configuration;
+        private final List<Download> downloads = new ArrayList<>();
+        private long resolveMillis;
+        private int components;
+
+        private ConfigurationTimings(String configuration) {
+            this.configuration = configuration;
+        }
+
+        private long totalMillis() {
+            return resolveMillis + downloads.stream().mapToLong(download -> download.millis).sum();
+        }
+    }
+
+    private static final class Download {
+        private final String repository;
+        private final long millis;
+        private final int artifacts;
+        private final long bytes;
+
+        private Download(String repository, long millis, int artifacts, long bytes) {
+            this.repository = repository;
+            this.millis = millis;
+            this.artifacts = artifacts;
+            this.bytes = bytes;
+        }
+
+        private Download plus(Download other) {
+            return new Download(repository, millis + other.millis, artifacts + other.artifacts, bytes + other.bytes);
+        }
+    }
+}
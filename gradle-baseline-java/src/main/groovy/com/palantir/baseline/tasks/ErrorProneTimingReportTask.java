@@ -0,0 +1,130 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.tasks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * Aggregates the per-check error-prone timings written for each compile task into a report ranking the checks by
+ * their total time. Timings of compile tasks that were up-to-date in this build are kept from their last run, so the
+ * report always covers the whole codebase.
+ */
+public class ErrorProneTimingReportTask extends DefaultTask {
+
+    private File timingsDir;
+    private File reportFile;
+
+    public ErrorProneTimingReportTask() {
+        setGroup("Verification");
+        setDescription("Ranks error-prone checks by the time they took across all compile tasks.");
+        getOutputs().upToDateWhen(task -> false);
+    }
+
+    /** Directory holding one file of tab separated check names and milliseconds per compile task. */
+    @Internal
+    public final File getTimingsDir() {
+        return timingsDir;
+    }
+
+    public final void setTimingsDir(File timingsDir) {
+        this.timingsDir = timingsDir;
+    }
+
+    @OutputFile
+    public final File getReportFile() {
+        return reportFile;
+    }
+
+    public final void setReportFile(File reportFile) {
+        this.reportFile = reportFile;
+    }
+
+    @TaskAction
+    public final void report() throws IOException {
+        if (!timingsDir.isDirectory()) {
+            getLogger().info("No error-prone timings found in {}", timingsDir);
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> list = Files.list(timingsDir.toPath())) {
+            files = list.filter(file -> file.toString().endsWith(".tsv")).sorted().collect(Collectors.toList());
+        }
+
+        Map<String, CheckTimings> checks = new TreeMap<>();
+        for (Path file : files) {
+            String compileTask = file.getFileName().toString().replaceAll("\\.tsv$", "");
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String[] fields = line.split("\t");
+                if (fields.length == 2) {
+                    checks.computeIfAbsent(fields[0], CheckTimings::new)
+                            .add(compileTask, Long.parseLong(fields[1]));
+                }
+            }
+        }
+        long totalMillis = checks.values().stream().mapToLong(check -> check.totalMillis).sum();
+
+        Files.createDirectories(reportFile.getAbsoluteFile().getParentFile().toPath());
+        try (Writer writer = Files.newBufferedWriter(reportFile.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(String.format("error-prone took %.1fs across %d compile tasks%n%n",
+                    totalMillis / 1000.0, files.size()));
+            writer.write(String.format("%10s %7s %10s  %-40s %s%n",
+                    "total", "share", "max", "check", "slowest task"));
+            for (CheckTimings check : checks.values().stream()
+                    .sorted(Comparator.comparingLong((CheckTimings check) -> check.totalMillis).reversed())
+                    .collect(Collectors.toList())) {
+                writer.write(String.format("%9.1fs %6.1f%% %9.1fs  %-40s %s%n",
+                        check.totalMillis / 1000.0, 100.0 * check.totalMillis / Math.max(1, totalMillis),
+                        check.maxMillis / 1000.0, check.name, check.slowestTask));
+            }
+        }
+        getLogger().lifecycle("error-prone timing report written to {}", reportFile);
+    }
+
+    private static final class CheckTimings {
+        private final String name;
+        private long totalMillis;
+        private long maxMillis = -1;
+        private String slowestTask;
+
+        private CheckTimings(String name) {
+            this.name = name;
+        }
+
+        private void add(String compileTask, long millis) {
+            totalMillis += millis;
+            if (millis > maxMillis) {
+                maxMillis = millis;
+                slowestTask = compileTask;
+            }
+        }
+    }
+}
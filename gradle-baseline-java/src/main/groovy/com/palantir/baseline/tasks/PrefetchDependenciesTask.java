@@ -0,0 +1,142 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.tasks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.result.ResolutionResult;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.artifacts.result.UnresolvedDependencyResult;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * Resolves all resolvable configurations of a project and downloads their artifacts, to warm the dependency cache.
+ * One task per project, so that Gradle runs them concurrently with {@code --parallel}; artifacts of one repository are
+ * downloaded together, which Gradle also parallelizes. Timings are collected in a {@link DependencyResolutionReport}
+ * shared by all projects, which the root project's task writes out once all others are done.
+ */
+public class PrefetchDependenciesTask extends DefaultTask {
+
+    private DependencyResolutionReport report;
+    private File reportFile;
+
+    public PrefetchDependenciesTask() {
+        setGroup("Build Setup");
+        setDescription("Resolves all configurations and downloads their artifacts, reporting the time taken.");
+        getOutputs().upToDateWhen(task -> false);
+    }
+
+    @Internal
+    public final DependencyResolutionReport getReport() {
+        return report;
+    }
+
+    public final void setReport(DependencyResolutionReport report) {
+        this.report = report;
+    }
+
+    /** Where to write the report; only set on the task that runs last, e.g. the root project's. */
+    @OutputFile
+    @org.gradle.api.tasks.Optional
+    public final File getReportFile() {
+        return reportFile;
+    }
+
+    public final void setReportFile(File reportFile) {
+        this.reportFile = reportFile;
+    }
+
+    @TaskAction
+    public final void prefetch() throws IOException {
+        for (Configuration configuration : getProject().getConfigurations()) {
+            if (configuration.isCanBeResolved()) {
+                prefetch(configuration);
+            }
+        }
+        if (reportFile != null) {
+            report.write(reportFile.toPath());
+            getLogger().lifecycle("Dependency resolution report written to {}", reportFile);
+        }
+    }
+
+    private void prefetch(Configuration configuration) {
+        String name = getProject().getPath() + (getProject().getParent() == null ? "" : ":") + configuration.getName();
+        long started = System.nanoTime();
+        ResolutionResult result = configuration.getIncoming().getResolutionResult();
+        Set<ResolvedComponentResult> components = result.getAllComponents();
+        Set<String> unresolved = result.getAllDependencies().stream()
+                .filter(UnresolvedDependencyResult.class::isInstance)
+                .map(dependency -> dependency.getRequested().getDisplayName())
+                .collect(Collectors.toSet());
+        report.recordResolution(name, elapsedMillis(started), components.size(), unresolved);
+
+        // Every configuration fetches all its artifacts, as configurations select different artifacts and variants
+        // of the same components, and a lenient download that failed for one may succeed for another. Gradle serves
+        // artifacts fetched before from its cache; only the first fetch of each counts towards the report.
+        Map<String, Set<ComponentIdentifier>> componentsByRepository = new HashMap<>();
+        for (ResolvedComponentResult component : components) {
+            componentsByRepository.computeIfAbsent(repositoryName(component), unused -> new HashSet<>())
+                    .add(component.getId());
+        }
+        componentsByRepository.forEach((repository, ids) -> {
+            long downloadStarted = System.nanoTime();
+            List<File> files = configuration.getIncoming()
+                    .artifactView(view -> view.lenient(true).componentFilter(ids::contains))
+                    .getArtifacts()
+                    .getArtifacts()
+                    .stream()
+                    .filter(artifact -> report.isFirstFetch(artifact.getId()))
+                    .map(ResolvedArtifactResult::getFile)
+                    .collect(Collectors.toList());
+            report.recordDownload(name, repository, elapsedMillis(downloadStarted), files.size(),
+                    files.stream().mapToLong(File::length).sum());
+        });
+    }
+
+    private static long elapsedMillis(long startedNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+    }
+
+    /**
+     * The repository a component was resolved from. Gradle only exposes this on its internal result type, so it is
+     * read reflectively; project dependencies and unknown cases are grouped under a description of the component.
+     */
+    private static String repositoryName(ResolvedComponentResult component) {
+        try {
+            Object repository = component.getClass().getMethod("getRepositoryName").invoke(component);
+            if (repository != null) {
+                return repository.toString();
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // fall through
+        }
+        return component.getId().getClass().getSimpleName().contains("Project") ? "(project)" : "(unknown)";
+    }
+}
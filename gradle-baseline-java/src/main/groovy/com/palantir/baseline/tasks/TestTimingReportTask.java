@@ -0,0 +1,250 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline.tasks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.testing.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Ranks the slowest test classes and methods from the JUnit XML reports written during this build, and flags tests
+ * whose duration regressed compared to a history file that is updated on every run.
+ */
+public class TestTimingReportTask extends DefaultTask {
+
+    private final Set<Test> testTasks = new LinkedHashSet<>();
+    private File historyFile;
+    private File reportFile;
+    private double regressionThreshold = 0.5;
+    private long minimumDurationMillis = 1000;
+    private int slowestCount = 20;
+    private int historyRetentionBuilds = BuildHistory.DEFAULT_RETENTION_BUILDS;
+
+    public TestTimingReportTask() {
+        setGroup("Verification");
+        setDescription("Reports the slowest tests and tests that got slower than in previous builds.");
+        getOutputs().upToDateWhen(task -> false);
+    }
+
+    /** The test tasks whose JUnit XML reports are read, if they ran in this build. */
+    @Internal
+    public final Set<Test> getTestTasks() {
+        return testTasks;
+    }
+
+    public final void addTestTask(Test test) {
+        testTasks.add(test);
+    }
+
+    @Internal
+    public final File getHistoryFile() {
+        return historyFile;
+    }
+
+    public final void setHistoryFile(File historyFile) {
+        this.historyFile = historyFile;
+    }
+
+    @Internal
+    public final File getReportFile() {
+        return reportFile;
+    }
+
+    public final void setReportFile(File reportFile) {
+        this.reportFile = reportFile;
+    }
+
+    /** Fractional slow-down, relative to the historical duration, above which a test is flagged; 0.5 means 50%. */
+    @Input
+    public final double getRegressionThreshold() {
+        return regressionThreshold;
+    }
+
+    public final void setRegressionThreshold(double regressionThreshold) {
+        this.regressionThreshold = regressionThreshold;
+    }
+
+    /** Tests faster than this are never flagged, since their timings are dominated by noise. */
+    @Input
+    public final long getMinimumDurationMillis() {
+        return minimumDurationMillis;
+    }
+
+    public final void setMinimumDurationMillis(long minimumDurationMillis) {
+        this.minimumDurationMillis = minimumDurationMillis;
+    }
+
+    /** Tests not run for more than this many builds, e.g. because they were deleted, are dropped from the history. */
+    @Input
+    public final int getHistoryRetentionBuilds() {
+        return historyRetentionBuilds;
+    }
+
+    public final void setHistoryRetentionBuilds(int historyRetentionBuilds) {
+        this.historyRetentionBuilds = historyRetentionBuilds;
+    }
+
+    @Input
+    public final int getSlowestCount() {
+        return slowestCount;
+    }
+
+    public final void setSlowestCount(int slowestCount) {
+        this.slowestCount = slowestCount;
+    }
+
+    @TaskAction
+    public final void generateReport() throws IOException {
+        TimingsHandler timings = new TimingsHandler();
+        for (Path xmlReport : currentReports()) {
+            try (InputStream stream = Files.newInputStream(xmlReport)) {
+                SAXParserFactory.newInstance().newSAXParser().parse(stream, timings);
+            } catch (SAXException | ParserConfigurationException e) {
+                getLogger().warn("Skipping unparseable JUnit report {}", xmlReport, e);
+            }
+        }
+        if (timings.methodMillis.isEmpty()) {
+            setDidWork(false);
+            return;
+        }
+
+        Map<String, BuildHistory.Entry> history = BuildHistory.read(historyFile.toPath());
+        List<String> regressions = timings.methodMillis.entrySet().stream()
+                .filter(entry -> isRegression(history.get(entry.getKey()), entry.getValue()))
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                .map(entry -> {
+                    double previous = history.get(entry.getKey()).value();
+                    return String.format("%10s  %s (was %s, +%.0f%%)",
+                            formatMillis(entry.getValue()), entry.getKey(), formatMillis(previous),
+                            100 * (entry.getValue() - previous) / previous);
+                })
+                .collect(Collectors.toList());
+
+        Files.createDirectories(reportFile.toPath().getParent());
+        try (Writer writer = Files.newBufferedWriter(reportFile.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("Slowest test classes:\n");
+            writeSlowest(writer, timings.classMillis);
+            writer.write("\nSlowest test methods:\n");
+            writeSlowest(writer, timings.methodMillis);
+            writer.write(String.format("%nTests more than %.0f%% slower than their history (and taking at least %s):%n",
+                    100 * regressionThreshold, formatMillis(minimumDurationMillis)));
+            for (String regression : regressions) {
+                writer.write(regression + "\n");
+            }
+        }
+
+        if (!regressions.isEmpty()) {
+            getLogger().warn("{} tests got slower than in previous builds, see {}:\n{}",
+                    regressions.size(), reportFile, String.join("\n", regressions));
+        }
+
+        BuildHistory.update(historyFile.toPath(), entries -> {
+            timings.methodMillis.forEach((test, millis) -> BuildHistory.record(entries, test, millis));
+            BuildHistory.age(entries, timings.methodMillis.keySet(), historyRetentionBuilds);
+        });
+    }
+
+    private boolean isRegression(BuildHistory.Entry previous, double millis) {
+        return previous != null
+                && millis >= minimumDurationMillis
+                && millis > previous.value() * (1 + regressionThreshold);
+    }
+
+    private void writeSlowest(Writer writer, Map<String, Double> millisByName) throws IOException {
+        List<Map.Entry<String, Double>> slowest = millisByName.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                .limit(slowestCount)
+                .collect(Collectors.toList());
+        for (Map.Entry<String, Double> entry : slowest) {
+            writer.write(String.format("%10s  %s%n", formatMillis(entry.getValue()), entry.getKey()));
+        }
+    }
+
+    /**
+     * Reports of the test tasks that ran in this build. Reports of up-to-date test tasks are left over from earlier
+     * builds, and their timings were already recorded then.
+     */
+    private List<Path> currentReports() throws IOException {
+        List<Path> reports = new ArrayList<>();
+        for (Test test : testTasks) {
+            File reportsDir = test.getReports().getJunitXml().getDestination();
+            boolean ran = test.getState().getDidWork() || test.getState().getFailure() != null;
+            if (!ran || reportsDir == null || !reportsDir.isDirectory()) {
+                continue;
+            }
+            try (Stream<Path> files = Files.walk(reportsDir.toPath())) {
+                files.filter(file -> file.getFileName().toString().endsWith(".xml"))
+                        .sorted(Comparator.naturalOrder())
+                        .forEach(reports::add);
+            }
+        }
+        return reports;
+    }
+
+    private static String formatMillis(double millis) {
+        return String.format("%.3fs", millis / TimeUnit.SECONDS.toMillis(1));
+    }
+
+    private static final class TimingsHandler extends DefaultHandler {
+        private final Map<String, Double> classMillis = new HashMap<>();
+        private final Map<String, Double> methodMillis = new HashMap<>();
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if (!qName.equals("testcase")) {
+                return;
+            }
+            String className = attributes.getValue("classname");
+            String time = attributes.getValue("time");
+            if (className == null || time == null) {
+                return;
+            }
+            double millis;
+            try {
+                millis = Double.parseDouble(time) * TimeUnit.SECONDS.toMillis(1);
+            } catch (NumberFormatException e) {
+                return;
+            }
+            classMillis.merge(className, millis, Double::sum);
+            methodMillis.merge(className + "#" + attributes.getValue("name"), millis, Double::sum);
+        }
+    }
+}
@@ -19,6 +19,7 @@ package com.palantir.baseline
 
 import org.gradle.testkit.runner.BuildResult
 import org.gradle.testkit.runner.TaskOutcome
+import spock.lang.IgnoreIf
 
 class BaselineCircleCiIntegrationTest extends AbstractPluginTest {
     def standardBuildFile = '''
@@ -60,6 +61,73 @@ class BaselineCircleCiIntegrationTest extends AbstractPluginTest {
         result.task(':resolveConfigurations').outcome == TaskOutcome.SUCCESS
     }
 
+    def 'prefetches dependencies of all projects'() {
+        when:
+        buildFile << standardBuildFile
+        file('settings.gradle') << "include 'sub'"
+        file('sub/build.gradle') << '''
+            apply plugin: 'java'
+            repositories { jcenter() }
+            dependencies { testCompile 'junit:junit:4.12' }
+        '''.stripIndent()
+
+        String artifacts = System.getenv('CIRCLE_ARTIFACTS')
+        then:
+        BuildResult result = with('prefetchDependencies', '--parallel').build()
+        result.task(':sub:prefetchDependencies').outcome == TaskOutcome.SUCCESS
+        result.task(':prefetchDependencies').outcome == TaskOutcome.SUCCESS
+        String report = new File(artifacts, 'dependency-resolution.txt').text
+        report.contains(':sub:testCompileClasspath')
+        report.contains(':testCompileClasspath')
+        report.contains('repository')
+    }
+
+    def 'fingerprints resolved dependencies'() {
+        when:
+        buildFile << standardBuildFile
+        File fingerprint = file('build/dependency-fingerprint')
+
+        then:
+        with('dependencyFingerprint').build().task(':dependencyFingerprint').outcome == TaskOutcome.SUCCESS
+        String first = fingerprint.text
+        file('build/dependency-fingerprint.modules').text.contains('junit:junit:4.12')
+        with('dependencyFingerprint').build()
+        fingerprint.text == first
+
+        when:
+        buildFile << "dependencies { testCompile 'org.hamcrest:hamcrest-library:1.3' }"
+
+        then:
+        with('dependencyFingerprint').build()
+        fingerprint.text != first
+    }
+
+    def 'fingerprints buildscript dependencies'() {
+        when:
+        buildFile << standardBuildFile
+        file('settings.gradle') << "include 'sub'"
+        File subBuildFile = file('sub/build.gradle')
+        subBuildFile << '''
+            buildscript {
+                repositories { jcenter() }
+                dependencies { classpath 'com.google.guava:guava:21.0' }
+            }
+        '''.stripIndent()
+        File fingerprint = file('build/dependency-fingerprint')
+
+        then:
+        with('dependencyFingerprint').build()
+        String first = fingerprint.text
+        file('build/dependency-fingerprint.modules').text.contains('com.google.guava:guava:21.0')
+
+        when:
+        subBuildFile.text = subBuildFile.text.replace('21.0', '22.0')
+
+        then:
+        with('dependencyFingerprint').build()
+        fingerprint.text != first
+    }
+
     def 'collects html reports'() {
         when:
         buildFile << standardBuildFile
@@ -82,11 +150,233 @@ class BaselineCircleCiIntegrationTest extends AbstractPluginTest {
         BuildResult result = with('build', '--profile').build()
         result.task(':build').outcome == TaskOutcome.SUCCESS
         Set<String> files = new File(artifacts, 'profile').list().toList().toSet()
-        files.size() == 3
+        files.size() == 4
         files.containsAll(defaultDirs)
         files.removeAll(defaultDirs)
-        String profileFile = files.iterator().next()
-        profileFile.startsWith("profile-")
-        profileFile.endsWith(".html")
+        files.every { it.startsWith("profile-") }
+        files.collect { it.substring(it.lastIndexOf('.')) }.toSet() == ['.html', '.jsonl'].toSet()
+        String jsonFile = files.find { it.endsWith(".jsonl") }
+        List<String> records = new File(new File(artifacts, 'profile'), jsonFile).readLines()
+        records.any { it.contains('"type":"build"') }
+        records.any { it.contains('"type":"configuration"') && it.contains('"project":":"') }
+        records.any { it.contains('"type":"task"') && it.contains('"task":":build"') }
+    }
+
+    def 'reports slow tests and duration regressions'() {
+        when:
+        buildFile << standardBuildFile
+        file('src/test/java/test/SlowTestClass.java') << '''
+            package test;
+
+            import org.junit.Test;
+
+            public class SlowTestClass {
+                @Test
+                public void test() throws InterruptedException {
+                    Thread.sleep(200);
+                }
+            }
+            '''.stripIndent()
+        file('history/test-durations.tsv') << 'name\tvalue\tsamples\ntest.SlowTestClass#test\t1.0\t3\n' +
+                'test.DeletedTestClass#test\t1.0\t3\t2\ntest.SkippedTestClass#test\t1.0\t3\n'
+
+        String artifacts = System.getenv('CIRCLE_ARTIFACTS')
+        then:
+        BuildResult result = with('test',
+                '-PbaselineCircleCi.historyDir=history',
+                '-PbaselineCircleCi.testRegressionMinMillis=0',
+                '-PbaselineCircleCi.testHistoryRetentionBuilds=2').build()
+        result.task(':testTimingReport').outcome == TaskOutcome.SUCCESS
+        String report = new File(artifacts, 'test-timings.txt').text
+        report.contains('Slowest test classes:')
+        report.contains('test.SlowTestClass#test (was 0.001s')
+        result.output.contains('1 tests got slower than in previous builds')
+        List<String> history = file('history/test-durations.tsv').readLines()
+        history.any { it.startsWith('test.SlowTestClass#test\t') }
+        history.contains('test.SkippedTestClass#test\t1.0\t3\t1')
+        !history.any { it.startsWith('test.DeletedTestClass#test\t') }
+
+        when:
+        BuildResult upToDate = with('test', '-PbaselineCircleCi.historyDir=history').build()
+
+        then:
+        upToDate.task(':test').outcome == TaskOutcome.UP_TO_DATE
+        !upToDate.output.contains('tests got slower')
+        file('history/test-durations.tsv').readLines() == history
+    }
+
+    def 'summarizes gc logs of test jvms'() {
+        when:
+        buildFile << standardBuildFile
+        file('src/test/java/test/TestClass.java') << javaFile
+
+        String artifacts = System.getenv('CIRCLE_ARTIFACTS')
+        then:
+        BuildResult result = with('test',
+                '-PbaselineCircleCi.historyDir=history',
+                '-PbaselineCircleCi.testGcLogging=true').build()
+        result.task(':test').outcome == TaskOutcome.SUCCESS
+        File metricsDir = new File(new File(artifacts, 'junit'), 'test-jvm')
+        metricsDir.list().any { it.startsWith('gc-') && it.endsWith('.log') }
+        List<String> summary = new File(metricsDir, 'summary.txt').readLines()
+        summary[0].startsWith('fork')
+        summary.size() >= 2
+    }
+
+    @IgnoreIf({ !BaselineCircleCiIntegrationTest.testFlightRecordingAvailable() })
+    def 'summarizes gc pauses and peak heap from flight recordings of test jvms'() {
+        when:
+        buildFile << standardBuildFile
+        file('src/test/java/test/GcTestClass.java') << '''
+            package test;
+            import org.junit.Test;
+            public class GcTestClass {
+                @Test
+                public void test() {
+                    System.gc();
+                }
+            }
+        '''.stripIndent()
+
+        String artifacts = System.getenv('CIRCLE_ARTIFACTS')
+        then:
+        BuildResult result = with('test',
+                '-PbaselineCircleCi.historyDir=history',
+                '-PbaselineCircleCi.testFlightRecording=true').build()
+        result.task(':test').outcome == TaskOutcome.SUCCESS
+        File metricsDir = new File(new File(artifacts, 'junit'), 'test-jvm')
+        !metricsDir.list().any { it.startsWith('gc-') }
+        List<String> fork = new File(metricsDir, 'summary.txt').readLines()[1].trim().split(/\s{2,}/) as List
+        Integer.parseInt(fork[1]) >= 1
+        fork[4].endsWith(' MB')
+        file('history/test-fork-heap.tsv').readLines().any { it.startsWith(':test\t') }
+    }
+
+    // Test kit builds run on the JVM running the tests
+    @IgnoreIf({ !BaselineCircleCiIntegrationTest.flightRecorderAvailable() })
+    def 'records the build with flight recorder'() {
+        when:
+        buildFile << standardBuildFile
+
+        String artifacts = System.getenv('CIRCLE_ARTIFACTS')
+        then:
+        BuildResult result = with('build', '-PbaselineCircleCi.recordBuild=true').build()
+        result.task(':build').outcome == TaskOutcome.SUCCESS
+        !result.output.contains('Failed to start a flight recording')
+        File[] files = new File(artifacts, 'profile').listFiles()
+        File recording = files.find { it.name.startsWith('build-') && it.name.endsWith('.jfr') }
+        recording.length() > 0
+        String summary = new File(recording.parentFile, recording.name.replace('.jfr', '-jfr-summary.txt')).text
+        summary.contains('Hot methods')
+        summary.contains('GC pauses:')
+    }
+
+    /** Test JVMs are only recorded from Java 11, where test kit builds and so their test forks run. */
+    static boolean testFlightRecordingAvailable() {
+        String version = System.getProperty('java.specification.version')
+        return !version.startsWith('1.') && Integer.parseInt(version) >= 11
+    }
+
+    /** Flight recorder and the API to read recordings back, for the summary, come together from Java 11 (and 8u262). */
+    static boolean flightRecorderAvailable() {
+        try {
+            Class.forName('jdk.jfr.consumer.RecordingFile')
+            return true
+        } catch (ClassNotFoundException ignored) {
+            return false
+        }
+    }
+
+    def 'sizes test forks'() {
+        when:
+        buildFile << standardBuildFile
+        buildFile << '''
+            test.doFirst {
+                println "forks=${maxParallelForks} heap=${maxHeapSize} forkEvery=${forkEvery}"
+            }
+        '''.stripIndent()
+        file('src/test/java/test/TestClass.java') << javaFile
+
+        then:
+        BuildResult result = with('test',
+                '-PbaselineCircleCi.historyDir=history',
+                '-PbaselineCircleCi.tuneTestForks=true',
+                '-PbaselineCircleCi.testMaxHeapSize=300m',
+                '-PbaselineCircleCi.testForkEvery=7').build()
+        result.task(':test').outcome == TaskOutcome.SUCCESS
+        result.output =~ /forks=[1-9]\d* heap=300m forkEvery=7/
+    }
+
+    def 'runs previously failing test classes first'() {
+        when:
+        buildFile << standardBuildFile
+        buildFile << '''
+            test.beforeSuite { suite -> if (suite.className) println "running ${suite.className}" }
+        '''.stripIndent()
+        ['ATestClass', 'BTestClass', 'ZTestClass'].each {
+            file("src/test/java/test/${it}.java") << javaFile.replace('TestClass', it)
+        }
+        file('history/test-class-failures.tsv') << 'name\tvalue\tsamples\n:test test.ZTestClass\t1.0\t1\n'
+        file('history/test-class-durations.tsv') << 'name\tvalue\tsamples\tunseen\n' +
+                ':test test.DeletedTestClass\t5000.0\t3\t2\n:other:test test.OtherTestClass\t1.0\t3\t2\n'
+
+        then:
+        BuildResult result = with('test',
+                '-PbaselineCircleCi.historyDir=history',
+                '-PbaselineCircleCi.prioritizeTests=true',
+                '-PbaselineCircleCi.testHistoryRetentionBuilds=2').build()
+        result.task(':test').outcome == TaskOutcome.SUCCESS
+        result.output.findAll(/running test\.\w+/).first() == 'running test.ZTestClass'
+        result.output.findAll(/running test\.\w+/).size() == 3
+        // passed this time, so no longer prioritized as a failure, but timed
+        file('history/test-class-failures.tsv').readLines() == ['name\tvalue\tsamples\tunseen']
+        List<String> durations = file('history/test-class-durations.tsv').readLines()
+        durations.any { it.startsWith(':test test.ATestClass\t') }
+        // classes of :test that stopped running are forgotten, other tasks' classes are left alone
+        !durations.any { it.startsWith(':test test.DeletedTestClass\t') }
+        durations.contains(':other:test test.OtherTestClass\t1.0\t3\t2')
+    }
+
+    def 'fails the build for failing prioritized test classes'() {
+        when:
+        buildFile << standardBuildFile
+        file('src/test/java/test/TestClass.java') << javaFile
+        file('src/test/java/test/FailingTestClass.java') << '''
+            package test;
+            import org.junit.Test;
+            public class FailingTestClass {
+                @Test
+                public void test() {
+                    throw new AssertionError();
+                }
+            }
+        '''.stripIndent()
+        file('history/test-class-failures.tsv') << 'name\tvalue\tsamples\n:test test.FailingTestClass\t1.0\t1\n'
+
+        then:
+        BuildResult result = with('test',
+                '-PbaselineCircleCi.historyDir=history',
+                '-PbaselineCircleCi.prioritizeTests=true').buildAndFail()
+        result.task(':test').outcome == TaskOutcome.FAILED
+        with('test', '-PbaselineCircleCi.historyDir=history', '-PbaselineCircleCi.prioritizeTests=true')
+                .buildAndFail().task(':test').outcome == TaskOutcome.FAILED
+    }
+
+    def 'reports build cache hits and misses'() {
+        when:
+        buildFile << standardBuildFile
+        file('src/main/java/test/Main.java') << 'package test; public class Main {}'
+
+        String artifacts = System.getenv('CIRCLE_ARTIFACTS')
+        then:
+        with('compileJava', '--build-cache').build()
+        new File(artifacts, 'build-cache').deleteDir()
+        BuildResult result = with('clean', 'compileJava', '--build-cache').build()
+        result.task(':compileJava').outcome == TaskOutcome.FROM_CACHE
+        File[] reports = new File(artifacts, 'build-cache').listFiles()
+        reports.find { it.name.endsWith('.tsv') }.readLines().any {
+            it.startsWith(':compileJava\t') && it.contains('\tFROM-CACHE\ttrue\t')
+        }
+        reports.find { it.name.endsWith('.txt') }.text.contains('Cache hit rate of cacheable tasks: 100%')
     }
 }
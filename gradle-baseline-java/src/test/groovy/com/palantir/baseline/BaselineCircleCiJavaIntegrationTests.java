@@ -171,6 +171,28 @@ public class BaselineCircleCiJavaIntegrationTests {
         assertThat(reportXml).contains("message=\"RuntimeException: This task will always fail\"");
     }
 
+    @Test
+    public void recoversReportOfUnfinishedBuild() throws IOException {
+        assertThat(new File(reportsDir, "gradle").mkdirs()).isTrue();
+        Files.asCharSink(new File(reportsDir, "gradle/build.xml.journal"), StandardCharsets.UTF_8)
+                .write("S\tgradle\t0\t$\nP\t:foobar:compileJava\t$\n");
+
+        BuildResult result = GradleRunner.create()
+                .withProjectDir(projectDir.getRoot())
+                .withArguments("--stacktrace", "failingTask")
+                .buildAndFail();
+        assertThat(result.getOutput()).contains("This task will always fail");
+
+        assertThat(new File(reportsDir, "gradle/build.xml.journal")).doesNotExist();
+        String recoveredXml =
+                Files.asCharSource(new File(reportsDir, "gradle/build.xml"), StandardCharsets.UTF_8).read();
+        assertThat(recoveredXml)
+                .contains(":foobar:compileJava")
+                .contains("message=\"Build did not complete\"");
+        String reportXml = Files.asCharSource(new File(reportsDir, "gradle/build2.xml"), StandardCharsets.UTF_8).read();
+        assertThat(reportXml).contains("message=\"RuntimeException: This task will always fail\"");
+    }
+
     @Test
     public void canCallGradleThreeTimesInARow() {
         GradleRunner.create()
@@ -82,4 +82,24 @@ class BaselineErrorProneIntegrationTest extends AbstractPluginTest {
         BuildResult result = with('compileJava').build()
         result.task(":compileJava").outcome == TaskOutcome.SUCCESS
     }
+
+    def 'reports per-check timings when enabled'() {
+        when:
+        buildFile << standardBuildFile
+        buildFile << '''
+            baselineErrorProne {
+                timings = true
+            }
+        '''.stripIndent()
+        file('src/main/java/test/Test.java') << validJavaFile
+
+        then:
+        BuildResult result = with('compileJava').build()
+        result.task(':compileJava').outcome == TaskOutcome.SUCCESS
+        result.task(':errorProneTimingReport').outcome == TaskOutcome.SUCCESS
+        file('build/error-prone-timings/compileJava.tsv').exists()
+        String report = file('build/reports/error-prone-timings.txt').text
+        report.contains('across 1 compile tasks')
+        report.contains('Slf4jLogsafeArgs')
+    }
 }
@@ -0,0 +1,47 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.baseline
+
+import org.apache.commons.io.FileUtils
+
+class BaselineIntegrationTest extends AbstractPluginTest {
+    File timingsFile = new File(System.getenv('CIRCLE_ARTIFACTS'), 'baseline-timings.tsv')
+
+    def setup() {
+        FileUtils.copyDirectory(
+                new File("../gradle-baseline-java-config/resources"),
+                new File(projectDir, ".baseline"))
+        timingsFile.delete()
+    }
+
+    def 'records configuration time of baseline plugins'() {
+        when:
+        buildFile << '''
+            plugins {
+                id 'com.palantir.baseline'
+            }
+        '''.stripIndent()
+
+        then:
+        with('idea').build()
+        List<String> rows = timingsFile.readLines()
+        rows[0] == 'plugin\tphase\tproject\tcount\tmillis'
+        rows.any { it.startsWith('BaselineIdea\tapply\t:\t') }
+        rows.any { it.startsWith('BaselineIdea\tafterEvaluate\t:\t') }
+        rows.any { it.startsWith('BaselineIdea\twithXml\t:\t') }
+        rows.any { it.startsWith('BaselineErrorProne\tafterEvaluate\t:\t') }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.baseline
+
+import java.util.jar.JarOutputStream
+import java.util.zip.CRC32
+import java.util.zip.ZipEntry
+import org.gradle.testkit.runner.BuildResult
+import org.gradle.testkit.runner.TaskOutcome
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+
+class BaselineTestImpactIntegrationTest extends AbstractPluginTest {
+
+    @Rule
+    TemporaryFolder externalRepo = new TemporaryFolder()
+
+    def standardBuildFile = '''
+        plugins {
+            id 'java'
+            id 'com.palantir.baseline-test-impact'
+        }
+        repositories {
+            jcenter()
+        }
+        dependencies {
+            testCompile 'junit:junit:4.12'
+        }
+    '''.stripIndent()
+
+    def mainClass(String name, String value) {
+        return """
+            package main;
+
+            public class ${name} {
+                public String value() { return "${value}"; }
+            }
+            """.stripIndent()
+    }
+
+    def testClass(String name, String mainClass) {
+        return """
+            package main;
+
+            import org.junit.Test;
+
+            public class ${name} {
+                @Test
+                public void test() { new ${mainClass}().value(); }
+            }
+            """.stripIndent()
+    }
+
+    /** Writes a jar outside the project, with a single uncompressed entry so its size only depends on the contents. */
+    def externalJar(String contents) {
+        byte[] bytes = contents.bytes
+        CRC32 crc = new CRC32()
+        crc.update(bytes)
+        ZipEntry entry = new ZipEntry('data.txt')
+        entry.method = ZipEntry.STORED
+        entry.size = bytes.length
+        entry.crc = crc.value
+        entry.time = 0
+        File jar = new File(externalRepo.root, 'data-1.0-SNAPSHOT.jar')
+        new JarOutputStream(new FileOutputStream(jar)).withCloseable { out ->
+            out.putNextEntry(entry)
+            out.write(bytes)
+            out.closeEntry()
+        }
+        return jar
+    }
+
+    def setup() {
+        buildFile << standardBuildFile
+        file('src/main/java/main/First.java') << mainClass('First', 'one')
+        file('src/main/java/main/Second.java') << mainClass('Second', 'two')
+        file('src/test/java/main/FirstTest.java') << testClass('FirstTest', 'First')
+        file('src/test/java/main/SecondTest.java') << testClass('SecondTest', 'Second')
+    }
+
+    def 'runs only tests affected by changed classes'() {
+        when:
+        BuildResult initial = with('test', '-PbaselineTestImpact.stateDir=state').build()
+        file('src/main/java/main/First.java').text = mainClass('First', 'changed')
+        BuildResult incremental = with('test', '-PbaselineTestImpact.stateDir=state').build()
+
+        then:
+        initial.output.contains('Running all tests of :test, no previous run to compare with')
+        incremental.task(':test').outcome == TaskOutcome.SUCCESS
+        incremental.output.contains('Running 1 test classes of :test affected by 1 changed classes')
+        new File(projectDir, 'build/test-results/test').list().findAll { it.endsWith('.xml') } ==
+                ['TEST-main.FirstTest.xml']
+    }
+
+    def 'runs all tests when build files change'() {
+        when:
+        with('test', '-PbaselineTestImpact.stateDir=state').build()
+        file('src/main/java/main/First.java').text = mainClass('First', 'changed')
+        buildFile << '\ntest.systemProperty "changed", "true"\n'
+        BuildResult result = with('test', '-PbaselineTestImpact.stateDir=state').build()
+
+        then:
+        result.output.contains('Running all tests of :test, changed: [build]')
+        new File(projectDir, 'build/test-results/test').list().findAll { it.endsWith('.xml') }.toSet() ==
+                ['TEST-main.FirstTest.xml', 'TEST-main.SecondTest.xml'].toSet()
+    }
+
+    def 'runs all tests when an external jar changes with the same name and size'() {
+        when:
+        File jar = externalJar('one')
+        buildFile << "\ndependencies { testCompile files('${jar.absolutePath}') }\n"
+        with('test', '-PbaselineTestImpact.stateDir=state').build()
+        long size = jar.length()
+        externalJar('two')
+        BuildResult result = with('test', '-PbaselineTestImpact.stateDir=state').build()
+
+        then:
+        jar.length() == size
+        result.output.contains('Running all tests of :test, changed: [classpath]')
+    }
+}
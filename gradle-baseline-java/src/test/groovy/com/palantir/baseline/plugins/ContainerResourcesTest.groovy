@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.baseline.plugins
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+class ContainerResourcesTest extends Specification {
+    @Rule
+    TemporaryFolder cgroupRoot = new TemporaryFolder()
+
+    def 'reads cgroup v2 limits'() {
+        when:
+        file('cpu.max') << '100000 100000\n'
+        file('memory.max') << '268435456\n'
+
+        then:
+        ContainerResources resources = ContainerResources.detect(cgroupRoot.root.toPath())
+        resources.cpus() == 1
+        resources.memoryBytes() == 256L << 20
+    }
+
+    def 'rounds fractional cgroup v2 cpu limits up'() {
+        when:
+        file('cpu.max') << '50000 100000\n'
+
+        then:
+        ContainerResources.detect(cgroupRoot.root.toPath()).cpus() == 1
+    }
+
+    def 'ignores unlimited cgroup v2 limits'() {
+        when:
+        file('cpu.max') << 'max 100000\n'
+        file('memory.max') << 'max\n'
+
+        then:
+        ContainerResources resources = ContainerResources.detect(cgroupRoot.root.toPath())
+        resources.cpus() == Runtime.runtime.availableProcessors()
+        resources.memoryBytes() == withoutCgroups().memoryBytes()
+    }
+
+    def 'reads cgroup v1 limits'() {
+        when:
+        file('cpu/cpu.cfs_quota_us') << '100000\n'
+        file('cpu/cpu.cfs_period_us') << '100000\n'
+        file('memory/memory.limit_in_bytes') << '268435456\n'
+
+        then:
+        ContainerResources resources = ContainerResources.detect(cgroupRoot.root.toPath())
+        resources.cpus() == 1
+        resources.memoryBytes() == 256L << 20
+    }
+
+    def 'ignores unlimited cgroup v1 limits'() {
+        when:
+        file('cpu/cpu.cfs_quota_us') << '-1\n'
+        file('cpu/cpu.cfs_period_us') << '100000\n'
+        file('memory/memory.limit_in_bytes') << '9223372036854771712\n'
+
+        then:
+        ContainerResources resources = ContainerResources.detect(cgroupRoot.root.toPath())
+        resources.cpus() == Runtime.runtime.availableProcessors()
+        resources.memoryBytes() == withoutCgroups().memoryBytes()
+    }
+
+    def 'prefers cgroup v2 files over v1 files'() {
+        when:
+        file('memory.max') << '268435456\n'
+        file('memory/memory.limit_in_bytes') << '536870912\n'
+
+        then:
+        ContainerResources.detect(cgroupRoot.root.toPath()).memoryBytes() == 256L << 20
+    }
+
+    private File file(String path) {
+        File file = new File(cgroupRoot.root, path)
+        file.parentFile.mkdirs()
+        return file
+    }
+
+    private ContainerResources withoutCgroups() {
+        return ContainerResources.detect(cgroupRoot.newFolder().toPath())
+    }
+}
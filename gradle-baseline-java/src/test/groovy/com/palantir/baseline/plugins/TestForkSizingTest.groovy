@@ -0,0 +1,72 @@
+/*
+ * Copyright 2018 Palantir Technologies, Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.baseline.plugins
+
+import com.palantir.baseline.tasks.BuildHistory
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class TestForkSizingTest extends Specification {
+    static final long MB = 1L << 20
+    static final long DAEMON_HEAP = 512 * MB
+
+    @Unroll
+    def 'sizes forks for #cpus cpus, #memoryMb MB and #peakHeapMb MB peak heap shared by #tasks tasks'() {
+        when:
+        Map<String, BuildHistory.Entry> history = peakHeapMb == null
+                ? [:]
+                : [':test': new BuildHistory.Entry(peakHeapMb * MB, 3)]
+        TestForkSizing.Sizing sizing = new TestForkSizing(new ContainerResources(cpus, memoryMb * MB), history, tasks)
+                .size(':test', DAEMON_HEAP)
+
+        then:
+        sizing.forks() == forks
+        sizing.heapBytes() == heapMb * MB
+        sizing.forkEvery() == forkEvery
+
+        where:
+        cpus | memoryMb | peakHeapMb | tasks || forks | heapMb | forkEvery
+        // Default heap without history, as many forks as cpus when memory allows
+        8    | 16384    | null       | 1     || 8     | 512    | 0
+        // 1.5 times the peak heap, rounded up to 64 MB; with overhead, 896 MB per fork fits 8 times into the
+        // 7424 MB left by the daemon, but only once into 1280 MB
+        4    | 8192     | 400        | 1     || 4     | 640    | 0
+        2    | 2048     | 400        | 1     || 1     | 640    | 0
+        // Never less than the minimum heap
+        4    | 8192     | 100        | 1     || 4     | 256    | 0
+        // Concurrent tasks split cpus and the 7424 MB left by the daemon: 8 cpus and 3712 MB, 2 cpus and 2474 MB
+        16   | 8192     | null       | 2     || 4     | 512    | 0
+        8    | 8192     | null       | 3     || 2     | 512    | 0
+        // Too little memory for the 1536 MB heap a fork needs: shrink it to what's left after the fork overhead,
+        // e.g. 1664 MB per task - 256 MB, and recycle forks to bound heap growth
+        4    | 2048     | 1000       | 1     || 1     | 1024   | TestForkSizing.CONSTRAINED_FORK_EVERY
+        4    | 1024     | 1000       | 1     || 1     | 256    | TestForkSizing.CONSTRAINED_FORK_EVERY
+        4    | 4096     | 1000       | 2     || 1     | 1408   | TestForkSizing.CONSTRAINED_FORK_EVERY
+        // Unknown memory: a single fork with the heap it needs
+        8    | 0        | 400        | 1     || 1     | 640    | 0
+    }
+
+    def 'sizes tasks without history with the default heap'() {
+        when:
+        TestForkSizing.Sizing sizing = new TestForkSizing(
+                new ContainerResources(4, 8192 * MB), [':other:test': new BuildHistory.Entry(2048 * MB, 1)], 1)
+                .size(':test', DAEMON_HEAP)
+
+        then:
+        sizing.heapBytes() == TestForkSizing.DEFAULT_HEAP_BYTES
+        sizing.forks() == 4
+    }
+}
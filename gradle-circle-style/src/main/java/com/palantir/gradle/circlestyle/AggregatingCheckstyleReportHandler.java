@@ -0,0 +1,137 @@
+/*
+ * (c) Copyright 2017 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.gradle.circlestyle;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.gradle.api.plugins.quality.Checkstyle;
+import org.xml.sax.Attributes;
+
+/**
+ * Alternative to {@link CheckstyleReportHandler} that reports one failure per (rule, file) pair rather than one per
+ * violation. Only an occurrence count and the first few examples of each group are retained, so a rule rolled out
+ * across a whole codebase produces a report proportional to the number of files touched, not the number of errors.
+ */
+public final class AggregatingCheckstyleReportHandler extends ReportHandler<Checkstyle> {
+
+    public static final int DEFAULT_MAX_EXAMPLES = 5;
+
+    private final int maxExamples;
+    private final List<Failure> failures = new ArrayList<>();
+    private final Map<String, Group> groups = new LinkedHashMap<>();
+    private File file;
+
+    public AggregatingCheckstyleReportHandler() {
+        this(DEFAULT_MAX_EXAMPLES);
+    }
+
+    public AggregatingCheckstyleReportHandler(int maxExamples) {
+        if (maxExamples < 1) {
+            throw new IllegalArgumentException("maxExamples must be positive, got " + maxExamples);
+        }
+        this.maxExamples = maxExamples;
+    }
+
+    @Override
+    public void configureTask(Checkstyle task) {
+        // Ensure XML output is enabled
+        task.getReports().findByName("xml").setEnabled(true);
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+        switch (qName) {
+            case "file":
+                file = new File(attributes.getValue("name"));
+                break;
+
+            case "error":
+                String source = attributes.getValue("source");
+                Group group = groups.computeIfAbsent(source == null ? "" : source, Group::new);
+                group.add(attributes.getValue("severity").toUpperCase(),
+                        Integer.parseInt(attributes.getValue("line")),
+                        attributes.getValue("message"));
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+        // Checkstyle reports all errors for a file within a single element, so groups never outlive it
+        if (qName.equals("file")) {
+            for (Group group : groups.values()) {
+                failures.add(group.toFailure(file));
+            }
+            groups.clear();
+        }
+    }
+
+    @Override
+    public List<Failure> failures() {
+        return failures;
+    }
+
+    private final class Group {
+        private final String source;
+        private final List<Integer> lines = new ArrayList<>();
+        private final List<String> messages = new ArrayList<>();
+        private String severity;
+        private int count = 0;
+
+        Group(String source) {
+            this.source = source;
+        }
+
+        void add(String errorSeverity, int line, String message) {
+            if (count == 0) {
+                severity = errorSeverity;
+            }
+            if (count < maxExamples) {
+                lines.add(line);
+                messages.add(message);
+            }
+            count++;
+        }
+
+        Failure toFailure(File groupFile) {
+            StringBuilder details = new StringBuilder();
+            for (int i = 1; i < lines.size(); i++) {
+                details.append("\nLine ").append(lines.get(i)).append(": ").append(messages.get(i));
+            }
+            if (count > lines.size()) {
+                details.append("\n(").append(count - lines.size()).append(" more omitted)");
+            }
+            String message = messages.get(0);
+            if (count > 1) {
+                message += " (+" + (count - 1) + " more in this file)";
+            }
+            return new Failure.Builder()
+                    .source(source)
+                    .severity(severity)
+                    .file(groupFile)
+                    .line(lines.get(0))
+                    .message(message)
+                    .details(details.toString())
+                    .build();
+        }
+    }
+}
@@ -17,7 +17,6 @@ package com.palantir.gradle.circlestyle;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.util.ArrayList;
 import java.util.List;
 import org.gradle.api.Task;
 import org.gradle.api.execution.TaskExecutionListener;
@@ -27,7 +26,11 @@ import org.gradle.api.tasks.testing.Test;
 
 public final class CircleBuildFailureListener implements TaskExecutionListener {
 
-    private final List<Report.TestCase> testCases = new ArrayList<>();
+    private final CircleBuildJournal journal;
+
+    public CircleBuildFailureListener(CircleBuildJournal journal) {
+        this.journal = journal;
+    }
 
     @Override
     public void beforeExecute(Task task) { }
@@ -51,12 +54,16 @@ public final class CircleBuildFailureListener implements TaskExecutionListener {
                         .details(stackTrace.toString())
                         .build());
             }
-            testCases.add(testCase.build());
+            journal.append(testCase.build());
         }
     }
 
+    public CircleBuildJournal getJournal() {
+        return journal;
+    }
+
     public List<Report.TestCase> getTestCases() {
-        return testCases;
+        return journal.readTestCases();
     }
 
     private static String getMessage(Throwable throwable) {
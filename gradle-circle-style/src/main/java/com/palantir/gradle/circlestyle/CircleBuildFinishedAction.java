@@ -16,14 +16,10 @@
 package com.palantir.gradle.circlestyle;
 
 import java.io.IOException;
-import java.io.Writer;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import javax.xml.transform.TransformerException;
 import org.gradle.BuildResult;
 import org.gradle.api.Action;
-import org.w3c.dom.Document;
 
 public final class CircleBuildFinishedAction implements Action<BuildResult> {
 
@@ -41,25 +37,15 @@ public final class CircleBuildFinishedAction implements Action<BuildResult> {
 
     @Override
     public void execute(BuildResult result) {
-        String name = (container != null) ? "container " + container : "gradle";
-        Report report = new Report.Builder()
-                .name(name)
-                .subname(name)
-                .elapsedTimeNanos(System.nanoTime() - startTimeNanos)
-                .addAllTestCases(failureListener.getTestCases())
-                .build();
-        Document xml = JUnitReportCreator.reportToXml(report);
-
         try {
-            Files.createDirectories(targetFile.getParent());
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-
-        try (Writer writer = Files.newBufferedWriter(targetFile, StandardCharsets.UTF_8)) {
-            XmlUtils.write(writer, xml);
+            failureListener.getJournal()
+                    .writeReport(targetFile, reportName(container), System.nanoTime() - startTimeNanos);
         } catch (IOException | TransformerException e) {
             throw new RuntimeException(e);
         }
     }
+
+    public static String reportName(Integer container) {
+        return (container != null) ? "container " + container : "gradle";
+    }
 }
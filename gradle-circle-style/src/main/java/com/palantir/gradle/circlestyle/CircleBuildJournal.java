@@ -0,0 +1,335 @@
+/*
+ * (c) Copyright 2017 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.gradle.circlestyle;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.xml.transform.TransformerException;
+import org.w3c.dom.Document;
+
+/**
+ * Append-only, on-disk record of the tasks run by a build, written as each task finishes so that a report can still be
+ * produced if the Gradle daemon dies before the build completes.
+ *
+ * <p>The journal for {@code build.xml} lives at {@code build.xml.journal}. Its first line holds the report name and the
+ * build start time; every further line is one escaped, tab-separated test case terminated by {@code \t$}, so a line
+ * cut short by a crash is recognisable and ignored. The build writing a journal holds a lock on it, so that other
+ * builds only recover journals whose build died.
+ */
+public final class CircleBuildJournal {
+
+    static final String SUFFIX = ".journal";
+    static final int MAX_DETAILS_LENGTH = 64 * 1024;
+
+    private static final String PASSED = "P";
+    private static final String FAILED = "F";
+    private static final String HEADER = "S";
+    private static final String TERMINATOR = "$";
+    private static final String INCOMPLETE_BUILD = "Build did not complete";
+    /** Journals being written in this JVM, which must not be locked again: closing that channel drops their lock. */
+    private static final Set<Path> OPEN_JOURNALS = ConcurrentHashMap.newKeySet();
+
+    private final Path file;
+    private final String reportName;
+    private final long startTimeMillis;
+    private Writer writer;
+
+    private CircleBuildJournal(Path file, String reportName, long startTimeMillis) {
+        this.file = file;
+        this.reportName = reportName;
+        this.startTimeMillis = startTimeMillis;
+    }
+
+    /** Starts a new journal for the report that will eventually be written to {@code reportFile}. */
+    public static CircleBuildJournal create(Path reportFile, String reportName) throws IOException {
+        Files.createDirectories(reportFile.toAbsolutePath().getParent());
+        CircleBuildJournal journal = new CircleBuildJournal(
+                journalFile(reportFile), reportName, System.currentTimeMillis());
+        // The lock is held until the writer, and with it the channel, is closed
+        FileChannel channel = FileChannel.open(journal.file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (tryLock(channel) == null) {
+            channel.close();
+            throw new IOException("Build journal " + journal.file + " is in use by another build");
+        }
+        channel.truncate(0);
+        OPEN_JOURNALS.add(journal.file.toAbsolutePath().normalize());
+        journal.writer = new BufferedWriter(
+                new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+        journal.writeLine(HEADER, escape(reportName), Long.toString(journal.startTimeMillis));
+        return journal;
+    }
+
+    /** The journal kept while the report for {@code reportFile} is pending. */
+    public static Path journalFile(Path reportFile) {
+        return Paths.get(reportFile.toString() + SUFFIX);
+    }
+
+    /**
+     * Converts any journals left behind in {@code reportsDir} by builds that never finished into (partial) reports,
+     * unless the report itself was already written. Journals still locked by running builds are left alone.
+     */
+    public static void recoverAll(Path reportsDir) throws IOException, TransformerException {
+        if (!Files.isDirectory(reportsDir)) {
+            return;
+        }
+        List<Path> journals = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(reportsDir, "*" + SUFFIX)) {
+            stream.forEach(journals::add);
+        }
+        for (Path journalFile : journals) {
+            if (recover(journalFile)) {
+                Files.deleteIfExists(journalFile);
+            }
+        }
+    }
+
+    /** Writes the report of an abandoned journal, or returns false if the journal belongs to a running build. */
+    private static boolean recover(Path journalFile) throws IOException, TransformerException {
+        String fileName = journalFile.getFileName().toString();
+        Path reportFile = journalFile.resolveSibling(fileName.substring(0, fileName.length() - SUFFIX.length()));
+        if (OPEN_JOURNALS.contains(journalFile.toAbsolutePath().normalize())) {
+            return false;
+        }
+        try (FileChannel lockChannel = FileChannel.open(journalFile, StandardOpenOption.WRITE);
+                FileLock lock = tryLock(lockChannel)) {
+            if (lock == null) {
+                return false;
+            }
+            if (!Files.exists(reportFile)) {
+                CircleBuildJournal journal = open(journalFile);
+                if (journal != null) {
+                    long elapsedMillis = Files.getLastModifiedTime(journalFile).toMillis() - journal.startTimeMillis;
+                    journal.writeReport(reportFile, journal.reportName,
+                            TimeUnit.MILLISECONDS.toNanos(Math.max(0, elapsedMillis)), false);
+                }
+            }
+            return true;
+        } catch (NoSuchFileException e) {
+            // Already recovered by a concurrent build
+            return false;
+        }
+    }
+
+    /** Returns null if another build, in this JVM or another process, holds the lock. */
+    private static FileLock tryLock(FileChannel fileChannel) throws IOException {
+        try {
+            return fileChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null;
+        }
+    }
+
+    private static CircleBuildJournal open(Path journalFile) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+            String[] header = fields(reader.readLine());
+            if (header == null || header.length != 3 || !header[0].equals(HEADER)) {
+                return null;
+            }
+            try {
+                return new CircleBuildJournal(journalFile, unescape(header[1]), Long.parseLong(header[2]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    public synchronized void append(Report.TestCase testCase) {
+        if (writer == null) {
+            throw new IllegalStateException("Journal " + file + " is closed");
+        }
+        try {
+            Report.Failure failure = testCase.failure();
+            if (failure == null) {
+                writeLine(PASSED, escape(testCase.name()));
+            } else {
+                String details = failure.details();
+                if (details.length() > MAX_DETAILS_LENGTH) {
+                    details = details.substring(0, MAX_DETAILS_LENGTH)
+                            + "\n... (" + (details.length() - MAX_DETAILS_LENGTH) + " characters truncated)";
+                }
+                writeLine(FAILED, escape(testCase.name()), escape(failure.message()), escape(details));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to append to build journal " + file, e);
+        }
+    }
+
+    public synchronized List<Report.TestCase> readTestCases() {
+        List<Report.TestCase> testCases = new ArrayList<>();
+        try {
+            forEachTestCase(testCases::add);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read build journal " + file, e);
+        }
+        return testCases;
+    }
+
+    /** Writes the final JUnit report for a completed build and discards the journal. */
+    public synchronized void writeReport(Path reportFile, String name, long elapsedTimeNanos)
+            throws IOException, TransformerException {
+        writeReport(reportFile, name, elapsedTimeNanos, true);
+        Files.deleteIfExists(file);
+    }
+
+    private void writeReport(Path reportFile, String name, long elapsedTimeNanos, boolean complete)
+            throws IOException, TransformerException {
+        close();
+        List<Report.TestCase> testCases = new ArrayList<>();
+        forEachTestCase(testCases::add);
+        if (!complete) {
+            testCases.add(new Report.TestCase.Builder()
+                    .name(INCOMPLETE_BUILD)
+                    .failure(new Report.Failure.Builder()
+                            .message(INCOMPLETE_BUILD)
+                            .details("Gradle exited before the build finished; the tasks above are those that had "
+                                    + "completed by then.")
+                            .build())
+                    .build());
+        }
+        Document xml = JUnitReportCreator.reportToXml(new Report.Builder()
+                .name(name)
+                .subname(name)
+                .elapsedTimeNanos(elapsedTimeNanos)
+                .addAllTestCases(testCases)
+                .build());
+
+        Files.createDirectories(reportFile.toAbsolutePath().getParent());
+        try (Writer reportWriter = Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8)) {
+            XmlUtils.write(reportWriter, xml);
+        }
+    }
+
+    private void forEachTestCase(Consumer<Report.TestCase> consumer) throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            reader.readLine(); // header
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = fields(line);
+                if (fields == null) {
+                    continue;
+                }
+                if (fields[0].equals(PASSED) && fields.length == 2) {
+                    consumer.accept(new Report.TestCase.Builder().name(unescape(fields[1])).build());
+                } else if (fields[0].equals(FAILED) && fields.length == 4) {
+                    consumer.accept(new Report.TestCase.Builder()
+                            .name(unescape(fields[1]))
+                            .failure(new Report.Failure.Builder()
+                                    .message(unescape(fields[2]))
+                                    .details(unescape(fields[3]))
+                                    .build())
+                            .build());
+                }
+            }
+        }
+    }
+
+    /** Releases the journal without writing a report, as happens when a build dies. */
+    synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+            OPEN_JOURNALS.remove(file.toAbsolutePath().normalize());
+        }
+    }
+
+    private void writeLine(String... fields) throws IOException {
+        writer.write(String.join("\t", fields));
+        writer.write("\t" + TERMINATOR + "\n");
+        // Hand each record to the OS immediately, so it survives the JVM being killed
+        writer.flush();
+    }
+
+    /** Splits a complete journal line into its fields, or returns null if the line was cut short. */
+    private static String[] fields(String line) {
+        if (line == null || !line.endsWith("\t" + TERMINATOR)) {
+            return null;
+        }
+        return line.substring(0, line.length() - TERMINATOR.length() - 1).split("\t", -1);
+    }
+
+    static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            switch (ch) {
+                case '\\':
+                    escaped.append("\\\\");
+                    break;
+                case '\t':
+                    escaped.append("\\t");
+                    break;
+                case '\n':
+                    escaped.append("\\n");
+                    break;
+                case '\r':
+                    escaped.append("\\r");
+                    break;
+                default:
+                    escaped.append(ch);
+            }
+        }
+        return escaped.toString();
+    }
+
+    static String unescape(String value) {
+        StringBuilder unescaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                switch (next) {
+                    case 't':
+                        unescaped.append('\t');
+                        break;
+                    case 'n':
+                        unescaped.append('\n');
+                        break;
+                    case 'r':
+                        unescaped.append('\r');
+                        break;
+                    default:
+                        unescaped.append(next);
+                }
+            } else {
+                unescaped.append(ch);
+            }
+        }
+        return unescaped.toString();
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * (c) Copyright 2017 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.gradle.circlestyle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.xml.transform.TransformerException;
+import org.gradle.BuildResult;
+import org.gradle.api.Action;
+import org.gradle.api.Task;
+import org.gradle.api.execution.TaskExecutionListener;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.tasks.TaskState;
+import org.w3c.dom.Document;
+
+/**
+ * Build-scoped alternative to {@link CircleStyleFinalizer}: rather than creating a finalizer task and report file per
+ * style task, failures are collected as each registered task completes and written to a single report when the build
+ * finishes.
+ */
+public final class CircleStyleReportCollector implements TaskExecutionListener, Action<BuildResult> {
+
+    private static final Logger log = Logging.getLogger(CircleStyleReportCollector.class);
+
+    private final File rootDir;
+    private final Path targetFile;
+    private final Map<Task, FailuresSupplier> failuresSuppliers = new ConcurrentHashMap<>();
+    private final Map<Task, Long> startTimes = new ConcurrentHashMap<>();
+    private final List<Report> reports = new ArrayList<>();
+
+    public CircleStyleReportCollector(File rootDir, Path targetFile) {
+        this.rootDir = rootDir;
+        this.targetFile = targetFile;
+    }
+
+    public void register(Task task, FailuresSupplier failuresSupplier) {
+        failuresSuppliers.putIfAbsent(task, failuresSupplier);
+    }
+
+    @Override
+    public void beforeExecute(Task task) {
+        if (failuresSuppliers.containsKey(task)) {
+            startTimes.put(task, System.nanoTime());
+        }
+    }
+
+    @Override
+    public void afterExecute(Task task, TaskState state) {
+        // Drop the supplier as soon as it has been read, so its captured output can be collected
+        FailuresSupplier failuresSupplier = failuresSuppliers.remove(task);
+        Long startTime = startTimes.remove(task);
+        if (failuresSupplier == null || startTime == null || !task.getDidWork()) {
+            return;
+        }
+
+        long taskTimeNanos = System.nanoTime() - startTime;
+        try {
+            Report report = FailuresReportGenerator.failuresReport(
+                    rootDir, task.getProject().getName(), task.getName(), taskTimeNanos,
+                    failuresSupplier.getFailures());
+            synchronized (reports) {
+                reports.add(report);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to collect style failures for {}", task.getPath(), e);
+        }
+    }
+
+    @Override
+    public void execute(BuildResult result) {
+        List<Report> collected;
+        synchronized (reports) {
+            if (reports.isEmpty()) {
+                return;
+            }
+            collected = new ArrayList<>(reports);
+        }
+        Document xml = JUnitReportCreator.reportsToXml("style", collected);
+
+        try {
+            Files.createDirectories(targetFile.getParent());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        try (Writer writer = Files.newBufferedWriter(targetFile, StandardCharsets.UTF_8)) {
+            XmlUtils.write(writer, xml);
+        } catch (IOException | TransformerException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package com.palantir.gradle.circlestyle;
 
+import java.util.List;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import org.w3c.dom.Document;
@@ -23,52 +24,84 @@ import org.w3c.dom.Element;
 final class JUnitReportCreator {
 
     static Document reportToXml(Report report) {
-        try {
-            Document xml = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
-            String elapsedTimeString = String.format("%.03f", report.elapsedTimeNanos() / 1e9);
+        Document xml = newDocument();
+        Element testSuitesXml = xml.createElement("testsuites");
+        xml.appendChild(testSuitesXml);
+        testSuitesXml.setAttribute("id", asId(report.name()));
+        testSuitesXml.setAttribute("name", report.name());
+        testSuitesXml.setAttribute("tests", Integer.toString(report.testCases().size()));
+        testSuitesXml.setAttribute("time", elapsedTimeString(report.elapsedTimeNanos()));
+
+        int failures = appendTestSuite(xml, testSuitesXml, report.subname(), report);
+        testSuitesXml.setAttribute("failures", Integer.toString(failures));
+        return xml;
+    }
 
-            Element testSuitesXml = xml.createElement("testsuites");
-            xml.appendChild(testSuitesXml);
-            testSuitesXml.setAttribute("id", asId(report.name()));
-            testSuitesXml.setAttribute("name", report.name());
-            testSuitesXml.setAttribute("tests", Integer.toString(report.testCases().size()));
-            testSuitesXml.setAttribute("time", elapsedTimeString);
+    /** Creates a single document holding one test suite per report, named after each report's name and subname. */
+    static Document reportsToXml(String name, List<Report> reports) {
+        Document xml = newDocument();
+        Element testSuitesXml = xml.createElement("testsuites");
+        xml.appendChild(testSuitesXml);
+        testSuitesXml.setAttribute("id", asId(name));
+        testSuitesXml.setAttribute("name", name);
+
+        int tests = 0;
+        int failures = 0;
+        long elapsedTimeNanos = 0;
+        for (Report report : reports) {
+            tests += report.testCases().size();
+            elapsedTimeNanos += report.elapsedTimeNanos();
+            failures += appendTestSuite(xml, testSuitesXml, report.name() + " - " + report.subname(), report);
+        }
+        testSuitesXml.setAttribute("tests", Integer.toString(tests));
+        testSuitesXml.setAttribute("failures", Integer.toString(failures));
+        testSuitesXml.setAttribute("time", elapsedTimeString(elapsedTimeNanos));
+        return xml;
+    }
 
-            Element testSuiteXml = xml.createElement("testsuite");
-            testSuitesXml.appendChild(testSuiteXml);
-            testSuiteXml.setAttribute("id", asId(report.subname()));
-            testSuiteXml.setAttribute("name", report.subname());
-            testSuiteXml.setAttribute("tests", Integer.toString(report.testCases().size()));
-            testSuiteXml.setAttribute("time", elapsedTimeString);
+    private static int appendTestSuite(Document xml, Element testSuitesXml, String suiteName, Report report) {
+        Element testSuiteXml = xml.createElement("testsuite");
+        testSuitesXml.appendChild(testSuiteXml);
+        testSuiteXml.setAttribute("id", asId(suiteName));
+        testSuiteXml.setAttribute("name", suiteName);
+        testSuiteXml.setAttribute("tests", Integer.toString(report.testCases().size()));
+        testSuiteXml.setAttribute("time", elapsedTimeString(report.elapsedTimeNanos()));
 
-            int failures = 0;
-            for (Report.TestCase testCase : report.testCases()) {
+        int failures = 0;
+        for (Report.TestCase testCase : report.testCases()) {
 
-                Element testCaseXml = xml.createElement("testcase");
-                testSuiteXml.appendChild(testCaseXml);
-                testCaseXml.setAttribute("id", asId(testCase.name()));
-                testCaseXml.setAttribute("name", testCase.name());
+            Element testCaseXml = xml.createElement("testcase");
+            testSuiteXml.appendChild(testCaseXml);
+            testCaseXml.setAttribute("id", asId(testCase.name()));
+            testCaseXml.setAttribute("name", testCase.name());
 
-                Report.Failure failure = testCase.failure();
-                if (failure != null) {
-                    failures++;
-                    Element failureXml = xml.createElement("failure");
-                    testCaseXml.appendChild(failureXml);
-                    failureXml.setAttribute("message", failure.message());
-                    failureXml.setAttribute("type", "ERROR");
-                    failureXml.setTextContent(failure.details());
-                }
+            Report.Failure failure = testCase.failure();
+            if (failure != null) {
+                failures++;
+                Element failureXml = xml.createElement("failure");
+                testCaseXml.appendChild(failureXml);
+                failureXml.setAttribute("message", failure.message());
+                failureXml.setAttribute("type", "ERROR");
+                failureXml.setTextContent(failure.details());
             }
+        }
 
-            testSuitesXml.setAttribute("failures", Integer.toString(failures));
-            testSuiteXml.setAttribute("failures", Integer.toString(failures));
+        testSuiteXml.setAttribute("failures", Integer.toString(failures));
+        return failures;
+    }
 
-            return xml;
+    private static Document newDocument() {
+        try {
+            return DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
         } catch (ParserConfigurationException e) {
             throw new RuntimeException(e);
         }
     }
 
+    private static String elapsedTimeString(long elapsedTimeNanos) {
+        return String.format("%.03f", elapsedTimeNanos / 1e9);
+    }
+
     private static String asId(String name) {
         return name.replace(" - ", ".");
     }
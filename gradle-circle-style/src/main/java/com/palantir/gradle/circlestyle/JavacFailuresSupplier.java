@@ -15,7 +15,6 @@
  */
 package com.palantir.gradle.circlestyle;
 
-import com.google.common.base.Splitter;
 import java.io.File;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -24,55 +23,95 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.gradle.api.tasks.compile.JavaCompile;
 
+/**
+ * Parses javac's standard error into {@link Failure failures} as it is written, so that only errors (and a bounded
+ * number of their detail lines) are ever retained, however much output the compiler produces.
+ */
 public final class JavacFailuresSupplier implements FailuresSupplier {
 
     public static JavacFailuresSupplier create(JavaCompile javac) {
         // Capture standard output
-        final StringBuilder errorStream = new StringBuilder();
-        javac.getLogging().addStandardErrorListener(errorStream::append);
+        final JavacFailuresSupplier supplier = new JavacFailuresSupplier();
+        javac.getLogging().addStandardErrorListener(supplier::append);
 
         // Configure the finalizer task
-        return new JavacFailuresSupplier(errorStream);
+        return supplier;
     }
 
+    private static final String ERROR_MARKER = ": error: ";
     private static final Pattern ERROR_LINE = Pattern.compile("([^ ].*):(\\d+): error: (.*)");
+    static final int MAX_LINE_LENGTH = 4096;
+    static final int MAX_DETAIL_LINES = 20;
+
+    private final List<Failure> failures = new ArrayList<>();
+    private final StringBuilder currentLine = new StringBuilder();
+    private Failure.Builder failureBuilder = null;
+    private StringBuilder details = null;
+    private int detailLines = 0;
 
-    private final StringBuilder errorStream;
+    JavacFailuresSupplier() {}
 
-    JavacFailuresSupplier(StringBuilder errorStream) {
-        this.errorStream = errorStream;
+    /** Consumes a chunk of javac output; chunks need not be aligned to line boundaries. */
+    synchronized void append(CharSequence output) {
+        for (int i = 0; i < output.length(); i++) {
+            char ch = output.charAt(i);
+            if (ch == '\n') {
+                processLine(currentLine);
+                currentLine.setLength(0);
+            } else if (currentLine.length() < MAX_LINE_LENGTH) {
+                currentLine.append(ch);
+            }
+        }
     }
 
     @Override
-    public List<Failure> getFailures() {
-        List<Failure> failures = new ArrayList<>();
-        Failure.Builder failureBuilder = null;
-        StringBuilder details = null;
-        for (String line : Splitter.on("\n").split(errorStream.toString())) {
-            if (failureBuilder != null) {
-                if (line.startsWith(" ")) {
+    public synchronized List<Failure> getFailures() {
+        if (currentLine.length() > 0) {
+            processLine(currentLine);
+            currentLine.setLength(0);
+        }
+        finishFailure();
+        return new ArrayList<>(failures);
+    }
+
+    private void processLine(CharSequence line) {
+        if (failureBuilder != null) {
+            if (line.length() > 0 && line.charAt(0) == ' ') {
+                if (detailLines < MAX_DETAIL_LINES) {
                     details.append("\n").append(line);
-                    continue;
-                } else {
-                    failures.add(failureBuilder.details(details.toString()).build());
-                    failureBuilder = null;
-                    details = null;
                 }
+                detailLines++;
+                return;
             }
-            Matcher matcher = ERROR_LINE.matcher(line);
-            if (matcher.matches()) {
-                failureBuilder = new Failure.Builder()
-                        .file(new File(matcher.group(1)))
-                        .line(Integer.parseInt(matcher.group(2)))
-                        .severity("ERROR")
-                        .message(matcher.group(3));
-                details = new StringBuilder();
-            }
+            finishFailure();
         }
-        if (failureBuilder != null) {
-            failures.add(failureBuilder.details(details.toString()).build());
+        String lineString = line.toString();
+        if (!lineString.contains(ERROR_MARKER)) {
+            return;
+        }
+        Matcher matcher = ERROR_LINE.matcher(lineString);
+        if (matcher.matches()) {
+            failureBuilder = new Failure.Builder()
+                    .file(new File(matcher.group(1)))
+                    .line(Integer.parseInt(matcher.group(2)))
+                    .severity("ERROR")
+                    .message(matcher.group(3));
+            details = new StringBuilder();
+            detailLines = 0;
+        }
+    }
+
+    private void finishFailure() {
+        if (failureBuilder == null) {
+            return;
+        }
+        if (detailLines > MAX_DETAIL_LINES) {
+            details.append("\n    (").append(detailLines - MAX_DETAIL_LINES).append(" more lines truncated)");
         }
-        return failures;
+        failures.add(failureBuilder.details(details.toString()).build());
+        failureBuilder = null;
+        details = null;
+        detailLines = 0;
     }
 
     @Override
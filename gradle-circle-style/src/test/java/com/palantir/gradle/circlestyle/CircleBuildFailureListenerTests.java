@@ -20,12 +20,17 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import com.palantir.gradle.circlestyle.Report.TestCase;
+import java.io.IOException;
 import org.gradle.api.Task;
 import org.gradle.api.internal.tasks.TaskExecutionOutcome;
 import org.gradle.api.internal.tasks.TaskStateInternal;
 import org.gradle.api.plugins.quality.Checkstyle;
 import org.gradle.api.tasks.TaskState;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 
 public class CircleBuildFailureListenerTests {
@@ -35,7 +40,20 @@ public class CircleBuildFailureListenerTests {
     private static final String PROJECT_2_NAME = "project2";
     private static final String TASK_2_NAME = "task2";
 
-    private final CircleBuildFailureListener listener = new CircleBuildFailureListener();
+    @Rule public final TemporaryFolder reportsDir = new TemporaryFolder();
+
+    private CircleBuildFailureListener listener;
+
+    @Before
+    public void before() throws IOException {
+        listener = new CircleBuildFailureListener(
+                CircleBuildJournal.create(reportsDir.getRoot().toPath().resolve("build.xml"), "gradle"));
+    }
+
+    @After
+    public void after() throws IOException {
+        listener.getJournal().close();
+    }
 
     @Test
     public void noTasks() {
@@ -0,0 +1,141 @@
+/*
+ * (c) Copyright 2017 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.gradle.circlestyle;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.palantir.gradle.circlestyle.Report.TestCase;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import javax.xml.transform.TransformerException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CircleBuildJournalTests {
+
+    private static final TestCase PASSED = new TestCase.Builder().name(":project1:task1").build();
+    private static final TestCase FAILED = new TestCase.Builder()
+            .name(":project2:task2")
+            .failure(new Report.Failure.Builder()
+                    .message("RuntimeException: <task 2 failed>")
+                    .details("java.lang.RuntimeException: task 2 failed\n\tat Foo.bar(C:\\Foo.java)")
+                    .build())
+            .build();
+
+    @Rule public final TemporaryFolder reportsDir = new TemporaryFolder();
+
+    @Test
+    public void readsBackAppendedTestCases() throws IOException {
+        CircleBuildJournal journal = CircleBuildJournal.create(report("build.xml"), "gradle");
+        journal.append(PASSED);
+        journal.append(FAILED);
+        assertThat(journal.readTestCases()).containsExactly(PASSED, FAILED);
+    }
+
+    @Test
+    public void truncatesLongDetails() throws IOException {
+        StringBuilder details = new StringBuilder();
+        while (details.length() <= CircleBuildJournal.MAX_DETAILS_LENGTH) {
+            details.append("\tat com.example.Foo.bar(Foo.java:1)\n");
+        }
+        CircleBuildJournal journal = CircleBuildJournal.create(report("build.xml"), "gradle");
+        journal.append(new TestCase.Builder()
+                .name(":project1:task1")
+                .failure(new Report.Failure.Builder().message("StackOverflowError").details(details.toString()).build())
+                .build());
+
+        String readDetails = journal.readTestCases().get(0).failure().details();
+        assertThat(readDetails).hasSize(CircleBuildJournal.MAX_DETAILS_LENGTH
+                + ("\n... (" + (details.length() - CircleBuildJournal.MAX_DETAILS_LENGTH) + " characters truncated)")
+                .length());
+        assertThat(readDetails).endsWith("characters truncated)");
+    }
+
+    @Test
+    public void writesReportAndDeletesJournal() throws IOException, TransformerException {
+        Path reportFile = report("build.xml");
+        CircleBuildJournal journal = CircleBuildJournal.create(reportFile, "container 3");
+        journal.append(PASSED);
+        journal.append(FAILED);
+        journal.writeReport(reportFile, "container 3", 2_500_000_000L);
+
+        assertThat(reportsDir.getRoot().list()).containsExactly("build.xml");
+        assertThat(new String(Files.readAllBytes(reportFile), StandardCharsets.UTF_8))
+                .contains("<testsuites failures=\"1\" id=\"container 3\" name=\"container 3\" tests=\"2\" "
+                        + "time=\"2.500\">")
+                .contains("<testcase id=\":project1:task1\" name=\":project1:task1\"/>")
+                .contains("<failure message=\"RuntimeException: &lt;task 2 failed&gt;\" type=\"ERROR\">"
+                        + "java.lang.RuntimeException: task 2 failed\n\tat Foo.bar(C:\\Foo.java)</failure>")
+                .doesNotContain("Build did not complete");
+    }
+
+    @Test
+    public void recoversPartialReportFromAbandonedJournal() throws IOException, TransformerException {
+        Path reportFile = report("build.xml");
+        CircleBuildJournal journal = CircleBuildJournal.create(reportFile, "gradle");
+        journal.append(PASSED);
+        journal.append(FAILED);
+        journal.close();
+        // Simulate the daemon dying half way through writing a record
+        Files.write(report("build.xml" + CircleBuildJournal.SUFFIX),
+                "F\t:project3:task3\tOutOfMem".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        CircleBuildJournal.recoverAll(reportsDir.getRoot().toPath());
+
+        assertThat(reportsDir.getRoot().list()).containsExactly("build.xml");
+        assertThat(new String(Files.readAllBytes(reportFile), StandardCharsets.UTF_8))
+                .contains("failures=\"2\" id=\"gradle\" name=\"gradle\" tests=\"3\"")
+                .contains(":project1:task1")
+                .contains(":project2:task2")
+                .doesNotContain(":project3:task3")
+                .contains("<failure message=\"Build did not complete\"");
+    }
+
+    @Test
+    public void recoveryLeavesExistingReportsAlone() throws IOException, TransformerException {
+        Path reportFile = report("build.xml");
+        CircleBuildJournal journal = CircleBuildJournal.create(reportFile, "gradle");
+        journal.append(PASSED);
+        journal.close();
+        Files.write(reportFile, "existing".getBytes(StandardCharsets.UTF_8));
+
+        CircleBuildJournal.recoverAll(reportsDir.getRoot().toPath());
+
+        assertThat(reportsDir.getRoot().list()).containsExactly("build.xml");
+        assertThat(new String(Files.readAllBytes(reportFile), StandardCharsets.UTF_8)).isEqualTo("existing");
+    }
+
+    @Test
+    public void recoveryLeavesJournalsOfRunningBuildsAlone() throws IOException, TransformerException {
+        Path reportFile = report("build.xml");
+        CircleBuildJournal journal = CircleBuildJournal.create(reportFile, "gradle");
+        journal.append(PASSED);
+
+        CircleBuildJournal.recoverAll(reportsDir.getRoot().toPath());
+
+        assertThat(reportsDir.getRoot().list()).containsExactly("build.xml" + CircleBuildJournal.SUFFIX);
+        journal.append(FAILED);
+        assertThat(journal.readTestCases()).containsExactly(PASSED, FAILED);
+    }
+
+    private Path report(String name) {
+        return reportsDir.getRoot().toPath().resolve(name);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * (c) Copyright 2018 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.gradle.circlestyle;
+
+import static com.palantir.gradle.circlestyle.TestCommon.ROOT;
+import static com.palantir.gradle.circlestyle.TestCommon.readTestFile;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import com.google.common.io.Resources;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.gradle.BuildResult;
+import org.gradle.api.Project;
+import org.gradle.api.plugins.quality.Checkstyle;
+import org.gradle.api.reporting.SingleFileReport;
+import org.gradle.api.tasks.TaskState;
+import org.gradle.internal.impldep.com.google.common.io.Files;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CircleStyleReportCollectorTests {
+
+    @Rule public final TemporaryFolder projectDir = new TemporaryFolder();
+
+    @Test
+    public void writesSingleReportForAllTasks() throws IOException {
+        Project project = ProjectBuilder.builder().withName("fooproject").withProjectDir(projectDir.getRoot()).build();
+        Checkstyle checkstyleMain = createCheckstyleTask(project, "checkstyleMain");
+        Checkstyle checkstyleTest = createCheckstyleTask(project, "checkstyleTest");
+        File targetFile = new File(projectDir.getRoot(), "reports/style.xml");
+
+        CircleStyleReportCollector collector = new CircleStyleReportCollector(
+                projectDir.getRoot().getCanonicalFile(), targetFile.toPath());
+        for (Checkstyle checkstyle : new Checkstyle[] {checkstyleMain, checkstyleTest}) {
+            collector.register(checkstyle, XmlReportFailuresSupplier.create(checkstyle, new CheckstyleReportHandler()));
+            checkstyle.setDidWork(true);
+            collector.beforeExecute(checkstyle);
+            collector.afterExecute(checkstyle, mock(TaskState.class));
+        }
+        collector.execute(mock(BuildResult.class));
+
+        String report = Resources.toString(targetFile.toURI().toURL(), StandardCharsets.UTF_8);
+        assertThat(report)
+                .contains("<testsuites failures=\"4\" id=\"style\" name=\"style\" tests=\"4\"")
+                .contains("id=\"fooproject.checkstyleMain\" name=\"fooproject - checkstyleMain\" tests=\"2\"")
+                .contains("id=\"fooproject.checkstyleTest\" name=\"fooproject - checkstyleTest\" tests=\"2\"")
+                .contains("FooApplication.java:135: Parameter name 'b'");
+    }
+
+    @Test
+    public void doesNothingIfTaskSkipped() throws IOException {
+        Project project = ProjectBuilder.builder().withName("fooproject").withProjectDir(projectDir.getRoot()).build();
+        Checkstyle checkstyle = createCheckstyleTask(project, "checkstyleTest");
+        File targetFile = new File(projectDir.getRoot(), "reports/style.xml");
+
+        CircleStyleReportCollector collector = new CircleStyleReportCollector(
+                projectDir.getRoot().getCanonicalFile(), targetFile.toPath());
+        collector.register(checkstyle, XmlReportFailuresSupplier.create(checkstyle, new CheckstyleReportHandler()));
+        checkstyle.setDidWork(false);
+        collector.beforeExecute(checkstyle);
+        collector.afterExecute(checkstyle, mock(TaskState.class));
+        collector.execute(mock(BuildResult.class));
+
+        assertThat(targetFile).doesNotExist();
+    }
+
+    private Checkstyle createCheckstyleTask(Project project, String name) throws IOException {
+        Checkstyle checkstyle = project.getTasks().create(name, Checkstyle.class);
+        SingleFileReport xmlReport = checkstyle.getReports().getByName("xml");
+
+        String originalReportXml = readTestFile("two-namecheck-failures-checkstyle.xml");
+        String modifiedReportXml = originalReportXml.replace(ROOT.toString(),
+                projectDir.getRoot().getCanonicalPath().toString());
+        File modifiedReportFile = projectDir.newFile();
+        Files.write(modifiedReportXml, modifiedReportFile, StandardCharsets.UTF_8);
+
+        xmlReport.setDestination(modifiedReportFile);
+        return checkstyle;
+    }
+}
@@ -15,6 +15,7 @@
  */
 package com.palantir.gradle.circlestyle;
 
+import static com.google.common.collect.Iterables.getOnlyElement;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.io.File;
@@ -35,7 +36,7 @@ public final class JavacFailuresSupplierTest {
     @Test
     public void noFailuresInEmptyOutput() {
         String javacOutput = "";
-        JavacFailuresSupplier supplier = new JavacFailuresSupplier(new StringBuilder(javacOutput));
+        JavacFailuresSupplier supplier = supplierFor(javacOutput);
         assertThat(supplier.getFailures()).isEmpty();
     }
 
@@ -45,7 +46,7 @@ public final class JavacFailuresSupplierTest {
                 + "Note: " + CLASS_FILE + " uses unchecked or unsafe operations.\n"
                 + "Note: Recompile with -Xlint:unchecked for details.               \n"
                 + "1 warning";
-        JavacFailuresSupplier supplier = new JavacFailuresSupplier(new StringBuilder(javacOutput));
+        JavacFailuresSupplier supplier = supplierFor(javacOutput);
         assertThat(supplier.getFailures()).isEmpty();
     }
 
@@ -53,7 +54,7 @@ public final class JavacFailuresSupplierTest {
     public void twoFailuresInOutputWithNoWarnings() {
         String javacOutput = CLASS_FILE + ":" + LINE_1 + ": error: " + ERROR_1 + DETAIL_1 + "\n"
                 + CLASS_FILE + ":" + LINE_2 + ": error: " + ERROR_2 + DETAIL_2 + "\n";
-        JavacFailuresSupplier supplier = new JavacFailuresSupplier(new StringBuilder(javacOutput));
+        JavacFailuresSupplier supplier = supplierFor(javacOutput);
         assertThat(supplier.getFailures()).containsExactly(
                 new Failure.Builder()
                         .file(new File(CLASS_FILE))
@@ -70,4 +71,35 @@ public final class JavacFailuresSupplierTest {
                         .details(DETAIL_2)
                         .build());
     }
+
+    @Test
+    public void failuresSplitAcrossChunks() {
+        String javacOutput = CLASS_FILE + ":" + LINE_1 + ": error: " + ERROR_1 + DETAIL_1 + "\n"
+                + CLASS_FILE + ":" + LINE_2 + ": error: " + ERROR_2 + DETAIL_2 + "\n";
+        JavacFailuresSupplier supplier = new JavacFailuresSupplier();
+        for (int i = 0; i < javacOutput.length(); i += 7) {
+            supplier.append(javacOutput.substring(i, Math.min(i + 7, javacOutput.length())));
+        }
+        assertThat(supplier.getFailures()).isEqualTo(supplierFor(javacOutput).getFailures());
+    }
+
+    @Test
+    public void detailsAreTruncated() {
+        StringBuilder javacOutput = new StringBuilder(CLASS_FILE + ":" + LINE_1 + ": error: " + ERROR_1);
+        for (int i = 0; i < JavacFailuresSupplier.MAX_DETAIL_LINES + 5; i++) {
+            javacOutput.append("\n    detail ").append(i);
+        }
+        JavacFailuresSupplier supplier = supplierFor(javacOutput.toString());
+        Failure failure = getOnlyElement(supplier.getFailures());
+        assertThat(failure.details())
+                .contains("detail " + (JavacFailuresSupplier.MAX_DETAIL_LINES - 1))
+                .doesNotContain("detail " + JavacFailuresSupplier.MAX_DETAIL_LINES)
+                .endsWith("(5 more lines truncated)");
+    }
+
+    private static JavacFailuresSupplier supplierFor(String javacOutput) {
+        JavacFailuresSupplier supplier = new JavacFailuresSupplier();
+        supplier.append(javacOutput);
+        return supplier;
+    }
 }